@@ -47,4 +47,13 @@ public @interface Many {
    */
   FetchType fetchType() default FetchType.DEFAULT;
 
+  /**
+   * Returns the properties of the nested rows that hold the key of their parent row. When set, the nested statement
+   * receives the keys of many parent rows at once, as a list.
+   *
+   * @return the comma separated properties
+   * @since 3.5.4
+   */
+  String batchKey() default "";
+
 }
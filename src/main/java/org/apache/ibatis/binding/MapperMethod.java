@@ -20,11 +20,13 @@ import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.annotations.Flush;
 import org.apache.ibatis.annotations.MapKey;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.result.ColumnBatch;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
@@ -32,9 +34,12 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ParamNameResolver;
 import org.apache.ibatis.reflection.TypeParameterResolver;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 
 /**
  * @author Clinton Begin
@@ -46,6 +51,8 @@ public class MapperMethod {
 
   private final SqlCommand command;
   private final MethodSignature method;
+  // whether the results may come from the second level cache
+  private final boolean secondLevelCached;
 
   public MapperMethod(Class<?> mapperInterface, Method method, Configuration config) {
 
@@ -54,9 +61,39 @@ public class MapperMethod {
 
     // MethodSignature：封装 方法对应的 返回值类型、参数类型等信息
     this.method = new MethodSignature(config, mapperInterface, method);
+
+    MappedStatement ms = command.getName() == null ? null : config.getMappedStatement(command.getName(), false);
+    this.secondLevelCached = ms != null && ms.isUseCache() && ms.getCache() != null;
   }
 
   public Object execute(SqlSession sqlSession, Object[] args) {
+    if (method.returnsFuture()) {
+      return executeAsync(sqlSession, args);
+    }
+    return executeNow(sqlSession, args);
+  }
+
+  /**
+   * Runs the statement on the asynchronous executor of the configuration, in a session opened for the call. A session
+   * cannot be used by two threads, so the call never runs in the session of the mapper nor in its transaction: it
+   * runs in a session of the mapper's session when that is also a {@link SqlSessionFactory} (e.g. a
+   * {@link org.apache.ibatis.session.SqlSessionManager}), or else in a session opened from its configuration,
+   * committed when the statement succeeds and rolled back otherwise.
+   */
+  private CompletableFuture<Object> executeAsync(SqlSession sqlSession, Object[] args) {
+    final SqlSessionFactory sqlSessionFactory = sqlSession instanceof SqlSessionFactory
+        ? (SqlSessionFactory) sqlSession : new DefaultSqlSessionFactory(sqlSession.getConfiguration());
+    final Object[] capturedArgs = args == null ? null : args.clone();
+    return CompletableFuture.supplyAsync(() -> {
+      try (SqlSession ownSession = sqlSessionFactory.openSession()) {
+        Object result = executeNow(ownSession, capturedArgs);
+        ownSession.commit();
+        return result;
+      }
+    }, sqlSession.getConfiguration().getAsyncExecutor());
+  }
+
+  private Object executeNow(SqlSession sqlSession, Object[] args) {
     Object result;
     switch (command.getType()) {
       case INSERT: {
@@ -104,6 +141,8 @@ public class MapperMethod {
         } else if (method.returnsCursor()) {
 
           result = executeForCursor(sqlSession, args);
+        } else if (ColumnBatch.class.equals(method.getReturnType())) {
+          result = executeForColumnBatch(sqlSession, args);
         } else {
           Object param = method.convertArgsToSqlCommandParam(args);
           result = sqlSession.selectOne(command.getName(), param);
@@ -176,6 +215,9 @@ public class MapperMethod {
   private <E> Object executeForMany(SqlSession sqlSession, Object[] args) {
     List<E> result;
     Object param = method.convertArgsToSqlCommandParam(args);
+    if (returnsPrimitiveArray() && !isCached(sqlSession.getConfiguration())) {
+      return executeForPrimitiveArray(sqlSession, param, method.hasRowBounds() ? method.extractRowBounds(args) : RowBounds.DEFAULT);
+    }
     if (method.hasRowBounds()) {
       RowBounds rowBounds = method.extractRowBounds(args);
       result = sqlSession.selectList(command.getName(), param, rowBounds);
@@ -193,6 +235,37 @@ public class MapperMethod {
     return result;
   }
 
+  private boolean returnsPrimitiveArray() {
+    final Class<?> returnType = method.getReturnType();
+    return long[].class.equals(returnType) || int[].class.equals(returnType) || double[].class.equals(returnType);
+  }
+
+  /**
+   * The primitive selects run with a result handler, which the caches do not serve. They are only used when no cache
+   * could serve the statement either: the local cache is cleared after every statement and the statement does not use
+   * a second level cache.
+   */
+  private boolean isCached(Configuration configuration) {
+    return configuration.getLocalCacheScope() != LocalCacheScope.STATEMENT || secondLevelCached;
+  }
+
+  private Object executeForPrimitiveArray(SqlSession sqlSession, Object param, RowBounds rowBounds) {
+    final Class<?> returnType = method.getReturnType();
+    if (long[].class.equals(returnType)) {
+      return sqlSession.selectLongs(command.getName(), param, rowBounds);
+    } else if (int[].class.equals(returnType)) {
+      return sqlSession.selectInts(command.getName(), param, rowBounds);
+    } else {
+      return sqlSession.selectDoubles(command.getName(), param, rowBounds);
+    }
+  }
+
+  private ColumnBatch executeForColumnBatch(SqlSession sqlSession, Object[] args) {
+    Object param = method.convertArgsToSqlCommandParam(args);
+    RowBounds rowBounds = method.hasRowBounds() ? method.extractRowBounds(args) : RowBounds.DEFAULT;
+    return sqlSession.selectColumns(command.getName(), param, rowBounds);
+  }
+
   private <T> Cursor<T> executeForCursor(SqlSession sqlSession, Object[] args) {
     Cursor<T> result;
     Object param = method.convertArgsToSqlCommandParam(args);
@@ -331,6 +404,7 @@ public class MapperMethod {
     private final boolean returnsVoid;
     private final boolean returnsCursor;
     private final boolean returnsOptional;
+    private final boolean returnsFuture;
     private final Class<?> returnType;
     private final String mapKey;
     private final Integer resultHandlerIndex;
@@ -339,18 +413,28 @@ public class MapperMethod {
 
     public MethodSignature(Configuration configuration, Class<?> mapperInterface, Method method) {
       Type resolvedReturnType = TypeParameterResolver.resolveReturnType(method, mapperInterface);
+      this.returnsFuture = resolvedReturnType instanceof ParameterizedType
+          && CompletableFuture.class.equals(((ParameterizedType) resolvedReturnType).getRawType());
+      if (returnsFuture) {
+        // the result is built as if the method returned the type of the future
+        resolvedReturnType = ((ParameterizedType) resolvedReturnType).getActualTypeArguments()[0];
+      }
       if (resolvedReturnType instanceof Class<?>) {
         this.returnType = (Class<?>) resolvedReturnType;
       } else if (resolvedReturnType instanceof ParameterizedType) {
         this.returnType = (Class<?>) ((ParameterizedType) resolvedReturnType).getRawType();
       } else {
-        this.returnType = method.getReturnType();
+        this.returnType = returnsFuture ? Object.class : method.getReturnType();
       }
-      this.returnsVoid = void.class.equals(this.returnType);
+      this.returnsVoid = void.class.equals(this.returnType) || (returnsFuture && Void.class.equals(this.returnType));
       this.returnsMany = configuration.getObjectFactory().isCollection(this.returnType) || this.returnType.isArray();
       this.returnsCursor = Cursor.class.equals(this.returnType);
+      if (returnsFuture && returnsCursor) {
+        throw new BindingException("Mapper method '" + method.getName()
+            + "' cannot return a Cursor asynchronously: the cursor would be closed with its session.");
+      }
       this.returnsOptional = Optional.class.equals(this.returnType);
-      this.mapKey = getMapKey(method);
+      this.mapKey = getMapKey(method, this.returnType);
       this.returnsMap = this.mapKey != null;
       this.rowBoundsIndex = getUniqueParamIndex(method, RowBounds.class);
       this.resultHandlerIndex = getUniqueParamIndex(method, ResultHandler.class);
@@ -403,6 +487,16 @@ public class MapperMethod {
       return returnsCursor;
     }
 
+    /**
+     * return whether return type is {@code java.util.concurrent.CompletableFuture}.
+     * @return return {@code true}, if return type is {@code java.util.concurrent.CompletableFuture}; the other methods
+     *         then describe the type of the future
+     * @since 3.5.4
+     */
+    public boolean returnsFuture() {
+      return returnsFuture;
+    }
+
     /**
      * return whether return type is {@code java.util.Optional}.
      * @return return {@code true}, if return type is {@code java.util.Optional}
@@ -430,9 +524,9 @@ public class MapperMethod {
       return index;
     }
 
-    private String getMapKey(Method method) {
+    private String getMapKey(Method method, Class<?> returnType) {
       String mapKey = null;
-      if (Map.class.isAssignableFrom(method.getReturnType())) {
+      if (Map.class.isAssignableFrom(returnType)) {
         final MapKey mapKeyAnnotation = method.getAnnotation(MapKey.class);
         if (mapKeyAnnotation != null) {
           mapKey = mapKeyAnnotation.value();
@@ -254,9 +254,24 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
     configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
     configuration.setDefaultResultSetType(resolveResultSetType(props.getProperty("defaultResultSetType")));
+    configuration.setBatchMaxRowsPerStatement(integerValueOf(props.getProperty("batchMaxRowsPerStatement"), 0));
+    configuration.setBatchMaxPendingRows(integerValueOf(props.getProperty("batchMaxPendingRows"), 0));
+    configuration.setBatchMaxPendingBytes(Long.parseLong(props.getProperty("batchMaxPendingBytes", "0")));
+    configuration.setBatchStatementGroupingEnabled(booleanValueOf(props.getProperty("batchStatementGroupingEnabled"), false));
+    configuration.setBatchInsertRewriteMaxRows(integerValueOf(props.getProperty("batchInsertRewriteMaxRows"), 0));
+    configuration.setBatchInsertRewriteMaxParameters(integerValueOf(props.getProperty("batchInsertRewriteMaxParameters"), 2000));
+    configuration.setAsyncExecutorPoolSize(integerValueOf(props.getProperty("asyncExecutorPoolSize"), 10));
+    configuration.setAsyncExecutorQueueSize(integerValueOf(props.getProperty("asyncExecutorQueueSize"), 1000));
+    configuration.setNestedQueryBatchSize(integerValueOf(props.getProperty("nestedQueryBatchSize"), 500));
+    configuration.setCursorPrefetchDepth(integerValueOf(props.getProperty("cursorPrefetchDepth"), 0));
+    configuration.setCompiledRowMappingEnabled(booleanValueOf(props.getProperty("compiledRowMappingEnabled"), false));
+    configuration.setColumnSignatureCacheSize(integerValueOf(props.getProperty("columnSignatureCacheSize"), 8));
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setLocalCacheMaxEntries(integerValueOf(props.getProperty("localCacheMaxEntries"), 0));
+    configuration.setLocalCacheMaxBytes(Long.parseLong(props.getProperty("localCacheMaxBytes", "0")));
+    configuration.setLocalCacheMaxRows(integerValueOf(props.getProperty("localCacheMaxRows"), 0));
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
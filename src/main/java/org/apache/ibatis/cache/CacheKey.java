@@ -16,8 +16,7 @@
 package org.apache.ibatis.cache;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -27,7 +26,7 @@ import org.apache.ibatis.reflection.ArrayUtil;
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = -5712683720950423457L;
 
   public static final CacheKey NULL_CACHE_KEY = new CacheKey(){
     @Override
@@ -40,21 +39,25 @@ public class CacheKey implements Cloneable, Serializable {
     }
   };
 
-  private static final int DEFAULT_MULTIPLIER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final Object[] EMPTY_UPDATES = new Object[0];
 
-  private final int multiplier;
+  // components shared with other keys, never updated once used as a prefix
+  private final CacheKey prefix;
   private int hashcode;
   private long checksum;
   private int count;
+  // set once the key is the prefix of another key, whose components would silently change with it
+  private transient boolean sealed;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updates;
 
   public CacheKey() {
+    this.prefix = null;
     this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLIER;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updates = EMPTY_UPDATES;
   }
 
   public CacheKey(Object[] objects) {
@@ -62,20 +65,48 @@ public class CacheKey implements Cloneable, Serializable {
     updateAll(objects);
   }
 
+  /**
+   * Creates a key that starts with the components of {@code prefix} without copying them. A key created this way is
+   * equal to a key that received the same components one by one. The prefix cannot be updated afterwards.
+   *
+   * @param prefix
+   *          the key holding the leading components
+   * @since 3.5.4
+   */
+  public CacheKey(CacheKey prefix) {
+    if (!prefix.sealed) {
+      prefix.sealed = true;
+    }
+    this.prefix = prefix;
+    this.hashcode = prefix.hashcode;
+    this.checksum = prefix.checksum;
+    this.count = prefix.count;
+    this.updates = EMPTY_UPDATES;
+  }
+
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
+    if (sealed) {
+      throw new CacheException("Not allowed to update a cache key used as the prefix of other keys.");
+    }
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
 
     count++;
     checksum += baseHashCode;
-    baseHashCode *= count;
 
-    hashcode = multiplier * hashcode + baseHashCode;
+    // murmur3 mixing step: spreads every bit of the component and its position over the hash
+    int k = (baseHashCode ^ count) * 0xcc9e2d51;
+    k = Integer.rotateLeft(k, 15) * 0x1b873593;
+    hashcode = Integer.rotateLeft(hashcode ^ k, 13) * 5 + 0xe6546b64;
 
-    updateList.add(object);
+    int index = count - prefixCount() - 1;
+    if (index == updates.length) {
+      updates = Arrays.copyOf(updates, Math.max(DEFAULT_CAPACITY, index * 2));
+    }
+    updates[index] = object;
   }
 
   public void updateAll(Object[] objects) {
@@ -84,6 +115,15 @@ public class CacheKey implements Cloneable, Serializable {
     }
   }
 
+  private int prefixCount() {
+    return prefix == null ? 0 : prefix.count;
+  }
+
+  private Object get(int index) {
+    int prefixCount = prefixCount();
+    return index < prefixCount ? prefix.get(index) : updates[index - prefixCount];
+  }
+
   @Override
   public boolean equals(Object object) {
     if (this == object) {
@@ -105,10 +145,18 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    if (prefix != null && prefix == cacheKey.prefix) {
+      // the shared components are equal, compare the own ones only
+      for (int i = count - prefix.count - 1; i >= 0; i--) {
+        if (!ArrayUtil.equals(updates[i], cacheKey.updates[i])) {
+          return false;
+        }
+      }
+      return true;
+    }
+    // the last components (parameters) are the most likely to differ
+    for (int i = count - 1; i >= 0; i--) {
+      if (!ArrayUtil.equals(get(i), cacheKey.get(i))) {
         return false;
       }
     }
@@ -117,22 +165,32 @@ public class CacheKey implements Cloneable, Serializable {
 
   @Override
   public int hashCode() {
-    return hashcode;
+    // murmur3 finalization
+    int h = hashcode ^ count;
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
   }
 
   @Override
   public String toString() {
     StringJoiner returnValue = new StringJoiner(":");
-    returnValue.add(String.valueOf(hashcode));
+    returnValue.add(String.valueOf(hashCode()));
     returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    for (int i = 0; i < count; i++) {
+      returnValue.add(ArrayUtil.toString(get(i)));
+    }
     return returnValue.toString();
   }
 
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    clonedCacheKey.updates = updates.clone();
+    clonedCacheKey.sealed = false;
     return clonedCacheKey;
   }
 
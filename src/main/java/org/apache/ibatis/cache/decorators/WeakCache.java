@@ -19,6 +19,7 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.Deque;
 import java.util.LinkedList;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.ibatis.cache.Cache;
 
@@ -33,6 +34,7 @@ public class WeakCache implements Cache {
   private final ReferenceQueue<Object> queueOfGarbageCollectedEntries;
   private final Cache delegate;
   private int numberOfHardLinks;
+  private final ReentrantLock lock = new ReentrantLock();
 
   public WeakCache(Cache delegate) {
     this.delegate = delegate;
@@ -72,9 +74,15 @@ public class WeakCache implements Cache {
       if (result == null) {
         delegate.removeObject(key);
       } else {
-        hardLinksToAvoidGarbageCollection.addFirst(result);
-        if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
-          hardLinksToAvoidGarbageCollection.removeLast();
+        // See #586 (and #335) modifications need more than a read lock
+        lock.lock();
+        try {
+          hardLinksToAvoidGarbageCollection.addFirst(result);
+          if (hardLinksToAvoidGarbageCollection.size() > numberOfHardLinks) {
+            hardLinksToAvoidGarbageCollection.removeLast();
+          }
+        } finally {
+          lock.unlock();
         }
       }
     }
@@ -89,7 +97,12 @@ public class WeakCache implements Cache {
 
   @Override
   public void clear() {
-    hardLinksToAvoidGarbageCollection.clear();
+    lock.lock();
+    try {
+      hardLinksToAvoidGarbageCollection.clear();
+    } finally {
+      lock.unlock();
+    }
     removeGarbageCollectedItems();
     delegate.clear();
   }
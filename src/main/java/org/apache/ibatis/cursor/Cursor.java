@@ -16,12 +16,21 @@
 package org.apache.ibatis.cursor;
 
 import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Cursor contract to handle fetching items lazily using an Iterator.
  * Cursors are a perfect fit to handle millions of items queries that would not normally fits in memory.
- * If you use collections in resultMaps then cursor SQL queries must be ordered (resultOrdered="true")
- * using the id columns of the resultMap.
+ * If you use collections in resultMaps then cursor SQL queries must be ordered using the id columns of the resultMap.
+ * Nested results are then mapped as if resultOrdered="true" was set: an item is returned once all its rows are read,
+ * and only the object graph of the current item is kept in memory.
  *
  * @author Guillaume Darmont / guillaume@dropinocean.com
  */
@@ -43,4 +52,78 @@ public interface Cursor<T> extends Closeable, Iterable<T> {
    * @return -1 if the first cursor item has not been retrieved. The index of the current item retrieved.
    */
   int getCurrentIndex();
+
+  /**
+   * Creates a spliterator that splits off batches of 1024 items read from this cursor.
+   *
+   * @return a spliterator over the items of this cursor
+   * @since 3.5.4
+   */
+  @Override
+  default Spliterator<T> spliterator() {
+    return new CursorSpliterator<>(this, CursorSpliterator.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Returns a sequential stream over the items of this cursor. Closing the stream closes the cursor.
+   *
+   * @return a stream that can be made parallel, in which case batches of 1024 items are processed concurrently
+   * @since 3.5.4
+   */
+  default Stream<T> stream() {
+    return stream(CursorSpliterator.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Returns a sequential stream over the items of this cursor. Closing the stream closes the cursor.
+   * <p>
+   * When the stream is made parallel, the cursor is read by one thread at a time, which hands out batches of the
+   * given size to the other threads of the pipeline.
+   *
+   * @param batchSize the number of items in a batch
+   * @return a stream over the items of this cursor
+   * @since 3.5.4
+   */
+  default Stream<T> stream(int batchSize) {
+    return StreamSupport.stream(new CursorSpliterator<>(this, batchSize), false).onClose(() -> {
+      try {
+        close();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    });
+  }
+
+  /**
+   * Returns a sequential {@code long} stream over the items of this cursor, which must be non-null numbers.
+   * Closing the stream closes the cursor.
+   *
+   * @return a stream over the values of this cursor
+   * @since 3.5.4
+   */
+  default LongStream longStream() {
+    return stream().mapToLong(item -> ((Number) item).longValue());
+  }
+
+  /**
+   * Returns a sequential {@code int} stream over the items of this cursor, which must be non-null numbers.
+   * Closing the stream closes the cursor.
+   *
+   * @return a stream over the values of this cursor
+   * @since 3.5.4
+   */
+  default IntStream intStream() {
+    return stream().mapToInt(item -> ((Number) item).intValue());
+  }
+
+  /**
+   * Returns a sequential {@code double} stream over the items of this cursor, which must be non-null numbers.
+   * Closing the stream closes the cursor.
+   *
+   * @return a stream over the values of this cursor
+   * @since 3.5.4
+   */
+  default DoubleStream doubleStream() {
+    return stream().mapToDouble(item -> ((Number) item).doubleValue());
+  }
 }
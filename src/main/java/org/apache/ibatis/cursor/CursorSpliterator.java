@@ -0,0 +1,90 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over the items of a cursor that splits off fixed-size batches of items already read. A parallel
+ * stream then maps and processes the batches on several threads, while the cursor itself is only read by the thread
+ * holding this spliterator.
+ */
+class CursorSpliterator<T> implements Spliterator<T> {
+
+  static final int DEFAULT_BATCH_SIZE = 1024;
+
+  private final Cursor<T> cursor;
+  private final int batchSize;
+  private Iterator<T> iterator;
+
+  CursorSpliterator(Cursor<T> cursor, int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("The batch size must be greater than 0 but was " + batchSize);
+    }
+    this.cursor = cursor;
+    this.batchSize = batchSize;
+  }
+
+  private Iterator<T> iterator() {
+    if (iterator == null) {
+      iterator = cursor.iterator();
+    }
+    return iterator;
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super T> action) {
+    Iterator<T> it = iterator();
+    if (!it.hasNext()) {
+      return false;
+    }
+    action.accept(it.next());
+    return true;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super T> action) {
+    iterator().forEachRemaining(action);
+  }
+
+  @Override
+  public Spliterator<T> trySplit() {
+    Iterator<T> it = iterator();
+    Object[] batch = new Object[batchSize];
+    int size = 0;
+    while (size < batchSize && it.hasNext()) {
+      batch[size++] = it.next();
+    }
+    if (size == 0) {
+      return null;
+    }
+    return Spliterators.spliterator(batch, 0, size, Spliterator.ORDERED);
+  }
+
+  @Override
+  public long estimateSize() {
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    return Spliterator.ORDERED;
+  }
+
+}
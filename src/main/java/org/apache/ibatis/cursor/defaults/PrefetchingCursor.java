@@ -0,0 +1,220 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.exceptions.PersistenceException;
+
+/**
+ * A cursor that reads and maps the rows of another cursor on a background thread, keeping up to a given number of
+ * them in a queue. The database fetch then overlaps with the processing of the consumer, while a full queue stops
+ * the background thread until the consumer catches up.
+ * <p>
+ * Each cursor uses its own daemon thread: a shared pool could be exhausted by cursors waiting for their consumers.
+ * The thread starts when the iterator is retrieved and stops when the rows are consumed or the cursor is closed.
+ * Like {@link DefaultCursor}, this implementation must be consumed and closed by a single thread.
+ *
+ * @since 3.5.4
+ */
+public class PrefetchingCursor<T> implements Cursor<T> {
+
+  private static final AtomicInteger threadNumber = new AtomicInteger();
+  private static final Object NULL = new Object();
+  private static final Object END = new Object();
+
+  private final Cursor<T> delegate;
+  private final BlockingQueue<Object> queue;
+  private final CountDownLatch finished = new CountDownLatch(1);
+  private final int offset;
+  private final CursorIterator cursorIterator = new CursorIterator();
+  private volatile boolean closed;
+  private boolean started;
+  private boolean consumed;
+  private int iteratorIndex = -1;
+
+  public PrefetchingCursor(Cursor<T> delegate, int depth) {
+    if (depth <= 0) {
+      throw new IllegalArgumentException("The prefetch depth must be greater than 0 but was " + depth);
+    }
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>(depth);
+    this.offset = delegate.getCurrentIndex() + 1;
+  }
+
+  @Override
+  public boolean isOpen() {
+    return started && !closed && !consumed;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return consumed;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return offset + iteratorIndex;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (started) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed || consumed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    started = true;
+    Iterator<T> rows = delegate.iterator();
+    Thread thread = new Thread(() -> prefetch(rows), "mybatis-cursor-prefetch-" + threadNumber.incrementAndGet());
+    thread.setDaemon(true);
+    thread.start();
+    return cursorIterator;
+  }
+
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (!started) {
+      closeDelegate();
+      return;
+    }
+    // keep making room for a pending put until the prefetching thread sees the flag
+    boolean interrupted = false;
+    while (true) {
+      queue.clear();
+      try {
+        if (finished.await(10, TimeUnit.MILLISECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    queue.clear();
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void prefetch(Iterator<T> rows) {
+    try {
+      Object last = END;
+      try {
+        while (!closed && rows.hasNext()) {
+          T row = rows.next();
+          queue.put(row == null ? NULL : row);
+        }
+      } catch (RuntimeException e) {
+        last = new Failure(e);
+      } finally {
+        closeDelegate();
+      }
+      queue.put(last);
+    } catch (InterruptedException e) {
+      // the thread is private to this cursor, only an outside party can interrupt it
+      queue.offer(new Failure(new PersistenceException("Interrupted while prefetching cursor rows.", e)));
+    } finally {
+      finished.countDown();
+    }
+  }
+
+  private void closeDelegate() {
+    try {
+      delegate.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  private static final class Failure {
+
+    private final RuntimeException cause;
+
+    Failure(RuntimeException cause) {
+      this.cause = cause;
+    }
+
+  }
+
+  protected class CursorIterator implements Iterator<T> {
+
+    /**
+     * Holder for the next element taken from the queue, {@code null} if none was taken yet.
+     */
+    private Object next;
+
+    @Override
+    public boolean hasNext() {
+      if (closed || consumed) {
+        return false;
+      }
+      if (next == null) {
+        next = take();
+      }
+      if (next == END) {
+        next = null;
+        consumed = true;
+        return false;
+      }
+      return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object element = next;
+      next = null;
+      iteratorIndex++;
+      return element == NULL ? null : (T) element;
+    }
+
+    private Object take() {
+      Object element;
+      try {
+        element = queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new PersistenceException("Interrupted while waiting for the next cursor row.", e);
+      }
+      if (element instanceof Failure) {
+        close();
+        throw ((Failure) element).cause;
+      }
+      return element;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+}
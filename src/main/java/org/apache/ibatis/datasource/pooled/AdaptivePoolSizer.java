@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Moves the number of connections a {@link PooledDataSource} may open between
+ * {@link PooledDataSource#setPoolAdaptiveMinimumActiveConnections(int)} and
+ * {@link PooledDataSource#setPoolMaximumActiveConnections(int)}, from the statistics of the {@link PoolState} measured
+ * over each period.
+ * <p>
+ * The limit grows as soon as the checkouts that waited during a period waited longer than the target wait time on
+ * average: by half, or at once to the number of
+ * connections needed to keep them 75% busy if that is more. It only shrinks after {@value #CALM_PERIODS_BEFORE_SHRINK}
+ * periods in a row without any wait and with less than half of the connections busy, and then only halfway to the
+ * number of connections needed. The period following a change is skipped, as its statistics mix both limits. This
+ * damping keeps the limit from oscillating under bursty load.
+ */
+final class AdaptivePoolSizer {
+
+  private static final Log log = LogFactory.getLog(PooledDataSource.class);
+
+  static final double TARGET_UTILIZATION = 0.75;
+  static final double LOW_UTILIZATION = 0.5;
+  static final int CALM_PERIODS_BEFORE_SHRINK = 3;
+
+  private final PooledDataSource dataSource;
+  private final PoolState state;
+  private volatile int limit;
+
+  private long lastTimestamp;
+  private long lastRequestCount;
+  private long lastWaitTime;
+  private long lastHadToWaitCount;
+  private long lastCheckoutTime;
+  private int calmPeriods;
+  private boolean coolingDown;
+
+  AdaptivePoolSizer(PooledDataSource dataSource, PoolState state) {
+    this.dataSource = dataSource;
+    this.state = state;
+    this.limit = dataSource.poolAdaptiveMinimumActiveConnections;
+    snapshot(System.currentTimeMillis());
+  }
+
+  /**
+   * @return the current limit, within the configured bounds
+   */
+  int getLimit() {
+    return clamp(limit);
+  }
+
+  /**
+   * Adjusts the limit from the statistics of the period elapsed since the previous call.
+   *
+   * @param activeConnectionCount the number of connections checked out now
+   * @return the new limit
+   */
+  int adjust(int activeConnectionCount) {
+    long now = System.currentTimeMillis();
+    long elapsed = now - lastTimestamp;
+    long requests = state.getRequestCount() - lastRequestCount;
+    long waits = state.getHadToWaitCount() - lastHadToWaitCount;
+    long waitTime = state.getAccumulatedWaitTime() - lastWaitTime;
+    long checkoutTime = state.getAccumulatedCheckoutTime() - lastCheckoutTime;
+    snapshot(now);
+
+    int current = getLimit();
+    if (elapsed <= 0) {
+      return current;
+    }
+    if (coolingDown) {
+      coolingDown = false;
+      return current;
+    }
+
+    double busy = Math.max((double) checkoutTime / elapsed, activeConnectionCount);
+    int needed = (int) Math.ceil(busy / TARGET_UTILIZATION);
+    int next = current;
+    if (waits > 0 && waitTime / waits >= dataSource.poolAdaptiveTargetWaitTime) {
+      calmPeriods = 0;
+      next = Math.max(current + Math.max(1, current / 2), needed);
+    } else if (waits == 0 && busy < current * LOW_UTILIZATION) {
+      if (++calmPeriods >= CALM_PERIODS_BEFORE_SHRINK) {
+        calmPeriods = 0;
+        next = current - Math.max(1, (current - needed) / 2);
+      }
+    } else {
+      calmPeriods = 0;
+    }
+
+    next = clamp(next);
+    if (next != current) {
+      limit = next;
+      coolingDown = true;
+      if (log.isDebugEnabled()) {
+        log.debug("Changed the active connection limit from " + current + " to " + next + " (" + waits + " of "
+            + requests + " checkouts waited, " + String.format("%.1f", busy) + " connections busy).");
+      }
+    }
+    return next;
+  }
+
+  private int clamp(int value) {
+    int maximum = Math.max(1, dataSource.poolMaximumActiveConnections);
+    int minimum = Math.min(maximum, Math.max(1, dataSource.poolAdaptiveMinimumActiveConnections));
+    return Math.min(maximum, Math.max(minimum, value));
+  }
+
+  private void snapshot(long now) {
+    lastTimestamp = now;
+    lastRequestCount = state.getRequestCount();
+    lastHadToWaitCount = state.getHadToWaitCount();
+    lastWaitTime = state.getAccumulatedWaitTime();
+    lastCheckoutTime = state.getAccumulatedCheckoutTime();
+  }
+
+}
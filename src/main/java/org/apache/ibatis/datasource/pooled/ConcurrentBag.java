@@ -0,0 +1,247 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A lock-free collection of pool entries.
+ * <p>
+ * Entries are never moved between lists: the state of each entry is switched with a CAS instead. A borrowing thread
+ * first looks at the entries it returned recently (thread-local affinity), then scans the shared list, and finally
+ * waits on a hand-off queue that returning threads feed directly while there are waiters.
+ */
+class ConcurrentBag<T extends ConcurrentBag.Entry> {
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<T> sharedList = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<List<WeakReference<T>>> threadList = ThreadLocal.withInitial(ArrayList::new);
+  private final SynchronousQueue<T> handoffQueue = new SynchronousQueue<>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+
+  /**
+   * Borrows an entry, waiting up to the timeout for one to be returned.
+   *
+   * @param timeout how long to wait, 0 to return immediately
+   * @param unit the unit of the timeout
+   * @return the entry (in {@link Entry#STATE_IN_USE}) or null if none became available in time
+   * @throws InterruptedException if interrupted while waiting
+   */
+  T borrow(long timeout, TimeUnit unit) throws InterruptedException {
+    List<WeakReference<T>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      T entry = list.remove(i).get();
+      if (entry != null && entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_IN_USE)) {
+        return entry;
+      }
+    }
+
+    waiters.incrementAndGet();
+    try {
+      for (T entry : sharedList) {
+        if (entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_IN_USE)) {
+          return entry;
+        }
+      }
+
+      long remaining = unit.toNanos(timeout);
+      while (remaining > 0) {
+        long start = System.nanoTime();
+        T entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null) {
+          return null;
+        }
+        if (entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_IN_USE)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * Returns a borrowed entry, handing it off to a waiting thread when there is one. Entries removed while they were
+   * borrowed stay removed.
+   *
+   * @param entry the entry to return
+   */
+  void requite(T entry) {
+    if (!entry.compareAndSetState(Entry.STATE_IN_USE, Entry.STATE_NOT_IN_USE)) {
+      // removed in the meantime
+      return;
+    }
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.getState() != Entry.STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    List<WeakReference<T>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<>(entry));
+    }
+  }
+
+  /**
+   * Adds a new entry. Entries added in {@link Entry#STATE_NOT_IN_USE} are offered to waiting threads.
+   *
+   * @param entry the entry to add
+   */
+  void add(T entry) {
+    sharedList.add(entry);
+    offerToWaiters(entry);
+  }
+
+  /**
+   * Removes an entry that was borrowed or reserved by the caller.
+   *
+   * @param entry the entry to remove
+   * @return true if the entry was removed by this call
+   */
+  boolean remove(T entry) {
+    if (!entry.compareAndSetState(Entry.STATE_IN_USE, Entry.STATE_REMOVED)
+        && !entry.compareAndSetState(Entry.STATE_RESERVED, Entry.STATE_REMOVED)) {
+      return false;
+    }
+    return sharedList.remove(entry);
+  }
+
+  /**
+   * Removes an entry whatever its state is.
+   *
+   * @param entry the entry to remove
+   * @return true if the entry was removed by this call
+   */
+  boolean forceRemove(T entry) {
+    entry.setState(Entry.STATE_REMOVED);
+    return sharedList.remove(entry);
+  }
+
+  /**
+   * Marks an idle entry as reserved so that it cannot be borrowed.
+   *
+   * @param entry the entry to reserve
+   * @return true if the entry was idle and is now reserved
+   */
+  boolean reserve(T entry) {
+    return entry.compareAndSetState(Entry.STATE_NOT_IN_USE, Entry.STATE_RESERVED);
+  }
+
+  /**
+   * Makes a reserved entry available again.
+   *
+   * @param entry the entry to release
+   */
+  void unreserve(T entry) {
+    if (entry.compareAndSetState(Entry.STATE_RESERVED, Entry.STATE_NOT_IN_USE)) {
+      offerToWaiters(entry);
+    }
+  }
+
+  /**
+   * Returns a snapshot of the entries in the given state.
+   *
+   * @param state the state
+   * @return the entries
+   */
+  List<T> values(int state) {
+    List<T> list = new ArrayList<>();
+    for (T entry : sharedList) {
+      if (entry.getState() == state) {
+        list.add(entry);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * Returns a snapshot of all the entries.
+   *
+   * @return the entries
+   */
+  List<T> values() {
+    return new ArrayList<>(sharedList);
+  }
+
+  int getCount(int state) {
+    int count = 0;
+    for (T entry : sharedList) {
+      if (entry.getState() == state) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  int size() {
+    return sharedList.size();
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  private void offerToWaiters(T entry) {
+    while (waiters.get() > 0 && entry.getState() == Entry.STATE_NOT_IN_USE && !handoffQueue.offer(entry)) {
+      Thread.yield();
+    }
+  }
+
+  /**
+   * An element of a {@link ConcurrentBag}, owning the state the bag switches with CAS.
+   */
+  abstract static class Entry {
+
+    static final int STATE_NOT_IN_USE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+    static final int STATE_RESERVED = -2;
+
+    private final AtomicInteger state;
+
+    protected Entry(int initialState) {
+      this.state = new AtomicInteger(initialState);
+    }
+
+    int getState() {
+      return state.get();
+    }
+
+    void setState(int newState) {
+      state.set(newState);
+    }
+
+    boolean compareAndSetState(int expect, int update) {
+      return state.compareAndSet(expect, update);
+    }
+
+  }
+
+}
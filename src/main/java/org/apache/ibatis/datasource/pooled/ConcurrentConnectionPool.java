@@ -0,0 +1,370 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * The checkout/return logic of a {@link PooledDataSource} when the concurrent bag is enabled.
+ * <p>
+ * Connections are checked out and returned with CAS operations on a {@link ConcurrentBag} instead of the pool lock.
+ * The rules are the same as in the default mode (maximum active/idle connections, overdue claims, bad connection
+ * tolerance) and the same {@link PoolState} statistics are maintained.
+ */
+class ConcurrentConnectionPool {
+
+  private static final Log log = LogFactory.getLog(PooledDataSource.class);
+
+  private final PooledDataSource dataSource;
+  private final PoolState state;
+  private final ConcurrentBag<PoolEntry> bag = new ConcurrentBag<>();
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  ConcurrentConnectionPool(PooledDataSource dataSource, PoolState state) {
+    this.dataSource = dataSource;
+    this.state = state;
+  }
+
+  PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    long t = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
+    int localBadConnectionCount = 0;
+
+    while (true) {
+      PoolEntry entry;
+      try {
+        entry = bag.borrow(0, TimeUnit.MILLISECONDS);
+        if (entry != null) {
+          if (log.isDebugEnabled()) {
+            log.debug("Checked out connection " + entry.getRealConnection().hashCode() + " from pool.");
+          }
+        } else {
+          entry = createEntry(ConcurrentBag.Entry.STATE_IN_USE);
+        }
+        if (entry == null) {
+          entry = claimOverdueEntry();
+        }
+        if (entry == null) {
+          // Must wait
+          if (!countedWait) {
+            state.counters.hadToWaitCount.increment();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + dataSource.poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          entry = bag.borrow(dataSource.poolTimeToWait, TimeUnit.MILLISECONDS);
+          state.counters.accumulatedWaitTime.add(System.currentTimeMillis() - wt);
+          if (entry == null) {
+            continue;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+
+      PooledConnection conn = new PooledConnection(entry.getRealConnection(), dataSource);
+      conn.setPoolEntry(entry);
+      conn.setStatementCache(entry.getStatementCache());
+      conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+      conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+      if (conn.isValid()) {
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          discard(entry);
+          throw e;
+        }
+        long now = System.currentTimeMillis();
+        conn.setConnectionTypeCode(dataSource.assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        long nowNanos = System.nanoTime();
+        conn.setCheckoutTimestamp(now);
+        conn.setCheckoutNanoTime(nowNanos);
+        conn.setLastUsedTimestamp(now);
+        dataSource.traceCheckout(conn);
+        entry.setCheckedOut(conn);
+        state.counters.requestCount.increment();
+        state.counters.accumulatedRequestTime.add(now - t);
+        state.recordCheckout(nowNanos - startNanos);
+        return conn;
+      }
+
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+      }
+      state.counters.badConnectionCount.increment();
+      localBadConnectionCount++;
+      discard(entry);
+      if (localBadConnectionCount > (dataSource.poolMaximumIdleConnections + dataSource.poolMaximumLocalBadConnectionTolerance)) {
+        if (log.isDebugEnabled()) {
+          log.debug("PooledDataSource: Could not get a good connection to the database.");
+        }
+        throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+    throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+  }
+
+  void pushConnection(PooledConnection conn) throws SQLException {
+    PoolEntry entry = conn.getPoolEntry();
+    boolean owned = entry != null && entry.compareAndSetCheckedOut(conn, null);
+    if (!owned || !conn.isValid()) {
+      // already returned, claimed as overdue or invalidated by forceCloseAll()
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.counters.badConnectionCount.increment();
+      if (owned) {
+        conn.invalidate();
+        discard(entry);
+      }
+      return;
+    }
+
+    state.counters.accumulatedCheckoutTime.add(conn.getCheckoutTime());
+    state.recordReturn(conn.getCheckoutNanos());
+    entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+    conn.invalidate();
+    try {
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      discard(entry);
+      throw e;
+    }
+
+    if (conn.getConnectionTypeCode() == dataSource.getExpectedConnectionTypeCode()
+        && (bag.getWaitingThreadCount() > 0 || bag.getCount(ConcurrentBag.Entry.STATE_NOT_IN_USE) < dataSource.poolMaximumIdleConnections)) {
+      bag.requite(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+    } else {
+      discard(entry);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  /**
+   * Closes all the connections and empties the bag. Connections currently checked out are invalidated.
+   */
+  void closeAll() {
+    for (PoolEntry entry : bag.values()) {
+      if (bag.forceRemove(entry)) {
+        totalConnections.decrementAndGet();
+        PooledConnection conn = entry.getCheckedOut();
+        if (conn != null) {
+          conn.invalidate();
+        }
+        try {
+          Connection realConn = entry.getRealConnection();
+          if (!realConn.getAutoCommit()) {
+            realConn.rollback();
+          }
+          realConn.close();
+        } catch (Exception e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  /**
+   * Maintains the idle entries: reserved one at a time, so that they cannot be borrowed while being closed or pinged.
+   */
+  void housekeep() {
+    int idleConnectionCount = getIdleConnectionCount();
+    long now = System.currentTimeMillis();
+    for (PoolEntry entry : bag.values(ConcurrentBag.Entry.STATE_NOT_IN_USE)) {
+      if (!bag.reserve(entry)) {
+        continue;
+      }
+      long timeElapsedSinceLastUse = now - entry.getLastUsedTimestamp();
+      if (dataSource.isEvictable(now - entry.getCreatedTimestamp(), timeElapsedSinceLastUse, idleConnectionCount)) {
+        idleConnectionCount--;
+        discard(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Evicted connection " + entry.getRealConnection().hashCode() + ".");
+        }
+      } else if (dataSource.needsPing(timeElapsedSinceLastUse) && !dataSource.executePingQuery(entry.getRealConnection())) {
+        idleConnectionCount--;
+        state.counters.badConnectionCount.increment();
+        discard(entry);
+      } else {
+        bag.unreserve(entry);
+      }
+    }
+  }
+
+  /**
+   * Opens connections for the waiting threads, as long as the active connection limit allows it.
+   */
+  void addConnectionsForWaitingThreads() {
+    try {
+      for (int waiting = bag.getWaitingThreadCount(); waiting > 0; waiting--) {
+        if (createEntry(ConcurrentBag.Entry.STATE_NOT_IN_USE) == null) {
+          return;
+        }
+      }
+    } catch (SQLException e) {
+      log.debug("Could not create a connection for a waiting thread: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Closes idle entries until the pool holds no more connections than the limit.
+   */
+  void closeExcessIdleConnections(int limit) {
+    for (PoolEntry entry : bag.values(ConcurrentBag.Entry.STATE_NOT_IN_USE)) {
+      if (totalConnections.get() <= limit) {
+        return;
+      }
+      if (bag.reserve(entry)) {
+        discard(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + entry.getRealConnection().hashCode() + " above the active connection limit.");
+        }
+      }
+    }
+  }
+
+  boolean addIdleConnection() throws SQLException {
+    return getIdleConnectionCount() < dataSource.getTargetIdleConnectionCount()
+        && createEntry(ConcurrentBag.Entry.STATE_NOT_IN_USE) != null;
+  }
+
+  List<PooledConnection> getCheckedOutConnections() {
+    List<PooledConnection> connections = new ArrayList<>();
+    for (PoolEntry entry : bag.values(ConcurrentBag.Entry.STATE_IN_USE)) {
+      PooledConnection conn = entry.getCheckedOut();
+      if (conn != null) {
+        connections.add(conn);
+      }
+    }
+    return connections;
+  }
+
+  int getActiveConnectionCount() {
+    return bag.getCount(ConcurrentBag.Entry.STATE_IN_USE);
+  }
+
+  int getIdleConnectionCount() {
+    return bag.getCount(ConcurrentBag.Entry.STATE_NOT_IN_USE) + bag.getCount(ConcurrentBag.Entry.STATE_RESERVED);
+  }
+
+  private PoolEntry createEntry(int initialState) throws SQLException {
+    int total;
+    do {
+      total = totalConnections.get();
+      if (total >= dataSource.getActiveConnectionLimit()) {
+        return null;
+      }
+    } while (!totalConnections.compareAndSet(total, total + 1));
+
+    Connection realConnection;
+    try {
+      realConnection = dataSource.openRealConnection();
+    } catch (SQLException | RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+    PoolEntry entry = new PoolEntry(realConnection, dataSource.newStatementCache(), initialState);
+    bag.add(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + realConnection.hashCode() + ".");
+    }
+    return entry;
+  }
+
+  private PoolEntry claimOverdueEntry() {
+    PoolEntry oldestEntry = null;
+    PooledConnection oldestActiveConnection = null;
+    long longestCheckoutTime = -1;
+    for (PoolEntry entry : bag.values(ConcurrentBag.Entry.STATE_IN_USE)) {
+      PooledConnection conn = entry.getCheckedOut();
+      if (conn != null && conn.getCheckoutTime() > longestCheckoutTime) {
+        oldestEntry = entry;
+        oldestActiveConnection = conn;
+        longestCheckoutTime = conn.getCheckoutTime();
+      }
+    }
+    if (oldestEntry == null || longestCheckoutTime <= dataSource.poolMaximumCheckoutTime
+        || !oldestEntry.compareAndSetCheckedOut(oldestActiveConnection, null)) {
+      return null;
+    }
+
+    // Can claim overdue connection
+    state.counters.claimedOverdueConnectionCount.increment();
+    state.counters.accumulatedCheckoutTimeOfOverdueConnections.add(longestCheckoutTime);
+    state.counters.accumulatedCheckoutTime.add(longestCheckoutTime);
+    state.recordReturn(oldestActiveConnection.getCheckoutNanos());
+    oldestActiveConnection.invalidate();
+    dataSource.reportOverdueConnection(oldestActiveConnection);
+    try {
+      if (!oldestEntry.getRealConnection().getAutoCommit()) {
+        oldestEntry.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      // the validation in popConnection will discard it
+      log.debug("Bad connection. Could not roll back");
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Claimed overdue connection " + oldestActiveConnection.getRealHashCode() + ".");
+    }
+    return oldestEntry;
+  }
+
+  private void discard(PoolEntry entry) {
+    if (!bag.remove(entry)) {
+      return;
+    }
+    totalConnections.decrementAndGet();
+    try {
+      entry.getRealConnection().close();
+    } catch (SQLException e) {
+      // ignore
+    }
+    if (bag.getWaitingThreadCount() > 0) {
+      // the freed slot would otherwise only be noticed when a waiter times out
+      try {
+        createEntry(ConcurrentBag.Entry.STATE_NOT_IN_USE);
+      } catch (SQLException e) {
+        log.debug("Could not create a connection for a waiting thread: " + e.getMessage());
+      }
+    }
+  }
+
+}
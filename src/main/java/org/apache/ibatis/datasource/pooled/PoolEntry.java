@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A physical connection held by the {@link ConcurrentBag} of a {@link PooledDataSource}.
+ * <p>
+ * A new {@link PooledConnection} is handed out for every checkout so that a closed proxy can never reach the
+ * physical connection again. The entry keeps track of the handle currently checked out; whoever swaps it
+ * (the returning thread or a thread claiming an overdue connection) owns the entry.
+ */
+class PoolEntry extends ConcurrentBag.Entry {
+
+  private final Connection realConnection;
+  private final PreparedStatementCache statementCache;
+  private final AtomicReference<PooledConnection> checkedOut = new AtomicReference<>();
+  private final long createdTimestamp;
+  private volatile long lastUsedTimestamp;
+
+  PoolEntry(Connection realConnection, PreparedStatementCache statementCache, int initialState) {
+    super(initialState);
+    this.realConnection = realConnection;
+    this.statementCache = statementCache;
+    this.createdTimestamp = System.currentTimeMillis();
+    this.lastUsedTimestamp = createdTimestamp;
+  }
+
+  Connection getRealConnection() {
+    return realConnection;
+  }
+
+  PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  PooledConnection getCheckedOut() {
+    return checkedOut.get();
+  }
+
+  void setCheckedOut(PooledConnection conn) {
+    checkedOut.set(conn);
+  }
+
+  boolean compareAndSetCheckedOut(PooledConnection expect, PooledConnection update) {
+    return checkedOut.compareAndSet(expect, update);
+  }
+
+  long getCreatedTimestamp() {
+    return createdTimestamp;
+  }
+
+  long getLastUsedTimestamp() {
+    return lastUsedTimestamp;
+  }
+
+  void setLastUsedTimestamp(long lastUsedTimestamp) {
+    this.lastUsedTimestamp = lastUsedTimestamp;
+  }
+
+}
@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Runs the periodic maintenance of the {@link PooledDataSource}s on a single shared daemon thread.
+ * <p>
+ * The task only keeps a weak reference to its data source so that an abandoned pool can still be garbage collected
+ * (and its connections closed by the finalizer); the task cancels itself once that happened.
+ */
+final class PoolHousekeeper implements Runnable {
+
+  private static final Log log = LogFactory.getLog(PooledDataSource.class);
+
+  private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "mybatis-pool-housekeeper");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final WeakReference<PooledDataSource> dataSource;
+  private final Consumer<PooledDataSource> task;
+  private volatile ScheduledFuture<?> future;
+
+  private PoolHousekeeper(PooledDataSource dataSource, Consumer<PooledDataSource> task) {
+    this.dataSource = new WeakReference<>(dataSource);
+    this.task = task;
+  }
+
+  static PoolHousekeeper schedule(PooledDataSource dataSource, long periodMillis) {
+    return schedule(dataSource, periodMillis, PooledDataSource::housekeep);
+  }
+
+  static PoolHousekeeper schedule(PooledDataSource dataSource, long periodMillis, Consumer<PooledDataSource> task) {
+    PoolHousekeeper housekeeper = new PoolHousekeeper(dataSource, task);
+    housekeeper.future = scheduler.scheduleWithFixedDelay(housekeeper, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    return housekeeper;
+  }
+
+  void cancel() {
+    ScheduledFuture<?> f = future;
+    if (f != null) {
+      f.cancel(false);
+    }
+  }
+
+  @Override
+  public void run() {
+    PooledDataSource ds = dataSource.get();
+    if (ds == null) {
+      cancel();
+      return;
+    }
+    try {
+      task.accept(ds);
+    } catch (RuntimeException e) {
+      log.warn("Pool housekeeping failed: " + e.getMessage());
+    }
+  }
+
+}
@@ -0,0 +1,68 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * Receives the timings measured by a {@link PooledDataSource}, e.g. to feed an external metrics registry.
+ * <p>
+ * Callbacks run on the thread checking out, returning or creating the connection (or on the pool housekeeping
+ * thread for leaks) and must therefore be cheap and must not throw.
+ *
+ * @since 3.5.4
+ * @see PooledDataSource#setPoolMetricsListener(PoolMetricsListener)
+ */
+public interface PoolMetricsListener {
+
+  /**
+   * Called when a connection has been checked out.
+   *
+   * @param waitNanos the time spent in {@code getConnection()}
+   */
+  default void connectionCheckedOut(long waitNanos) {
+    // NOP
+  }
+
+  /**
+   * Called when a connection has been returned to the pool or claimed as overdue.
+   *
+   * @param holdNanos the time the connection was checked out
+   */
+  default void connectionReturned(long holdNanos) {
+    // NOP
+  }
+
+  /**
+   * Called when a physical connection has been opened.
+   *
+   * @param creationNanos the time it took to open the connection
+   */
+  default void connectionCreated(long creationNanos) {
+    // NOP
+  }
+
+  /**
+   * Called once for every connection kept checked out longer than the leak detection threshold.
+   *
+   * @param heldMillis the time the connection has been checked out so far
+   * @param threadName the name of the thread that checked the connection out
+   * @param checkoutStackTrace where the connection was checked out, or null if the stack trace was not sampled
+   * @see PooledDataSource#setPoolLeakDetectionThreshold(int)
+   */
+  default void connectionLeakDetected(long heldMillis, String threadName, Throwable checkoutStackTrace) {
+    // NOP
+  }
+
+}
@@ -17,11 +17,14 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 /**
  * @author Clinton Begin
  */
-public class PoolState {
+public class PoolState implements PoolStateMXBean {
 
   protected PooledDataSource dataSource;
 
@@ -35,55 +38,248 @@ public class PoolState {
   protected long accumulatedWaitTime = 0;
   protected long hadToWaitCount = 0;
   protected long badConnectionCount = 0;
+  // counted without the pool lock, added to the fields above by the getters
+  final Counters counters = new Counters();
+  protected final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+  protected final LatencyHistogram holdTimeHistogram = new LatencyHistogram();
+  protected final LatencyHistogram creationTimeHistogram = new LatencyHistogram();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  void recordCheckout(long waitNanos) {
+    waitTimeHistogram.record(waitNanos);
+    PoolMetricsListener listener = dataSource.poolMetricsListener;
+    if (listener != null) {
+      listener.connectionCheckedOut(waitNanos);
+    }
   }
 
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  void recordReturn(long holdNanos) {
+    holdTimeHistogram.record(holdNanos);
+    PoolMetricsListener listener = dataSource.poolMetricsListener;
+    if (listener != null) {
+      listener.connectionReturned(holdNanos);
+    }
   }
 
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  void recordCreation(long creationNanos) {
+    creationTimeHistogram.record(creationNanos);
+    PoolMetricsListener listener = dataSource.poolMetricsListener;
+    if (listener != null) {
+      listener.connectionCreated(creationNanos);
+    }
+  }
+
+  @Override
+  public long getRequestCount() {
+    return locked(() -> requestCount + counters.requestCount.sum());
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    return locked(() -> average(accumulatedRequestTime + counters.accumulatedRequestTime.sum(),
+        requestCount + counters.requestCount.sum()));
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    return locked(() -> average(getAccumulatedWaitTime(), hadToWaitCount + counters.hadToWaitCount.sum()));
+
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return locked(() -> hadToWaitCount + counters.hadToWaitCount.sum());
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return locked(() -> badConnectionCount + counters.badConnectionCount.sum());
+  }
+
+  @Override
+  public long getStatementCacheHitCount() {
+    return counters.statementCacheHitCount.sum();
+  }
+
+  @Override
+  public long getStatementCacheMissCount() {
+    return counters.statementCacheMissCount.sum();
+  }
+
+  /**
+   * Describes the connections currently checked out for longer than the leak detection threshold.
+   *
+   * @return the descriptions, empty when the leak detection is disabled
+   * @since 3.5.4
+   * @see PooledDataSource#setPoolLeakDetectionThreshold(int)
+   */
+  @Override
+  public String[] getLeakSuspects() {
+    return dataSource.getLeakSuspects();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return locked(() -> claimedOverdueConnectionCount + counters.claimedOverdueConnectionCount.sum());
+  }
 
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    return locked(() -> average(
+        accumulatedCheckoutTimeOfOverdueConnections + counters.accumulatedCheckoutTimeOfOverdueConnections.sum(),
+        claimedOverdueConnectionCount + counters.claimedOverdueConnectionCount.sum()));
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  @Override
+  public long getAverageCheckoutTime() {
+    return locked(() -> average(getAccumulatedCheckoutTime(), requestCount + counters.requestCount.sum()));
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  long getAccumulatedWaitTime() {
+    return locked(() -> accumulatedWaitTime + counters.accumulatedWaitTime.sum());
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  long getAccumulatedCheckoutTime() {
+    return locked(() -> accumulatedCheckoutTime + counters.accumulatedCheckoutTime.sum());
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  /**
+   * Reads the fields above under the lock of the pool, which guards their updates.
+   */
+  private long locked(LongSupplier supplier) {
+    dataSource.lock.lock();
+    try {
+      return supplier.getAsLong();
+    } finally {
+      dataSource.lock.unlock();
+    }
   }
 
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  private static long average(long total, long count) {
+    return count == 0 ? 0 : total / count;
   }
 
 
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  @Override
+  public int getIdleConnectionCount() {
+    if (dataSource.poolConcurrentBagEnabled) {
+      return dataSource.getConcurrentPool().getIdleConnectionCount();
+    }
+    dataSource.lock.lock();
+    try {
+      return idleConnections.size();
+    } finally {
+      dataSource.lock.unlock();
+    }
   }
 
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  @Override
+  public int getActiveConnectionCount() {
+    if (dataSource.poolConcurrentBagEnabled) {
+      return dataSource.getConcurrentPool().getActiveConnectionCount();
+    }
+    dataSource.lock.lock();
+    try {
+      return activeConnections.size();
+    } finally {
+      dataSource.lock.unlock();
+    }
   }
 
+  /**
+   * Returns the number of connections the pool may open at the moment.
+   *
+   * @return the active connection limit
+   * @since 3.5.4
+   * @see PooledDataSource#getActiveConnectionLimit()
+   */
   @Override
-  public synchronized String toString() {
+  public int getActiveConnectionLimit() {
+    return dataSource.getActiveConnectionLimit();
+  }
+
+  /**
+   * Returns the time spent in {@code getConnection()}, including the wait for a connection to be returned.
+   *
+   * @return the histogram
+   * @since 3.5.4
+   */
+  public LatencyHistogram getWaitTimeHistogram() {
+    return waitTimeHistogram;
+  }
+
+  /**
+   * Returns the time connections are kept checked out.
+   *
+   * @return the histogram
+   * @since 3.5.4
+   */
+  public LatencyHistogram getHoldTimeHistogram() {
+    return holdTimeHistogram;
+  }
+
+  /**
+   * Returns the time it takes to open a physical connection.
+   *
+   * @return the histogram
+   * @since 3.5.4
+   */
+  public LatencyHistogram getCreationTimeHistogram() {
+    return creationTimeHistogram;
+  }
+
+  @Override
+  public long getWaitTimeP50Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(waitTimeHistogram.getPercentile(50));
+  }
+
+  @Override
+  public long getWaitTimeP99Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(waitTimeHistogram.getPercentile(99));
+  }
+
+  @Override
+  public long getWaitTimeMaxMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(waitTimeHistogram.getMax());
+  }
+
+  @Override
+  public long getHoldTimeP50Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(holdTimeHistogram.getPercentile(50));
+  }
+
+  @Override
+  public long getHoldTimeP99Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(holdTimeHistogram.getPercentile(99));
+  }
+
+  @Override
+  public long getHoldTimeMaxMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(holdTimeHistogram.getMax());
+  }
+
+  @Override
+  public long getCreationTimeP99Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(creationTimeHistogram.getPercentile(99));
+  }
+
+  @Override
+  public long getCreationTimeMaxMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(creationTimeHistogram.getMax());
+  }
+
+  @Override
+  public void resetHistograms() {
+    waitTimeHistogram.reset();
+    holdTimeHistogram.reset();
+    creationTimeHistogram.reset();
+  }
+
+  @Override
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -97,9 +293,18 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolConcurrentBagEnabled       ").append(dataSource.poolConcurrentBagEnabled);
+    builder.append("\n poolHousekeepingPeriod         ").append(dataSource.poolHousekeepingPeriod);
+    builder.append("\n poolIdleTimeout                ").append(dataSource.poolIdleTimeout);
+    builder.append("\n poolMaxLifetime                ").append(dataSource.poolMaxLifetime);
+    builder.append("\n poolMinimumIdleConnections     ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolPreparedStatementCacheSize ").append(dataSource.poolPreparedStatementCacheSize);
+    builder.append("\n poolLeakDetectionThreshold     ").append(dataSource.poolLeakDetectionThreshold);
+    builder.append("\n poolAdaptiveSizingPeriod       ").append(dataSource.poolAdaptiveSizingPeriod);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
+    builder.append("\n activeConnectionLimit          ").append(getActiveConnectionLimit());
     builder.append("\n requestCount                   ").append(getRequestCount());
     builder.append("\n averageRequestTime             ").append(getAverageRequestTime());
     builder.append("\n averageCheckoutTime            ").append(getAverageCheckoutTime());
@@ -108,8 +313,29 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n statementCacheHits             ").append(getStatementCacheHitCount());
+    builder.append("\n statementCacheMisses           ").append(getStatementCacheMissCount());
+    builder.append("\n waitTime                       ").append(waitTimeHistogram);
+    builder.append("\n holdTime                       ").append(holdTimeHistogram);
+    builder.append("\n creationTime                   ").append(creationTimeHistogram);
     builder.append("\n===============================================================");
     return builder.toString();
   }
 
+  /**
+   * The statistics counted by the concurrent bag checkout and the statement caches, which do not hold the pool lock.
+   */
+  static final class Counters {
+    final LongAdder requestCount = new LongAdder();
+    final LongAdder accumulatedRequestTime = new LongAdder();
+    final LongAdder accumulatedCheckoutTime = new LongAdder();
+    final LongAdder claimedOverdueConnectionCount = new LongAdder();
+    final LongAdder accumulatedCheckoutTimeOfOverdueConnections = new LongAdder();
+    final LongAdder accumulatedWaitTime = new LongAdder();
+    final LongAdder hadToWaitCount = new LongAdder();
+    final LongAdder badConnectionCount = new LongAdder();
+    final LongAdder statementCacheHitCount = new LongAdder();
+    final LongAdder statementCacheMissCount = new LongAdder();
+  }
+
 }
@@ -0,0 +1,76 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * The statistics of a {@link PooledDataSource} as exposed through JMX. Times are in milliseconds unless the attribute
+ * name says otherwise.
+ *
+ * @since 3.5.4
+ * @see PooledDataSource#setPoolJmxName(String)
+ */
+public interface PoolStateMXBean {
+
+  long getRequestCount();
+
+  long getAverageRequestTime();
+
+  long getAverageWaitTime();
+
+  long getHadToWaitCount();
+
+  long getBadConnectionCount();
+
+  long getClaimedOverdueConnectionCount();
+
+  long getStatementCacheHitCount();
+
+  long getStatementCacheMissCount();
+
+  String[] getLeakSuspects();
+
+  long getAverageOverdueCheckoutTime();
+
+  long getAverageCheckoutTime();
+
+  int getIdleConnectionCount();
+
+  int getActiveConnectionCount();
+
+  int getActiveConnectionLimit();
+
+  long getWaitTimeP50Micros();
+
+  long getWaitTimeP99Micros();
+
+  long getWaitTimeMaxMicros();
+
+  long getHoldTimeP50Micros();
+
+  long getHoldTimeP99Micros();
+
+  long getHoldTimeMaxMicros();
+
+  long getCreationTimeP99Micros();
+
+  long getCreationTimeMaxMicros();
+
+  /**
+   * Clears the wait, hold and creation time histograms.
+   */
+  void resetHistograms();
+
+}
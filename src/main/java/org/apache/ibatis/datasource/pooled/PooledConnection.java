@@ -35,11 +35,17 @@ class PooledConnection implements InvocationHandler {
   private final PooledDataSource dataSource;
   private final Connection realConnection;
   private final Connection proxyConnection;
-  private long checkoutTimestamp;
+  private volatile long checkoutTimestamp;
+  private volatile long checkoutNanoTime;
   private long createdTimestamp;
   private long lastUsedTimestamp;
   private int connectionTypeCode;
-  private boolean valid;
+  private volatile boolean valid;
+  private PoolEntry poolEntry;
+  private PreparedStatementCache statementCache;
+  private String checkoutThreadName;
+  private Throwable checkoutStackTrace;
+  private volatile boolean leakReported;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -199,6 +205,97 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /**
+   * Getter for the bag entry this connection was borrowed from (only when the concurrent bag is enabled).
+   *
+   * @return the entry or null
+   */
+  PoolEntry getPoolEntry() {
+    return poolEntry;
+  }
+
+  /**
+   * Setter for the bag entry this connection was borrowed from.
+   *
+   * @param poolEntry the entry
+   */
+  void setPoolEntry(PoolEntry poolEntry) {
+    this.poolEntry = poolEntry;
+  }
+
+  /**
+   * Getter for the statement cache of the physical connection.
+   *
+   * @return the cache or null when statements are not cached
+   */
+  PreparedStatementCache getStatementCache() {
+    return statementCache;
+  }
+
+  /**
+   * Setter for the statement cache of the physical connection.
+   *
+   * @param statementCache the cache
+   */
+  void setStatementCache(PreparedStatementCache statementCache) {
+    this.statementCache = statementCache;
+  }
+
+  /**
+   * Getter for the name of the thread that checked this connection out (only when leak detection is enabled).
+   *
+   * @return the thread name or null
+   */
+  String getCheckoutThreadName() {
+    return checkoutThreadName;
+  }
+
+  /**
+   * Getter for the stack trace of the checkout (only when leak detection is enabled and the checkout was sampled).
+   *
+   * @return the stack trace or null
+   */
+  Throwable getCheckoutStackTrace() {
+    return checkoutStackTrace;
+  }
+
+  /**
+   * Records who checked this connection out.
+   *
+   * @param threadName the name of the thread
+   * @param stackTrace the stack trace, null if not sampled
+   */
+  void setCheckoutTrace(String threadName, Throwable stackTrace) {
+    this.checkoutThreadName = threadName;
+    this.checkoutStackTrace = stackTrace;
+  }
+
+  boolean isLeakReported() {
+    return leakReported;
+  }
+
+  void setLeakReported(boolean leakReported) {
+    this.leakReported = leakReported;
+  }
+
+  /**
+   * Setter for the {@link System#nanoTime()} at which this connection was checked out.
+   *
+   * @param nanoTime the nano time
+   */
+  void setCheckoutNanoTime(long nanoTime) {
+    this.checkoutNanoTime = nanoTime;
+  }
+
+  /**
+   * Getter for the time that this connection has been checked out, in nanoseconds.
+   *
+   * @return the time
+   */
+  long getCheckoutNanos() {
+    return System.nanoTime() - checkoutNanoTime;
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
@@ -241,6 +338,9 @@ class PooledConnection implements InvocationHandler {
         // issue #579 toString() should never fail
         // throw an SQLException instead of a Runtime
         checkConnection();
+        if (statementCache != null && PreparedStatementCache.isCacheable(method)) {
+          return statementCache.prepare(realConnection, proxyConnection, method, args);
+        }
       }
       return method.invoke(realConnection, args);
     } catch (Throwable t) {
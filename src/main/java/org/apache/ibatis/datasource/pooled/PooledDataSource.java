@@ -16,17 +16,36 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.sql.DataSource;
 
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -40,8 +59,14 @@ public class PooledDataSource implements DataSource {
 
   private static final Log log = LogFactory.getLog(PooledDataSource.class);
 
+  // a monitor would pin virtual threads while they open connections or wait for one
+  final Lock lock = new ReentrantLock();
+  private final Condition condition = lock.newCondition();
+
   private final PoolState state = new PoolState(this);
 
+  private final ConcurrentConnectionPool concurrentPool = new ConcurrentConnectionPool(this, state);
+
   private final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
@@ -53,8 +78,32 @@ public class PooledDataSource implements DataSource {
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  protected boolean poolConcurrentBagEnabled;
+  protected int poolHousekeepingPeriod;
+  protected int poolIdleTimeout;
+  protected int poolMaxLifetime;
+  protected int poolMinimumIdleConnections;
+  protected String poolJmxName;
+  protected volatile PoolMetricsListener poolMetricsListener;
+  protected boolean poolWarmUpEnabled;
+  protected int poolPreparedStatementCacheSize;
+  protected int poolLeakDetectionThreshold;
+  protected int poolLeakDetectionSampleRate = 1;
+  protected int poolAdaptiveSizingPeriod;
+  protected int poolAdaptiveMinimumActiveConnections = 1;
+  protected int poolAdaptiveTargetWaitTime = 10;
 
   private int expectedConnectionTypeCode;
+  // idle connections taken out of the list by the housekeeping to be pinged, guarded by the lock
+  private int pingingConnectionCount;
+  private PoolHousekeeper housekeeper;
+  private PoolHousekeeper leakDetector;
+  private PoolHousekeeper adaptiveSizingTask;
+  private volatile AdaptivePoolSizer poolSizer;
+  private ObjectName registeredObjectName;
+  private volatile boolean warmedUp;
+  // resets since the background warm-up last started, a thread runs while it is not zero
+  private final AtomicInteger pendingWarmUps = new AtomicInteger();
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -247,6 +296,171 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * Determines if connections are checked out and returned through a lock-free concurrent bag instead of the pool
+   * lock. Recommended when many threads compete for connections.
+   *
+   * @param poolConcurrentBagEnabled True to use the concurrent bag
+   * @since 3.5.4
+   */
+  public void setPoolConcurrentBagEnabled(boolean poolConcurrentBagEnabled) {
+    this.poolConcurrentBagEnabled = poolConcurrentBagEnabled;
+    forceCloseAll();
+  }
+
+  /**
+   * How often the idle connections are maintained by a background task: connections past
+   * {@link #setPoolIdleTimeout(int)} or {@link #setPoolMaxLifetime(int)} are closed, connections not used for
+   * {@link #setPoolPingConnectionsNotUsedFor(int)} are pinged and the pool is topped up to
+   * {@link #setPoolMinimumIdleConnections(int)}. While it is enabled, checkouts never run the ping query.
+   *
+   * @param milliseconds the period in milliseconds, 0 to disable the background task
+   * @since 3.5.4
+   */
+  public void setPoolHousekeepingPeriod(int milliseconds) {
+    this.poolHousekeepingPeriod = milliseconds;
+    scheduleHousekeeping();
+  }
+
+  /**
+   * The time an idle connection is kept in the pool before the background task closes it, as long as there are more
+   * than {@link #setPoolMinimumIdleConnections(int)} idle connections.
+   *
+   * @param milliseconds the idle timeout in milliseconds, 0 to keep idle connections forever
+   * @since 3.5.4
+   */
+  public void setPoolIdleTimeout(int milliseconds) {
+    this.poolIdleTimeout = milliseconds;
+  }
+
+  /**
+   * The maximum age of a connection. Idle connections older than this are closed by the background task.
+   *
+   * @param milliseconds the maximum lifetime in milliseconds, 0 for no limit
+   * @since 3.5.4
+   */
+  public void setPoolMaxLifetime(int milliseconds) {
+    this.poolMaxLifetime = milliseconds;
+  }
+
+  /**
+   * The number of idle connections the background task tries to keep in the pool.
+   *
+   * @param poolMinimumIdleConnections The minimum number of idle connections
+   * @since 3.5.4
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+  }
+
+  /**
+   * Registers the {@link PoolState} of this pool as a {@link PoolStateMXBean} in the platform MBean server under
+   * {@code org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=<name>}.
+   *
+   * @param poolJmxName the name of the pool, null to unregister
+   * @since 3.5.4
+   */
+  public void setPoolJmxName(String poolJmxName) {
+    this.poolJmxName = poolJmxName;
+    registerMBean();
+  }
+
+  /**
+   * Sets a listener receiving the checkout wait, hold and connection creation times.
+   *
+   * @param poolMetricsListener the listener, null to remove it
+   * @since 3.5.4
+   */
+  public void setPoolMetricsListener(PoolMetricsListener poolMetricsListener) {
+    this.poolMetricsListener = poolMetricsListener;
+  }
+
+  /**
+   * Determines if the pool is filled up to {@link #setPoolMinimumIdleConnections(int)} with connections opened in
+   * parallel when it is initialized by {@link PooledDataSourceFactory} and after {@link #forceCloseAll()}.
+   *
+   * @param poolWarmUpEnabled True to warm up the pool
+   * @since 3.5.4
+   * @see #warmUp()
+   */
+  public void setPoolWarmUpEnabled(boolean poolWarmUpEnabled) {
+    this.poolWarmUpEnabled = poolWarmUpEnabled;
+  }
+
+  /**
+   * The number of prepared and callable statements cached per physical connection. Statements are closed in least
+   * recently used order once the cache is full. The cache survives the sessions, so a statement is prepared once per
+   * connection rather than once per session.
+   *
+   * @param poolPreparedStatementCacheSize The cache size, 0 to disable the cache
+   * @since 3.5.4
+   */
+  public void setPoolPreparedStatementCacheSize(int poolPreparedStatementCacheSize) {
+    this.poolPreparedStatementCacheSize = poolPreparedStatementCacheSize;
+    forceCloseAll();
+  }
+
+  /**
+   * Enables the leak detection: a background task reports (once) every connection kept checked out longer than the
+   * threshold, with the thread and, when sampled, the stack trace of the checkout. The current suspects are also
+   * listed by {@link PoolState#getLeakSuspects()}. Nothing is recorded on checkout while it is disabled.
+   *
+   * @param milliseconds the threshold in milliseconds, 0 to disable the leak detection
+   * @since 3.5.4
+   * @see #setPoolLeakDetectionSampleRate(int)
+   */
+  public void setPoolLeakDetectionThreshold(int milliseconds) {
+    this.poolLeakDetectionThreshold = milliseconds;
+    scheduleLeakDetection();
+  }
+
+  /**
+   * The stack trace of one checkout out of this number is captured for the leak detection, as capturing it on every
+   * checkout is costly.
+   *
+   * @param poolLeakDetectionSampleRate 1 to capture the stack trace of every checkout
+   * @since 3.5.4
+   */
+  public void setPoolLeakDetectionSampleRate(int poolLeakDetectionSampleRate) {
+    this.poolLeakDetectionSampleRate = poolLeakDetectionSampleRate;
+  }
+
+  /**
+   * Enables the adaptive sizing: every period, the number of connections the pool may open is moved between
+   * {@link #setPoolAdaptiveMinimumActiveConnections(int)} and {@link #setPoolMaximumActiveConnections(int)}. It grows
+   * when checkouts wait longer than {@link #setPoolAdaptiveTargetWaitTime(int)} and slowly shrinks while most
+   * connections stay idle, the idle connections above the limit being closed.
+   *
+   * @param milliseconds the period in milliseconds, 0 to always allow {@link #getPoolMaximumActiveConnections()}
+   * @since 3.5.4
+   * @see #getActiveConnectionLimit()
+   */
+  public void setPoolAdaptiveSizingPeriod(int milliseconds) {
+    this.poolAdaptiveSizingPeriod = milliseconds;
+    scheduleAdaptiveSizing();
+  }
+
+  /**
+   * The lower bound of the active connection limit when the adaptive sizing is enabled, and its initial value.
+   *
+   * @param poolAdaptiveMinimumActiveConnections The minimum number of active connections
+   * @since 3.5.4
+   */
+  public void setPoolAdaptiveMinimumActiveConnections(int poolAdaptiveMinimumActiveConnections) {
+    this.poolAdaptiveMinimumActiveConnections = poolAdaptiveMinimumActiveConnections;
+  }
+
+  /**
+   * The average time the checkouts that waited for a connection during a period may have waited before the adaptive
+   * sizing raises the active connection limit.
+   *
+   * @param milliseconds the target wait time in milliseconds
+   * @since 3.5.4
+   */
+  public void setPoolAdaptiveTargetWaitTime(int milliseconds) {
+    this.poolAdaptiveTargetWaitTime = milliseconds;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -314,11 +528,123 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public boolean isPoolConcurrentBagEnabled() {
+    return poolConcurrentBagEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isPoolWarmUpEnabled() {
+    return poolWarmUpEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolPreparedStatementCacheSize() {
+    return poolPreparedStatementCacheSize;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolLeakDetectionThreshold() {
+    return poolLeakDetectionThreshold;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolLeakDetectionSampleRate() {
+    return poolLeakDetectionSampleRate;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolAdaptiveSizingPeriod() {
+    return poolAdaptiveSizingPeriod;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolAdaptiveMinimumActiveConnections() {
+    return poolAdaptiveMinimumActiveConnections;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolAdaptiveTargetWaitTime() {
+    return poolAdaptiveTargetWaitTime;
+  }
+
+  /**
+   * Returns the number of connections the pool may open at the moment: the one chosen by the adaptive sizing when it
+   * is enabled, {@link #getPoolMaximumActiveConnections()} otherwise.
+   *
+   * @return the active connection limit
+   * @since 3.5.4
+   */
+  public int getActiveConnectionLimit() {
+    AdaptivePoolSizer sizer = poolSizer;
+    return sizer == null ? poolMaximumActiveConnections : sizer.getLimit();
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public String getPoolJmxName() {
+    return poolJmxName;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public PoolMetricsListener getPoolMetricsListener() {
+    return poolMetricsListener;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolHousekeepingPeriod() {
+    return poolHousekeepingPeriod;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolIdleTimeout() {
+    return poolIdleTimeout;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolMaxLifetime() {
+    return poolMaxLifetime;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
   /**
    * Closes all active and idle connections in the pool.
    */
   public void forceCloseAll() {
-    synchronized (state) {
+    concurrentPool.closeAll();
+    lock.lock();
+    try {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
@@ -348,31 +674,108 @@ public class PooledDataSource implements DataSource {
           // ignore
         }
       }
+    } finally {
+      lock.unlock();
     }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
     }
+    if (poolWarmUpEnabled && warmedUp && pendingWarmUps.getAndIncrement() == 0) {
+      Thread thread = new Thread(this::warmUpInBackground, "mybatis-pool-warm-up");
+      thread.setDaemon(true);
+      thread.start();
+    }
+  }
+
+  private void warmUpInBackground() {
+    int handled;
+    do {
+      handled = pendingWarmUps.get();
+      if (poolWarmUpEnabled && warmedUp) {
+        warmUp();
+      }
+    } while (!pendingWarmUps.compareAndSet(handled, 0));
+  }
+
+  /**
+   * Stops the background tasks of this data source (housekeeping, leak detection and adaptive sizing), removes it from
+   * JMX and closes all its connections. Call it when the data source is discarded, e.g. when an application is
+   * undeployed, as the tasks otherwise keep running until the data source is garbage collected. Setting the period of
+   * a task again restarts it.
+   *
+   * @since 3.5.4
+   */
+  public void close() {
+    synchronized (this) {
+      if (housekeeper != null) {
+        housekeeper.cancel();
+        housekeeper = null;
+      }
+      if (leakDetector != null) {
+        leakDetector.cancel();
+        leakDetector = null;
+      }
+      if (adaptiveSizingTask != null) {
+        adaptiveSizingTask.cancel();
+        adaptiveSizingTask = null;
+      }
+      poolSizer = null;
+      unregisterMBean();
+    }
+    warmedUp = false;
+    forceCloseAll();
   }
 
   public PoolState getPoolState() {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
+  int getExpectedConnectionTypeCode() {
+    return expectedConnectionTypeCode;
+  }
+
+  Connection openRealConnection() throws SQLException {
+    long start = System.nanoTime();
+    Connection realConn = dataSource.getConnection();
+    state.recordCreation(System.nanoTime() - start);
+    return realConn;
+  }
+
+  PreparedStatementCache newStatementCache() {
+    return poolPreparedStatementCacheSize > 0 ? new PreparedStatementCache(poolPreparedStatementCacheSize, state) : null;
+  }
+
+  ConcurrentConnectionPool getConcurrentPool() {
+    return concurrentPool;
+  }
+
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    if (conn.isLeakReported()) {
+      log.warn("Previously reported leaked connection " + conn.getRealHashCode() + " was returned after "
+          + conn.getCheckoutTime() + " milliseconds.");
+    }
+    if (conn.getPoolEntry() != null) {
+      concurrentPool.pushConnection(conn);
+      return;
+    }
 
-    synchronized (state) {
+    lock.lock();
+    try {
       state.activeConnections.remove(conn);
       if (conn.isValid()) {
         if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordReturn(conn.getCheckoutNanos());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
           PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          newConn.setStatementCache(conn.getStatementCache());
+          newConn.setConnectionTypeCode(conn.getConnectionTypeCode());
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
@@ -380,9 +783,10 @@ public class PooledDataSource implements DataSource {
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
-          state.notifyAll();
+          condition.signalAll();
         } else {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordReturn(conn.getCheckoutNanos());
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
           }
@@ -398,17 +802,417 @@ public class PooledDataSource implements DataSource {
         }
         state.badConnectionCount++;
       }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  boolean isHousekeepingEnabled() {
+    return poolHousekeepingPeriod > 0;
+  }
+
+  boolean isEvictable(long age, long timeElapsedSinceLastUse, int idleConnectionCount) {
+    return (poolMaxLifetime > 0 && age > poolMaxLifetime)
+        || (poolIdleTimeout > 0 && timeElapsedSinceLastUse > poolIdleTimeout && idleConnectionCount > poolMinimumIdleConnections);
+  }
+
+  int getTargetIdleConnectionCount() {
+    return Math.min(poolMinimumIdleConnections, poolMaximumIdleConnections);
+  }
+
+  private synchronized void registerMBean() {
+    unregisterMBean();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (poolJmxName != null) {
+        ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=" + ObjectName.quote(poolJmxName));
+        server.registerMBean(state, name);
+        registeredObjectName = name;
+      }
+    } catch (JMException e) {
+      throw new DataSourceException("Error registering the pool '" + poolJmxName + "' in JMX. Cause: " + e, e);
+    }
+  }
+
+  private synchronized void unregisterMBean() {
+    if (registeredObjectName == null) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      if (server.isRegistered(registeredObjectName)) {
+        server.unregisterMBean(registeredObjectName);
+      }
+    } catch (JMException e) {
+      throw new DataSourceException("Error unregistering the pool '" + poolJmxName + "' from JMX. Cause: " + e, e);
+    } finally {
+      registeredObjectName = null;
+    }
+  }
+
+  private synchronized void scheduleHousekeeping() {
+    if (housekeeper != null) {
+      housekeeper.cancel();
+      housekeeper = null;
+    }
+    if (isHousekeepingEnabled()) {
+      housekeeper = PoolHousekeeper.schedule(this, poolHousekeepingPeriod);
+    }
+  }
+
+  private synchronized void scheduleLeakDetection() {
+    if (leakDetector != null) {
+      leakDetector.cancel();
+      leakDetector = null;
+    }
+    if (poolLeakDetectionThreshold > 0) {
+      leakDetector = PoolHousekeeper.schedule(this, Math.max(1, poolLeakDetectionThreshold / 2), PooledDataSource::detectLeaks);
+    }
+  }
+
+  private synchronized void scheduleAdaptiveSizing() {
+    if (adaptiveSizingTask != null) {
+      adaptiveSizingTask.cancel();
+      adaptiveSizingTask = null;
+    }
+    if (poolAdaptiveSizingPeriod > 0) {
+      poolSizer = new AdaptivePoolSizer(this, state);
+      adaptiveSizingTask = PoolHousekeeper.schedule(this, poolAdaptiveSizingPeriod, PooledDataSource::adjustPoolSize);
+    } else {
+      poolSizer = null;
+      wakeUpWaitingThreads();
+    }
+  }
+
+  /**
+   * Lets the adaptive sizing move the active connection limit. Threads waiting for a connection are woken up when it
+   * grows, the idle connections above it are closed when it shrinks.
+   */
+  void adjustPoolSize() {
+    AdaptivePoolSizer sizer = poolSizer;
+    if (sizer == null) {
+      return;
+    }
+    int previous = sizer.getLimit();
+    int limit = sizer.adjust(state.getActiveConnectionCount());
+    if (limit > previous) {
+      wakeUpWaitingThreads();
+    } else if (limit < previous) {
+      closeExcessIdleConnections(limit);
+    }
+  }
+
+  private void wakeUpWaitingThreads() {
+    if (poolConcurrentBagEnabled) {
+      concurrentPool.addConnectionsForWaitingThreads();
+      return;
+    }
+    lock.lock();
+    try {
+      condition.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void closeExcessIdleConnections(int limit) {
+    if (poolConcurrentBagEnabled) {
+      concurrentPool.closeExcessIdleConnections(limit);
+      return;
+    }
+    List<PooledConnection> excess = new ArrayList<>();
+    lock.lock();
+    try {
+      while (!state.idleConnections.isEmpty()
+          && state.idleConnections.size() + state.activeConnections.size() > limit) {
+        excess.add(state.idleConnections.remove(state.idleConnections.size() - 1));
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (PooledConnection conn : excess) {
+      conn.invalidate();
+      closeQuietly(conn.getRealConnection());
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + " above the active connection limit.");
+      }
+    }
+  }
+
+  /**
+   * Records who checks the connection out when the leak detection is enabled.
+   */
+  void traceCheckout(PooledConnection conn) {
+    if (poolLeakDetectionThreshold > 0) {
+      int sampleRate = poolLeakDetectionSampleRate;
+      Throwable stackTrace = sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0
+          ? new Throwable("Connection checked out here") : null;
+      conn.setCheckoutTrace(Thread.currentThread().getName(), stackTrace);
+    }
+  }
+
+  /**
+   * Reports the connections checked out for longer than the leak detection threshold that were not reported yet.
+   */
+  void detectLeaks() {
+    long threshold = poolLeakDetectionThreshold;
+    if (threshold <= 0) {
+      return;
+    }
+    for (PooledConnection conn : getCheckedOutConnections()) {
+      if (!conn.isLeakReported() && conn.getCheckoutTime() > threshold) {
+        // connections checked out before the leak detection was enabled are not traced and skipped
+        reportLeak(conn);
+      }
+    }
+  }
+
+  String[] getLeakSuspects() {
+    long threshold = poolLeakDetectionThreshold;
+    if (threshold <= 0) {
+      return new String[0];
+    }
+    List<String> suspects = new ArrayList<>();
+    for (PooledConnection conn : getCheckedOutConnections()) {
+      long checkoutTime = conn.getCheckoutTime();
+      if (checkoutTime > threshold && conn.getCheckoutThreadName() != null) {
+        suspects.add("Connection " + conn.getRealHashCode() + " checked out for " + checkoutTime
+            + " milliseconds by thread " + conn.getCheckoutThreadName());
+      }
+    }
+    return suspects.toArray(new String[0]);
+  }
+
+  private List<PooledConnection> getCheckedOutConnections() {
+    if (poolConcurrentBagEnabled) {
+      return concurrentPool.getCheckedOutConnections();
+    }
+    lock.lock();
+    try {
+      return new ArrayList<>(state.activeConnections);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void reportLeak(PooledConnection conn) {
+    if (conn.isLeakReported() || conn.getCheckoutThreadName() == null) {
+      return;
+    }
+    conn.setLeakReported(true);
+    long heldMillis = conn.getCheckoutTime();
+    Throwable stackTrace = conn.getCheckoutStackTrace();
+    StringWriter message = new StringWriter();
+    message.append("Connection ").append(String.valueOf(conn.getRealHashCode())).append(" has been checked out for ")
+        .append(String.valueOf(heldMillis)).append(" milliseconds by thread ").append(conn.getCheckoutThreadName())
+        .append(", possible connection leak.");
+    if (stackTrace != null) {
+      message.append(' ');
+      stackTrace.printStackTrace(new PrintWriter(message));
+    }
+    log.warn(message.toString());
+    PoolMetricsListener listener = poolMetricsListener;
+    if (listener != null) {
+      listener.connectionLeakDetected(heldMillis, conn.getCheckoutThreadName(), stackTrace);
+    }
+  }
+
+  /**
+   * Reports an overdue connection about to be claimed as leaked, unless it was already reported.
+   */
+  void reportOverdueConnection(PooledConnection conn) {
+    if (poolLeakDetectionThreshold > 0) {
+      reportLeak(conn);
+    }
+  }
+
+  /**
+   * Maintains the idle connections: closes the expired ones, pings the ones not used for a while and opens new ones
+   * up to the minimum idle count. Nothing is done under the pool lock but moving connections in and out of the idle
+   * list.
+   */
+  void housekeep() {
+    if (poolConcurrentBagEnabled) {
+      concurrentPool.housekeep();
+    } else {
+      housekeepIdleConnections();
+    }
+    try {
+      while (addIdleConnection()) {
+        // keep going up to the minimum idle count
+      }
+    } catch (SQLException e) {
+      log.warn("Could not open an idle connection: " + e.getMessage());
+    }
+  }
+
+  private void housekeepIdleConnections() {
+    List<PooledConnection> evicted = new ArrayList<>();
+    List<PooledConnection> toValidate = new ArrayList<>();
+    lock.lock();
+    try {
+      int idleConnectionCount = state.idleConnections.size();
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext();) {
+        PooledConnection conn = it.next();
+        if (isEvictable(conn.getAge(), conn.getTimeElapsedSinceLastUse(), idleConnectionCount)) {
+          it.remove();
+          idleConnectionCount--;
+          evicted.add(conn);
+        } else if (needsPing(conn.getTimeElapsedSinceLastUse())) {
+          it.remove();
+          pingingConnectionCount++;
+          toValidate.add(conn);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (PooledConnection conn : evicted) {
+      conn.invalidate();
+      closeQuietly(conn.getRealConnection());
+      if (log.isDebugEnabled()) {
+        log.debug("Evicted connection " + conn.getRealHashCode() + ".");
+      }
+    }
+    for (PooledConnection conn : toValidate) {
+      boolean valid = executePingQuery(conn.getRealConnection());
+      boolean returned = false;
+      lock.lock();
+      try {
+        pingingConnectionCount--;
+        if (!valid) {
+          state.badConnectionCount++;
+        }
+        // the pool may have been reset or filled up while the connection was pinged
+        if (valid && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && state.idleConnections.size() < poolMaximumIdleConnections) {
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.idleConnections.add(conn);
+          returned = true;
+        }
+        condition.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      if (!returned) {
+        conn.invalidate();
+        closeQuietly(conn.getRealConnection());
+        if (valid && log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + " pinged while the pool changed.");
+        }
+      }
+    }
+  }
+
+  /**
+   * Opens a connection and adds it to the idle connections, unless there are enough of them already.
+   *
+   * @return true if a connection was added
+   * @throws SQLException if the connection could not be opened
+   */
+  boolean addIdleConnection() throws SQLException {
+    if (poolConcurrentBagEnabled) {
+      return concurrentPool.addIdleConnection();
+    }
+    lock.lock();
+    try {
+      if (state.idleConnections.size() >= getTargetIdleConnectionCount()
+          || state.idleConnections.size() + state.activeConnections.size() + pingingConnectionCount >= getActiveConnectionLimit()) {
+        return false;
+      }
+    } finally {
+      lock.unlock();
+    }
+    Connection realConn = openRealConnection();
+    lock.lock();
+    try {
+      if (state.idleConnections.size() < getTargetIdleConnectionCount()) {
+        PooledConnection conn = new PooledConnection(realConn, this);
+        conn.setStatementCache(newStatementCache());
+        conn.setConnectionTypeCode(expectedConnectionTypeCode);
+        state.idleConnections.add(conn);
+        condition.signalAll();
+        if (log.isDebugEnabled()) {
+          log.debug("Created idle connection " + realConn.hashCode() + ".");
+        }
+        return true;
+      }
+    } finally {
+      lock.unlock();
+    }
+    closeQuietly(realConn);
+    return false;
+  }
+
+  /**
+   * Opens connections in parallel until the pool holds {@link #getPoolMinimumIdleConnections()} idle connections
+   * (bounded by the maximum idle and active connections), so that the first requests do not have to wait for
+   * connections to be created one by one. Connections that cannot be opened are logged and skipped.
+   * <p>
+   * When {@link #setPoolWarmUpEnabled(boolean)} is set, this is done by {@link PooledDataSourceFactory} once the
+   * properties are set, and again in the background after the {@link #forceCloseAll()} calls that follow. Calls made
+   * while a background warm-up is running are collapsed into a single further warm-up.
+   *
+   * @since 3.5.4
+   */
+  public void warmUp() {
+    warmedUp = true;
+    int missing = Math.min(getTargetIdleConnectionCount() - state.getIdleConnectionCount(),
+        getActiveConnectionLimit() - state.getIdleConnectionCount() - state.getActiveConnectionCount());
+    if (missing <= 0) {
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(missing, runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-warm-up");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Boolean>> futures = new ArrayList<>(missing);
+      for (int i = 0; i < missing; i++) {
+        futures.add(executor.submit(this::addIdleConnection));
+      }
+      for (Future<Boolean> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          log.warn("Could not open a connection while warming up the pool: " + e.getCause().getMessage());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      executor.shutdown();
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("PooledDataSource warmed up with " + state.getIdleConnectionCount() + " idle connections.");
+    }
+  }
+
+  private void closeQuietly(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
     }
   }
 
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    if (poolConcurrentBagEnabled) {
+      return concurrentPool.popConnection(username, password);
+    }
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
+    long startNanos = System.nanoTime();
     int localBadConnectionCount = 0;
 
     while (conn == null) {
-      synchronized (state) {
+      lock.lock();
+      try {
         if (!state.idleConnections.isEmpty()) {
           // Pool has available connection
           conn = state.idleConnections.remove(0);
@@ -417,21 +1221,24 @@ public class PooledDataSource implements DataSource {
           }
         } else {
           // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
+          if (state.activeConnections.size() + pingingConnectionCount < getActiveConnectionLimit()) {
             // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
+            conn = new PooledConnection(openRealConnection(), this);
+            conn.setStatementCache(newStatementCache());
             if (log.isDebugEnabled()) {
               log.debug("Created connection " + conn.getRealHashCode() + ".");
             }
           } else {
             // Cannot create new connection
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
+            // all of them may be idle connections being pinged, which cannot be claimed
+            PooledConnection oldestActiveConnection = state.activeConnections.isEmpty() ? null : state.activeConnections.get(0);
+            long longestCheckoutTime = oldestActiveConnection == null ? 0 : oldestActiveConnection.getCheckoutTime();
+            if (oldestActiveConnection != null && longestCheckoutTime > poolMaximumCheckoutTime) {
               // Can claim overdue connection
               state.claimedOverdueConnectionCount++;
               state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
               state.accumulatedCheckoutTime += longestCheckoutTime;
+              state.recordReturn(oldestActiveConnection.getCheckoutNanos());
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
                 try {
@@ -449,9 +1256,11 @@ public class PooledDataSource implements DataSource {
                 }
               }
               conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+              conn.setStatementCache(oldestActiveConnection.getStatementCache());
               conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
               conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
               oldestActiveConnection.invalidate();
+              reportOverdueConnection(oldestActiveConnection);
               if (log.isDebugEnabled()) {
                 log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
               }
@@ -466,7 +1275,7 @@ public class PooledDataSource implements DataSource {
                   log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
                 }
                 long wt = System.currentTimeMillis();
-                state.wait(poolTimeToWait);
+                condition.await(poolTimeToWait, TimeUnit.MILLISECONDS);
                 state.accumulatedWaitTime += System.currentTimeMillis() - wt;
               } catch (InterruptedException e) {
                 break;
@@ -482,10 +1291,13 @@ public class PooledDataSource implements DataSource {
             }
             conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
             conn.setCheckoutTimestamp(System.currentTimeMillis());
+            conn.setCheckoutNanoTime(System.nanoTime());
             conn.setLastUsedTimestamp(System.currentTimeMillis());
+            traceCheckout(conn);
             state.activeConnections.add(conn);
             state.requestCount++;
             state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            state.recordCheckout(System.nanoTime() - startNanos);
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
@@ -501,6 +1313,8 @@ public class PooledDataSource implements DataSource {
             }
           }
         }
+      } finally {
+        lock.unlock();
       }
 
     }
@@ -533,37 +1347,43 @@ public class PooledDataSource implements DataSource {
       result = false;
     }
 
-    if (result) {
-      if (poolPingEnabled) {
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
-          try {
-            if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-            }
-            Connection realConn = conn.getRealConnection();
-            try (Statement statement = realConn.createStatement()) {
-              statement.executeQuery(poolPingQuery).close();
-            }
-            if (!realConn.getAutoCommit()) {
-              realConn.rollback();
-            }
-            result = true;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-            }
-          } catch (Exception e) {
-            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-            try {
-              conn.getRealConnection().close();
-            } catch (Exception e2) {
-              //ignore
-            }
-            result = false;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-            }
-          }
-        }
+    if (result && !isHousekeepingEnabled() && needsPing(conn.getTimeElapsedSinceLastUse())) {
+      // when housekeeping is enabled idle connections are pinged in the background instead
+      result = executePingQuery(conn.getRealConnection());
+    }
+    return result;
+  }
+
+  boolean needsPing(long timeElapsedSinceLastUse) {
+    return poolPingEnabled && poolPingConnectionsNotUsedFor >= 0 && timeElapsedSinceLastUse > poolPingConnectionsNotUsedFor;
+  }
+
+  boolean executePingQuery(Connection realConn) {
+    boolean result;
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Testing connection " + realConn.hashCode() + " ...");
+      }
+      try (Statement statement = realConn.createStatement()) {
+        statement.executeQuery(poolPingQuery).close();
+      }
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      result = true;
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " is GOOD!");
+      }
+    } catch (Exception e) {
+      log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+      try {
+        realConn.close();
+      } catch (Exception e2) {
+        //ignore
+      }
+      result = false;
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
       }
     }
     return result;
@@ -587,7 +1407,7 @@ public class PooledDataSource implements DataSource {
 
   @Override
   protected void finalize() throws Throwable {
-    forceCloseAll();
+    close();
     super.finalize();
   }
 
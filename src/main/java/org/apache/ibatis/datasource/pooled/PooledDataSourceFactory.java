@@ -15,6 +15,8 @@
  */
 package org.apache.ibatis.datasource.pooled;
 
+import java.util.Properties;
+
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 
 /**
@@ -26,4 +28,13 @@ public class PooledDataSourceFactory extends UnpooledDataSourceFactory {
     this.dataSource = new PooledDataSource();
   }
 
+  @Override
+  public void setProperties(Properties properties) {
+    super.setProperties(properties);
+    PooledDataSource pooledDataSource = (PooledDataSource) dataSource;
+    if (pooledDataSource.isPoolWarmUpEnabled()) {
+      pooledDataSource.warmUp();
+    }
+  }
+
 }
@@ -0,0 +1,298 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * A LRU cache of the prepared and callable statements of a physical connection.
+ * <p>
+ * The cache belongs to the physical connection, not to the {@link PooledConnection} handed out for a checkout, so
+ * statements survive the session that prepared them. Closing a cached statement closes the result sets it returned
+ * and returns it to the cache with its parameters cleared and its properties reset. A statement whose escape
+ * processing, poolable flag, large max rows, cursor name or close on completion was changed is closed instead. A statement is never shared: while it is in use, preparing the same SQL again creates a
+ * statement that is not cached. Like the connection itself, the cache is only used by the thread that checked the
+ * connection out.
+ */
+class PreparedStatementCache {
+
+  private final int maxSize;
+  private final PoolState state;
+  private final Map<StatementKey, CachedStatement> statements;
+
+  PreparedStatementCache(int maxSize, PoolState state) {
+    this.maxSize = maxSize;
+    this.state = state;
+    this.statements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+        boolean tooBig = size() > PreparedStatementCache.this.maxSize;
+        if (tooBig) {
+          eldest.getValue().evict();
+        }
+        return tooBig;
+      }
+    };
+  }
+
+  static boolean isCacheable(Method method) {
+    String name = method.getName();
+    return "prepareStatement".equals(name) || "prepareCall".equals(name);
+  }
+
+  /**
+   * Returns a statement for a {@code prepareStatement} or {@code prepareCall} call on the connection.
+   *
+   * @param realConnection the physical connection
+   * @param proxyConnection the connection returned by the statement's {@code getConnection()}
+   * @param method the method called
+   * @param args the arguments of the call
+   * @return a statement that returns to the cache when closed
+   * @throws Throwable if the statement could not be prepared
+   */
+  Object prepare(Connection realConnection, Connection proxyConnection, Method method, Object[] args)
+      throws Throwable {
+    StatementKey key = new StatementKey(method.getName(), args);
+    CachedStatement cached = statements.get(key);
+    if (cached != null && !cached.inUse) {
+      state.counters.statementCacheHitCount.increment();
+      return cached.checkout(proxyConnection);
+    }
+    state.counters.statementCacheMissCount.increment();
+    PreparedStatement statement;
+    try {
+      statement = (PreparedStatement) method.invoke(realConnection, args);
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+    if (cached != null) {
+      // the cached one is in use
+      return statement;
+    }
+    cached = new CachedStatement(key, statement);
+    statements.put(key, cached);
+    return cached.checkout(proxyConnection);
+  }
+
+  int size() {
+    return statements.size();
+  }
+
+  /**
+   * Closes the statements that are not in use and forgets about all of them.
+   */
+  void clear() {
+    for (Iterator<CachedStatement> it = statements.values().iterator(); it.hasNext();) {
+      it.next().evict();
+      it.remove();
+    }
+  }
+
+  private static final class StatementKey {
+
+    private final String methodName;
+    private final Object[] args;
+    private final int hashCode;
+
+    StatementKey(String methodName, Object[] args) {
+      this.methodName = methodName;
+      this.args = args == null ? new Object[0] : args.clone();
+      this.hashCode = 31 * methodName.hashCode() + Arrays.deepHashCode(this.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof StatementKey)) {
+        return false;
+      }
+      StatementKey other = (StatementKey) obj;
+      return methodName.equals(other.methodName) && Arrays.deepEquals(args, other.args);
+    }
+
+  }
+
+  private final class CachedStatement {
+
+    private final StatementKey key;
+    private final PreparedStatement statement;
+    private final Class<?>[] interfaces;
+    private final int queryTimeout;
+    private final int fetchSize;
+    private final int maxRows;
+    private final int maxFieldSize;
+    private final int fetchDirection;
+    private final List<ResultSet> resultSets = new ArrayList<>();
+    private boolean inUse;
+    private boolean evicted;
+    private boolean modified;
+    private boolean batched;
+    // a property was changed that cannot be reset
+    private boolean dirty;
+
+    CachedStatement(StatementKey key, PreparedStatement statement) throws SQLException {
+      this.key = key;
+      this.statement = statement;
+      this.interfaces = new Class<?>[] {
+          statement instanceof CallableStatement ? CallableStatement.class : PreparedStatement.class };
+      this.queryTimeout = statement.getQueryTimeout();
+      this.fetchSize = statement.getFetchSize();
+      this.maxRows = statement.getMaxRows();
+      this.maxFieldSize = statement.getMaxFieldSize();
+      this.fetchDirection = statement.getFetchDirection();
+    }
+
+    Object checkout(Connection connection) {
+      inUse = true;
+      return Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), interfaces,
+          new StatementHandle(this, connection));
+    }
+
+    void release() {
+      inUse = false;
+      if (evicted) {
+        closeQuietly();
+        return;
+      }
+      if (dirty) {
+        statements.remove(key);
+        closeQuietly();
+        return;
+      }
+      try {
+        for (ResultSet resultSet : resultSets) {
+          resultSet.close();
+        }
+        resultSets.clear();
+        statement.clearParameters();
+        statement.clearWarnings();
+        if (batched) {
+          statement.clearBatch();
+          batched = false;
+        }
+        if (modified) {
+          statement.setQueryTimeout(queryTimeout);
+          statement.setFetchSize(fetchSize);
+          statement.setMaxRows(maxRows);
+          statement.setMaxFieldSize(maxFieldSize);
+          statement.setFetchDirection(fetchDirection);
+          modified = false;
+        }
+      } catch (SQLException e) {
+        statements.remove(key);
+        closeQuietly();
+      }
+    }
+
+    void evict() {
+      evicted = true;
+      if (!inUse) {
+        closeQuietly();
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+
+  }
+
+  /**
+   * The statement handed out for one checkout: closing it returns the statement to the cache once.
+   */
+  private static final class StatementHandle implements InvocationHandler {
+
+    private final CachedStatement cached;
+    private final Connection connection;
+    private boolean closed;
+
+    StatementHandle(CachedStatement cached, Connection connection) {
+      this.cached = cached;
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if ("close".equals(methodName)) {
+        if (!closed) {
+          closed = true;
+          cached.release();
+        }
+        return null;
+      } else if ("isClosed".equals(methodName)) {
+        return closed || cached.statement.isClosed();
+      } else if ("hashCode".equals(methodName)) {
+        return System.identityHashCode(proxy);
+      } else if ("equals".equals(methodName)) {
+        return proxy == args[0];
+      }
+      if (closed && !Object.class.equals(method.getDeclaringClass())) {
+        throw new SQLException("Error accessing cached PreparedStatement. Statement is closed.");
+      }
+      if ("getConnection".equals(methodName)) {
+        return connection;
+      } else if ("addBatch".equals(methodName)) {
+        cached.batched = true;
+      } else if ("setQueryTimeout".equals(methodName) || "setFetchSize".equals(methodName)
+          || "setMaxRows".equals(methodName) || "setMaxFieldSize".equals(methodName)
+          || "setFetchDirection".equals(methodName)) {
+        cached.modified = true;
+      } else if ("setEscapeProcessing".equals(methodName) || "setPoolable".equals(methodName)
+          || "setLargeMaxRows".equals(methodName) || "setCursorName".equals(methodName)
+          || "closeOnCompletion".equals(methodName)) {
+        cached.dirty = true;
+      }
+      Object result;
+      try {
+        result = method.invoke(cached.statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+      if (result instanceof ResultSet) {
+        cached.resultSets.add((ResultSet) result);
+      }
+      return result;
+    }
+
+  }
+
+}
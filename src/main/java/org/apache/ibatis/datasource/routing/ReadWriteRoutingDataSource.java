@@ -0,0 +1,173 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A DataSource made of a primary database and its read replicas.
+ * <p>
+ * Plain {@link #getConnection()} calls are served by the primary. When it is used through a
+ * {@link org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory JDBC transaction}, the select statements of an
+ * auto-commit session are served by the replicas (in turn) until the session executes its first write; from then on
+ * everything goes to the primary so that the session reads its own writes. Sessions that are not in auto-commit mode
+ * only use the primary unless {@link #setReplicaReadsInTransactions(boolean)} is set. Selects that lock the rows they
+ * read (<code>FOR UPDATE</code>, <code>FOR SHARE</code>, <code>LOCK IN SHARE MODE</code>) always go to the primary.
+ *
+ * @since 3.5.4
+ * @see ReadWriteRoutingDataSourceFactory
+ */
+public class ReadWriteRoutingDataSource implements DataSource {
+
+  private static final Log log = LogFactory.getLog(ReadWriteRoutingDataSource.class);
+
+  private final DataSource primary;
+  private final List<DataSource> replicas;
+  private final AtomicInteger nextReplica = new AtomicInteger();
+  private volatile boolean replicaReadsInTransactions;
+
+  public ReadWriteRoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+    this.primary = primary;
+    this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public List<DataSource> getReplicas() {
+    return replicas;
+  }
+
+  public boolean isReplicaReadsInTransactions() {
+    return replicaReadsInTransactions;
+  }
+
+  /**
+   * Sets whether the sessions that are not in auto-commit mode read from a replica until their first write. Their reads
+   * are then neither isolated nor consistent with the primary, and only the selects locking their rows go to the
+   * primary. Off by default.
+   *
+   * @param replicaReadsInTransactions true to read from the replicas in transactions
+   */
+  public void setReplicaReadsInTransactions(boolean replicaReadsInTransactions) {
+    this.replicaReadsInTransactions = replicaReadsInTransactions;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return primary.getConnection(username, password);
+  }
+
+  /**
+   * Opens a connection to the next replica in turn. Replicas that cannot be reached are skipped, and the primary is
+   * used when none can be reached (or when there are no replicas).
+   *
+   * @return a connection to a replica, or to the primary
+   * @throws SQLException if the primary could not be reached either
+   */
+  public Connection getReplicaConnection() throws SQLException {
+    int size = replicas.size();
+    int start = nextReplica.getAndIncrement();
+    for (int i = 0; i < size; i++) {
+      DataSource replica = replicas.get(Math.floorMod(start + i, size));
+      try {
+        return replica.getConnection();
+      } catch (SQLException e) {
+        log.warn("Could not get a connection from replica " + replica + ", trying the next one. Cause: " + e);
+      }
+    }
+    return primary.getConnection();
+  }
+
+  /**
+   * Closes the primary and the replicas that are {@link PooledDataSource}s, stopping their background tasks.
+   *
+   * @see PooledDataSource#close()
+   */
+  public void close() {
+    close(primary);
+    for (DataSource replica : replicas) {
+      close(replica);
+    }
+  }
+
+  private static void close(DataSource dataSource) {
+    if (dataSource instanceof PooledDataSource) {
+      ((PooledDataSource) dataSource).close();
+    }
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return primary.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    primary.setLogWriter(out);
+    for (DataSource replica : replicas) {
+      replica.setLogWriter(out);
+    }
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    primary.setLoginTimeout(seconds);
+    for (DataSource replica : replicas) {
+      replica.setLoginTimeout(seconds);
+    }
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return primary.getLoginTimeout();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+  @Override
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+  }
+
+}
@@ -0,0 +1,92 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+
+/**
+ * Creates a {@link ReadWriteRoutingDataSource} made of {@link org.apache.ibatis.datasource.pooled.PooledDataSource}s.
+ * <p>
+ * The properties of the primary are the ones of a <code>POOLED</code> data source. Every replica is declared by
+ * properties named <code>replica.&lt;name&gt;.&lt;property&gt;</code> (e.g. <code>replica.1.url</code>) which
+ * override the properties of the primary for that replica. The <code>replicaReadsInTransactions</code> property sets
+ * {@link ReadWriteRoutingDataSource#setReplicaReadsInTransactions(boolean)}.
+ *
+ * @since 3.5.4
+ */
+public class ReadWriteRoutingDataSourceFactory implements DataSourceFactory {
+
+  private static final String REPLICA_PREFIX = "replica.";
+  private static final String REPLICA_READS_IN_TRANSACTIONS = "replicaReadsInTransactions";
+
+  private DataSource dataSource;
+
+  @Override
+  public void setProperties(Properties properties) {
+    Properties primaryProperties = new Properties();
+    Map<String, Properties> replicaProperties = new TreeMap<>();
+    boolean replicaReadsInTransactions = false;
+    for (String name : properties.stringPropertyNames()) {
+      String value = properties.getProperty(name);
+      if (REPLICA_READS_IN_TRANSACTIONS.equals(name)) {
+        replicaReadsInTransactions = Boolean.parseBoolean(value);
+      } else if (name.startsWith(REPLICA_PREFIX)) {
+        String replicaProperty = name.substring(REPLICA_PREFIX.length());
+        int dot = replicaProperty.indexOf('.');
+        if (dot <= 0 || dot == replicaProperty.length() - 1) {
+          throw new DataSourceException("Invalid replica property '" + name + "', expected replica.<name>.<property>.");
+        }
+        replicaProperties.computeIfAbsent(replicaProperty.substring(0, dot), k -> new Properties())
+            .setProperty(replicaProperty.substring(dot + 1), value);
+      } else {
+        primaryProperties.setProperty(name, value);
+      }
+    }
+    DataSource primary = newPooledDataSource(primaryProperties);
+    List<DataSource> replicas = new ArrayList<>();
+    for (Properties overrides : replicaProperties.values()) {
+      Properties merged = new Properties();
+      merged.putAll(primaryProperties);
+      merged.putAll(overrides);
+      replicas.add(newPooledDataSource(merged));
+    }
+    ReadWriteRoutingDataSource routingDataSource = new ReadWriteRoutingDataSource(primary, replicas);
+    routingDataSource.setReplicaReadsInTransactions(replicaReadsInTransactions);
+    dataSource = routingDataSource;
+  }
+
+  @Override
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  private DataSource newPooledDataSource(Properties properties) {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    factory.setProperties(properties);
+    return factory.getDataSource();
+  }
+
+}
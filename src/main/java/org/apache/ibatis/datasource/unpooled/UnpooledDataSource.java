@@ -23,6 +23,7 @@ import java.sql.DriverPropertyInfo;
 import java.sql.SQLException;
 import java.util.Enumeration;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
@@ -42,7 +43,7 @@ public class UnpooledDataSource implements DataSource {
   private Properties driverProperties;
   private static Map<String, Driver> registeredDrivers = new ConcurrentHashMap<>();
 
-  private String driver;
+  private volatile String driver;
   private String url;
   private String username;
   private String password;
@@ -51,6 +52,8 @@ public class UnpooledDataSource implements DataSource {
   private Integer defaultTransactionIsolationLevel;
   private Integer defaultNetworkTimeout;
 
+  private volatile ResolvedDriver resolvedDriver;
+
   static {
     Enumeration<Driver> drivers = DriverManager.getDrivers();
     while (drivers.hasMoreElements()) {
@@ -217,12 +220,43 @@ public class UnpooledDataSource implements DataSource {
   }
 
   private Connection doGetConnection(Properties properties) throws SQLException {
-    initializeDriver();
-    Connection connection = DriverManager.getConnection(url, properties);
-    configureConnection(connection);
+    ResolvedDriver resolved = resolveDriver();
+    Connection connection = resolved.driver.connect(url, properties);
+    if (connection == null) {
+      // the driver changed its mind about the url
+      connection = DriverManager.getConnection(url, properties);
+    }
+    configureConnection(connection, resolved);
     return connection;
   }
 
+  /**
+   * Returns the driver for the current driver class and url, so that connections are opened through it directly
+   * instead of letting {@link DriverManager} go through all the registered drivers every time.
+   */
+  private ResolvedDriver resolveDriver() throws SQLException {
+    ResolvedDriver resolved = resolvedDriver;
+    if (resolved != null && resolved.matches(driver, url)) {
+      return resolved;
+    }
+    return doResolveDriver();
+  }
+
+  private synchronized ResolvedDriver doResolveDriver() throws SQLException {
+    ResolvedDriver resolved = resolvedDriver;
+    if (resolved != null && resolved.matches(driver, url)) {
+      return resolved;
+    }
+    initializeDriver();
+    Driver driverInstance = registeredDrivers.get(driver);
+    if (driverInstance == null || !driverInstance.acceptsURL(url)) {
+      driverInstance = DriverManager.getDriver(url);
+    }
+    resolved = new ResolvedDriver(driver, url, driverInstance);
+    resolvedDriver = resolved;
+    return resolved;
+  }
+
   private synchronized void initializeDriver() throws SQLException {
     if (!registeredDrivers.containsKey(driver)) {
       Class<?> driverType;
@@ -243,15 +277,44 @@ public class UnpooledDataSource implements DataSource {
     }
   }
 
-  private void configureConnection(Connection conn) throws SQLException {
+  private void configureConnection(Connection conn, ResolvedDriver resolved) throws SQLException {
     if (defaultNetworkTimeout != null) {
       conn.setNetworkTimeout(Executors.newSingleThreadExecutor(), defaultNetworkTimeout);
     }
-    if (autoCommit != null && autoCommit != conn.getAutoCommit()) {
-      conn.setAutoCommit(autoCommit);
+    // the defaults of the driver are read from the first connection only
+    if (autoCommit != null) {
+      if (resolved.defaultAutoCommit == null) {
+        resolved.defaultAutoCommit = conn.getAutoCommit();
+      }
+      if (!autoCommit.equals(resolved.defaultAutoCommit)) {
+        conn.setAutoCommit(autoCommit);
+      }
     }
     if (defaultTransactionIsolationLevel != null) {
-      conn.setTransactionIsolation(defaultTransactionIsolationLevel);
+      if (resolved.defaultTransactionIsolationLevel == null) {
+        resolved.defaultTransactionIsolationLevel = conn.getTransactionIsolation();
+      }
+      if (!defaultTransactionIsolationLevel.equals(resolved.defaultTransactionIsolationLevel)) {
+        conn.setTransactionIsolation(defaultTransactionIsolationLevel);
+      }
+    }
+  }
+
+  private static class ResolvedDriver {
+    private final String driverName;
+    private final String url;
+    private final Driver driver;
+    private volatile Boolean defaultAutoCommit;
+    private volatile Integer defaultTransactionIsolationLevel;
+
+    ResolvedDriver(String driverName, String url, Driver driver) {
+      this.driverName = driverName;
+      this.url = url;
+      this.driver = driver;
+    }
+
+    boolean matches(String driverName, String url) {
+      return Objects.equals(this.driverName, driverName) && Objects.equals(this.url, url);
     }
   }
 
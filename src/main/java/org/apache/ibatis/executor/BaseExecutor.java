@@ -20,12 +20,16 @@ import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOL
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.regex.Pattern;
 
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.keygen.SelectKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -34,6 +38,7 @@ import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
@@ -50,6 +55,10 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public abstract class BaseExecutor implements Executor {
 
   private static final Log log = LogFactory.getLog(BaseExecutor.class);
+  // SELECT ... FOR UPDATE / FOR SHARE / FOR NO KEY UPDATE / FOR KEY SHARE, and MySQL's LOCK IN SHARE MODE
+  private static final Pattern LOCKING_READ = Pattern.compile(
+      "\\bfor\\s+(?:no\\s+key\\s+)?(?:update|share)\\b|\\bfor\\s+key\\s+share\\b|\\block\\s+in\\s+share\\s+mode\\b",
+      Pattern.CASE_INSENSITIVE);
 
   protected Transaction transaction;
   protected Executor wrapper;
@@ -58,6 +67,10 @@ public abstract class BaseExecutor implements Executor {
   protected PerpetualCache localCache;
   protected PerpetualCache localOutputParameterCache;
   protected Configuration configuration;
+  // null when the local cache is not bounded
+  private final LocalCachePolicy localCachePolicy;
+  // whether a SQL string locks the rows it reads, only worked out when the transaction routes reads
+  private final Map<String, Boolean> lockingReads = new HashMap<>();
 
   protected int queryStack;
   private boolean closed;
@@ -67,6 +80,7 @@ public abstract class BaseExecutor implements Executor {
     this.deferredLoads = new ConcurrentLinkedQueue<>();
     this.localCache = new PerpetualCache("LocalCache");
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+    this.localCachePolicy = LocalCachePolicy.newInstance(configuration);
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
@@ -151,6 +165,9 @@ public abstract class BaseExecutor implements Executor {
       queryStack++;
       list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
       if (list != null) {
+        if (localCachePolicy != null) {
+          localCachePolicy.recordHit(key);
+        }
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
         list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
@@ -167,6 +184,8 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else if (localCachePolicy != null) {
+        localCachePolicy.trim(localCache, localOutputParameterCache);
       }
     }
     return list;
@@ -196,11 +215,9 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
-    cacheKey.update(ms.getId());
+    CacheKey cacheKey = new CacheKey(ms.getCacheKeyPrefix(boundSql.getSql()));
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
-    cacheKey.update(boundSql.getSql());
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
@@ -264,6 +281,9 @@ public abstract class BaseExecutor implements Executor {
     if (!closed) {
       localCache.clear();
       localOutputParameterCache.clear();
+      if (localCachePolicy != null) {
+        localCachePolicy.clear();
+      }
     }
   }
 
@@ -326,6 +346,9 @@ public abstract class BaseExecutor implements Executor {
       localCache.removeObject(key);
     }
     localCache.putObject(key, list);
+    if (localCachePolicy != null) {
+      localCachePolicy.recordPut(key, list);
+    }
     if (ms.getStatementType() == StatementType.CALLABLE) {
       localOutputParameterCache.putObject(key, parameter);
     }
@@ -333,7 +356,53 @@ public abstract class BaseExecutor implements Executor {
   }
 
   protected Connection getConnection(Log statementLog) throws SQLException {
-    Connection connection = transaction.getConnection();
+    return wrapConnection(transaction.getConnection(), statementLog);
+  }
+
+  /**
+   * Returns the connection to run the statement on. Statements that only read may be routed to a replica by the
+   * transaction.
+   *
+   * @param ms the statement to run
+   * @param boundSql the SQL of the statement
+   * @return the connection
+   * @throws SQLException if the connection could not be opened
+   * @since 3.5.4
+   * @see Transaction#getConnection(boolean)
+   */
+  protected Connection getConnection(MappedStatement ms, BoundSql boundSql) throws SQLException {
+    return wrapConnection(getTransactionConnection(ms, boundSql), ms.getStatementLog());
+  }
+
+  /**
+   * Returns the connection of the transaction to run the statement on, without the statement logging.
+   *
+   * @param ms the statement to run
+   * @param boundSql the SQL of the statement
+   * @return the connection
+   * @throws SQLException if the connection could not be opened
+   * @since 3.5.4
+   */
+  protected Connection getTransactionConnection(MappedStatement ms, BoundSql boundSql) throws SQLException {
+    if (!transaction.isRouting()) {
+      return transaction.getConnection();
+    }
+    return transaction.getConnection(isReadOnly(ms, boundSql));
+  }
+
+  /**
+   * A select is read-only unless it calls a procedure, generates a key for an insert or locks the rows it reads.
+   *
+   * @since 3.5.4
+   */
+  protected boolean isReadOnly(MappedStatement ms, BoundSql boundSql) {
+    return ms.getSqlCommandType() == SqlCommandType.SELECT
+        && ms.getStatementType() != StatementType.CALLABLE
+        && !ms.getId().endsWith(SelectKeyGenerator.SELECT_KEY_SUFFIX)
+        && !lockingReads.computeIfAbsent(boundSql.getSql(), sql -> LOCKING_READ.matcher(sql).find());
+  }
+
+  private Connection wrapConnection(Connection connection, Log statementLog) {
     if (statementLog.isDebugEnabled()) {
       return ConnectionLogger.newInstance(connection, statementLog, queryStack);
     } else {
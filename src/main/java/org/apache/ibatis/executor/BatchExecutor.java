@@ -17,9 +17,11 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,6 +32,9 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -44,11 +49,21 @@ public class BatchExecutor extends BaseExecutor {
 
   private final List<Statement> statementList = new ArrayList<>();
   private final List<BatchResult> batchResultList = new ArrayList<>();
+  // the rows of the inserts rewritten as multi-row inserts, null for the other batches
+  private final List<MultiRowInsert> multiRowInsertList = new ArrayList<>();
+  // results of the batches flushed automatically, returned by the next flushStatements()
+  private final List<BatchResult> flushedResults = new ArrayList<>();
+  private final InsertDependencies insertDependencies;
   private String currentSql;
   private MappedStatement currentStatement;
+  // the first batch an insert can still join when statement grouping is enabled
+  private int regroupableFrom;
+  private int pendingRows;
+  private long pendingBytes;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
     super(configuration, transaction);
+    this.insertDependencies = new InsertDependencies(transaction);
   }
 
   @Override
@@ -58,23 +73,54 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
+    final BatchResult batchResult;
+    final int index = findBatch(ms, sql);
+    final MultiRowInsert multiRowInsert = index >= 0 ? multiRowInsertList.get(index) : newMultiRowInsert(ms, sql);
+    if (multiRowInsert != null) {
+      // bound when the batch is executed
+      stmt = null;
+      multiRowInsert.addRow(boundSql, parameterObject);
+      if (index >= 0) {
+        batchResult = batchResultList.get(index);
+        batchResult.addParameterObject(parameterObject);
+      } else {
+        currentSql = sql;
+        currentStatement = ms;
+        statementList.add(null);
+        batchResult = new BatchResult(ms, sql, parameterObject);
+        batchResultList.add(batchResult);
+        multiRowInsertList.add(multiRowInsert);
+      }
+    } else if (index >= 0) {
+      stmt = statementList.get(index);
       applyTransactionTimeout(stmt);
       handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+      batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
+      Connection connection = getConnection(ms, boundSql);
       stmt = handler.prepare(connection, transaction.getTimeout());
       handler.parameterize(stmt);    //fix Issues 322
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      batchResult = new BatchResult(ms, sql, parameterObject);
+      batchResultList.add(batchResult);
+      multiRowInsertList.add(null);
+      if (ms.getSqlCommandType() != SqlCommandType.INSERT) {
+        regroupableFrom = statementList.size();
+      }
+    }
+    if (stmt != null) {
+      handler.batch(stmt);
+    }
+    pendingRows++;
+    if (configuration.getBatchMaxPendingBytes() > 0) {
+      pendingBytes += estimateSize(boundSql, parameterObject);
+    }
+    if (isFlushNeeded(batchResult.getParameterObjects().size())) {
+      flushPendingBatches();
     }
-    handler.batch(stmt);
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
@@ -86,7 +132,7 @@ public class BatchExecutor extends BaseExecutor {
       flushStatements();
       Configuration configuration = ms.getConfiguration();
       StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameterObject, rowBounds, resultHandler, boundSql);
-      Connection connection = getConnection(ms.getStatementLog());
+      Connection connection = getConnection(ms, handler.getBoundSql());
       stmt = handler.prepare(connection, transaction.getTimeout());
       handler.parameterize(stmt);
       return handler.query(stmt, resultHandler);
@@ -100,7 +146,7 @@ public class BatchExecutor extends BaseExecutor {
     flushStatements();
     Configuration configuration = ms.getConfiguration();
     StatementHandler handler = configuration.newStatementHandler(wrapper, ms, parameter, rowBounds, null, boundSql);
-    Connection connection = getConnection(ms.getStatementLog());
+    Connection connection = getConnection(ms, handler.getBoundSql());
     Statement stmt = handler.prepare(connection, transaction.getTimeout());
     handler.parameterize(stmt);
     Cursor<E> cursor = handler.queryCursor(stmt);
@@ -111,15 +157,90 @@ public class BatchExecutor extends BaseExecutor {
   @Override
   public List<BatchResult> doFlushStatements(boolean isRollback) throws SQLException {
     try {
-      List<BatchResult> results = new ArrayList<>();
       if (isRollback) {
         return Collections.emptyList();
       }
-      for (int i = 0, n = statementList.size(); i < n; i++) {
-        Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
-        BatchResult batchResult = batchResultList.get(i);
-        try {
+      List<BatchResult> results = new ArrayList<>(flushedResults);
+      executeBatches(results);
+      return results;
+    } finally {
+      flushedResults.clear();
+      closeBatches();
+    }
+  }
+
+  /**
+   * Returns the batch the statement can be added to, -1 if a new batch is needed. By default only the last batch can be
+   * continued. With statement grouping, an insert can also join an earlier batch of the same insert, as long as no
+   * other kind of statement was batched since and none of the inserts batched since goes into a table its table
+   * references with a foreign key, as the row would then be sent before the rows it may reference. When the foreign
+   * keys cannot be read from the database metadata, only the last batch can be continued.
+   */
+  private int findBatch(MappedStatement ms, String sql) throws SQLException {
+    int last = statementList.size() - 1;
+    if (!configuration.isBatchStatementGroupingEnabled() || ms.getSqlCommandType() != SqlCommandType.INSERT) {
+      return sql.equals(currentSql) && ms.equals(currentStatement) ? last : -1;
+    }
+    for (int i = last; i >= regroupableFrom; i--) {
+      BatchResult batchResult = batchResultList.get(i);
+      if (sql.equals(batchResult.getSql()) && ms.equals(batchResult.getMappedStatement())) {
+        return i;
+      }
+      if (!insertDependencies.isIndependent(sql, batchResult.getSql())) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  private boolean isFlushNeeded(int statementRows) {
+    int maxRowsPerStatement = configuration.getBatchMaxRowsPerStatement();
+    int maxPendingRows = configuration.getBatchMaxPendingRows();
+    long maxPendingBytes = configuration.getBatchMaxPendingBytes();
+    return (maxRowsPerStatement > 0 && statementRows >= maxRowsPerStatement)
+        || (maxPendingRows > 0 && pendingRows >= maxPendingRows)
+        || (maxPendingBytes > 0 && pendingBytes >= maxPendingBytes);
+  }
+
+  /**
+   * Sends the pending batches to the database once a threshold is reached. Only the update counts of their results
+   * are kept, merged with the previous result of the same statement, so that the heap used by a long batch stays
+   * bounded.
+   */
+  private void flushPendingBatches() throws SQLException {
+    // starts with the previous results, which the exception of a failing batch reports as successful too
+    List<BatchResult> results = new ArrayList<>(flushedResults);
+    try {
+      executeBatches(results);
+    } finally {
+      closeBatches();
+    }
+    for (BatchResult result : results.subList(flushedResults.size(), results.size())) {
+      result.getParameterObjects().clear();
+      BatchResult previous = flushedResults.isEmpty() ? null : flushedResults.get(flushedResults.size() - 1);
+      if (previous != null && previous.getMappedStatement().equals(result.getMappedStatement())
+          && previous.getSql().equals(result.getSql())) {
+        int[] previousCounts = previous.getUpdateCounts();
+        int[] counts = result.getUpdateCounts();
+        int[] merged = Arrays.copyOf(previousCounts, previousCounts.length + counts.length);
+        System.arraycopy(counts, 0, merged, previousCounts.length, counts.length);
+        previous.setUpdateCounts(merged);
+      } else {
+        flushedResults.add(result);
+      }
+    }
+  }
+
+  private void executeBatches(List<BatchResult> results) throws SQLException {
+    for (int i = 0, n = statementList.size(); i < n; i++) {
+      BatchResult batchResult = batchResultList.get(i);
+      MultiRowInsert multiRowInsert = multiRowInsertList.get(i);
+      try {
+        if (multiRowInsert != null) {
+          batchResult.setUpdateCounts(executeMultiRowInsert(multiRowInsert, batchResult.getParameterObjects()));
+        } else {
+          Statement stmt = statementList.get(i);
+          applyTransactionTimeout(stmt);
           batchResult.setUpdateCounts(stmt.executeBatch());
           MappedStatement ms = batchResult.getMappedStatement();
           List<Object> parameterObjects = batchResult.getParameterObjects();
@@ -134,31 +255,101 @@ public class BatchExecutor extends BaseExecutor {
           }
           // Close statement to close cursor #1109
           closeStatement(stmt);
-        } catch (BatchUpdateException e) {
-          StringBuilder message = new StringBuilder();
-          message.append(batchResult.getMappedStatement().getId())
-              .append(" (batch index #")
-              .append(i + 1)
-              .append(")")
-              .append(" failed.");
-          if (i > 0) {
-            message.append(" ")
-                .append(i)
-                .append(" prior sub executor(s) completed successfully, but will be rolled back.");
-          }
-          throw new BatchExecutorException(message.toString(), e, results, batchResult);
         }
-        results.add(batchResult);
+      } catch (BatchUpdateException e) {
+        StringBuilder message = new StringBuilder();
+        message.append(batchResult.getMappedStatement().getId())
+            .append(" (batch index #")
+            .append(i + 1)
+            .append(")")
+            .append(" failed.");
+        if (!results.isEmpty()) {
+          message.append(" ")
+              .append(results.size())
+              .append(" prior sub executor(s) completed successfully, but will be rolled back.");
+        }
+        throw new BatchExecutorException(message.toString(), e, results, batchResult);
       }
-      return results;
-    } finally {
-      for (Statement stmt : statementList) {
+      results.add(batchResult);
+    }
+  }
+
+  private MultiRowInsert newMultiRowInsert(MappedStatement ms, String sql) {
+    return configuration.getBatchInsertRewriteMaxRows() > 1 ? MultiRowInsert.of(ms, sql) : null;
+  }
+
+  /**
+   * Sends the queued rows in as few multi-row inserts as the maximum rows and parameters allow, then hands the
+   * generated keys of each statement to its rows, in order.
+   *
+   * @return one update count per row, {@link Statement#SUCCESS_NO_INFO} when the count of a statement does not match
+   *         its number of rows
+   */
+  private int[] executeMultiRowInsert(MultiRowInsert multiRowInsert, List<Object> parameterObjects) throws SQLException {
+    MappedStatement ms = multiRowInsert.getMappedStatement();
+    int rowsPerStatement = Math.max(1, Math.min(configuration.getBatchInsertRewriteMaxRows(),
+        configuration.getBatchInsertRewriteMaxParameters() / Math.max(1, multiRowInsert.getParameterCount())));
+    int size = multiRowInsert.size();
+    int[] updateCounts = new int[size];
+    for (int from = 0; from < size; from += rowsPerStatement) {
+      int to = Math.min(size, from + rowsPerStatement);
+      StatementHandler handler = configuration.newStatementHandler(this, ms, parameterObjects.get(from),
+          RowBounds.DEFAULT, null, multiRowInsert.getBoundSql(from, to));
+      Statement stmt = null;
+      try {
+        stmt = handler.prepare(getConnection(ms, handler.getBoundSql()), transaction.getTimeout());
+        multiRowInsert.setParameters((PreparedStatement) stmt, from, to);
+        int count = ((PreparedStatement) stmt).executeUpdate();
+        Arrays.fill(updateCounts, from, to, count == to - from ? 1 : Statement.SUCCESS_NO_INFO);
+        if (Jdbc3KeyGenerator.class.equals(ms.getKeyGenerator().getClass())) {
+          ((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, stmt, new ArrayList<>(parameterObjects.subList(from, to)));
+        }
+      } catch (SQLException e) {
+        throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(updateCounts, from), e);
+      } finally {
         closeStatement(stmt);
       }
-      currentSql = null;
-      statementList.clear();
-      batchResultList.clear();
     }
+    return updateCounts;
+  }
+
+  private void closeBatches() {
+    for (Statement stmt : statementList) {
+      closeStatement(stmt);
+    }
+    currentSql = null;
+    statementList.clear();
+    batchResultList.clear();
+    multiRowInsertList.clear();
+    regroupableFrom = 0;
+    pendingRows = 0;
+    pendingBytes = 0;
+  }
+
+  /**
+   * Roughly estimates the memory held by a row of the batch: its parameter values, as seen by the parameter handler.
+   */
+  private long estimateSize(BoundSql boundSql, Object parameterObject) {
+    long size = SizeEstimator.ROW_OVERHEAD;
+    MetaObject metaObject = null;
+    for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
+      String propertyName = parameterMapping.getProperty();
+      Object value;
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        value = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        value = null;
+      } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        value = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        value = metaObject.getValue(propertyName);
+      }
+      size += SizeEstimator.sizeOf(value);
+    }
+    return size;
   }
 
 }
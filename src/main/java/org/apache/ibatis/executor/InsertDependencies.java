@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * The foreign keys between the tables the {@link BatchExecutor} inserts into, read from the database metadata once
+ * per table. They tell whether a row may be sent ahead of the rows of another insert batched before it. The table of
+ * an insert is parsed once per SQL string, and the answer is kept for each pair of SQL strings.
+ */
+class InsertDependencies {
+
+  private static final String IDENTIFIER = "(?:[\\w$]+|\"[^\"]+\"|`[^`]+`)";
+  private static final Pattern INSERT_INTO = Pattern.compile(
+      "^\\s*insert\\s+into\\s+(" + IDENTIFIER + "(?:\\s*\\.\\s*" + IDENTIFIER + ")*)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern IDENTIFIER_PART = Pattern.compile("[\\w$]+|\"([^\"]+)\"|`([^`]+)`");
+
+  private final Transaction transaction;
+  // by table name as written in the statements, null when the table could not be resolved
+  private final Map<String, Table> tables = new HashMap<>();
+  // by SQL string, null when its table could not be resolved
+  private final Map<String, Table> tablesBySql = new HashMap<>();
+  // by SQL string, then by the SQL string of the insert batched before it
+  private final Map<String, Map<String, Boolean>> independentInserts = new HashMap<>();
+
+  InsertDependencies(Transaction transaction) {
+    this.transaction = transaction;
+  }
+
+  /**
+   * Returns true if the rows inserted by <code>sql</code> cannot reference the rows inserted by
+   * <code>otherSql</code>, false if they may or if this cannot be told.
+   */
+  boolean isIndependent(String sql, String otherSql) throws SQLException {
+    Map<String, Boolean> answers = independentInserts.computeIfAbsent(sql, k -> new HashMap<>());
+    Boolean independent = answers.get(otherSql);
+    if (independent == null) {
+      Table table = getTable(sql);
+      Table otherTable = getTable(otherSql);
+      independent = table != null && otherTable != null && !table.referencedTables.contains(otherTable.name);
+      answers.put(otherSql, independent);
+    }
+    return independent;
+  }
+
+  private Table getTable(String sql) throws SQLException {
+    if (!tablesBySql.containsKey(sql)) {
+      Matcher matcher = INSERT_INTO.matcher(sql);
+      tablesBySql.put(sql, matcher.find() ? getTableNamed(matcher.group(1)) : null);
+    }
+    return tablesBySql.get(sql);
+  }
+
+  private Table getTableNamed(String tableName) throws SQLException {
+    if (!tables.containsKey(tableName)) {
+      Connection connection = transaction.getConnection();
+      Table table;
+      try {
+        table = readTable(connection.getMetaData(), tableName);
+      } catch (SQLException e) {
+        table = null;
+      }
+      tables.put(tableName, table);
+    }
+    return tables.get(tableName);
+  }
+
+  private Table readTable(DatabaseMetaData metaData, String tableName) throws SQLException {
+    List<String> parts = new ArrayList<>();
+    Matcher matcher = IDENTIFIER_PART.matcher(tableName);
+    while (matcher.find()) {
+      if (matcher.group(1) != null || matcher.group(2) != null) {
+        parts.add(matcher.group(1) != null ? matcher.group(1) : matcher.group(2));
+      } else if (metaData.storesUpperCaseIdentifiers()) {
+        parts.add(matcher.group().toUpperCase());
+      } else if (metaData.storesLowerCaseIdentifiers()) {
+        parts.add(matcher.group().toLowerCase());
+      } else {
+        parts.add(matcher.group());
+      }
+    }
+    String name = parts.get(parts.size() - 1);
+    String schema = parts.size() > 1 ? parts.get(parts.size() - 2) : null;
+    try (ResultSet rs = metaData.getTables(null, schema, name, null)) {
+      if (!rs.next()) {
+        return null;
+      }
+    }
+    // the schema of the referenced tables is ignored, which can only make more rows wait
+    Set<String> referencedTables = new HashSet<>();
+    try (ResultSet rs = metaData.getImportedKeys(null, schema, name)) {
+      while (rs.next()) {
+        referencedTables.add(rs.getString("PKTABLE_NAME"));
+      }
+    }
+    return new Table(name, referencedTables);
+  }
+
+  private static class Table {
+
+    private final String name;
+    private final Set<String> referencedTables;
+
+    Table(String name, Set<String> referencedTables) {
+      this.name = name;
+      this.referencedTables = referencedTables;
+    }
+
+  }
+
+}
@@ -0,0 +1,118 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Bounds the local cache of an executor.
+ * <p>
+ * Results of more than {@link Configuration#getLocalCacheMaxRows()} rows are not kept, and the least recently used
+ * results are evicted past {@link Configuration#getLocalCacheMaxEntries()} entries or an approximate retained size of
+ * {@link Configuration#getLocalCacheMaxBytes()}. The cache is only trimmed once a top level query is over, as the
+ * placeholders and the deferred loads of a running query rely on its entries.
+ */
+class LocalCachePolicy {
+
+  private final int maxEntries;
+  private final long maxBytes;
+  private final int maxRows;
+
+  // estimated size of each entry, least recently used first
+  private final LinkedHashMap<Object, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private final List<Object> oversizedKeys = new ArrayList<>();
+  private long bytes;
+
+  private LocalCachePolicy(int maxEntries, long maxBytes, int maxRows) {
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.maxRows = maxRows;
+  }
+
+  /**
+   * @return the policy set by the configuration, or {@code null} if the local cache is not bounded
+   */
+  static LocalCachePolicy newInstance(Configuration configuration) {
+    if (configuration == null) {
+      return null;
+    }
+    int maxEntries = configuration.getLocalCacheMaxEntries();
+    long maxBytes = configuration.getLocalCacheMaxBytes();
+    int maxRows = configuration.getLocalCacheMaxRows();
+    if (maxEntries <= 0 && maxBytes <= 0 && maxRows <= 0) {
+      return null;
+    }
+    return new LocalCachePolicy(maxEntries, maxBytes, maxRows);
+  }
+
+  void recordHit(Object key) {
+    entries.get(key);
+  }
+
+  void recordPut(Object key, List<?> list) {
+    Long previousSize = entries.remove(key);
+    if (previousSize != null) {
+      bytes -= previousSize;
+    }
+    if (maxRows > 0 && list.size() > maxRows) {
+      oversizedKeys.add(key);
+      return;
+    }
+    long size = maxBytes > 0 ? SizeEstimator.sizeOfResults(list) : 0;
+    entries.put(key, size);
+    bytes += size;
+  }
+
+  void trim(PerpetualCache localCache, PerpetualCache localOutputParameterCache) {
+    for (Object key : oversizedKeys) {
+      if (!entries.containsKey(key)) {
+        localCache.removeObject(key);
+        localOutputParameterCache.removeObject(key);
+      }
+    }
+    oversizedKeys.clear();
+    Iterator<Map.Entry<Object, Long>> eldest = entries.entrySet().iterator();
+    while (eldest.hasNext() && ((maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && bytes > maxBytes))) {
+      Map.Entry<Object, Long> entry = eldest.next();
+      eldest.remove();
+      bytes -= entry.getValue();
+      localCache.removeObject(entry.getKey());
+      localOutputParameterCache.removeObject(entry.getKey());
+    }
+  }
+
+  void clear() {
+    entries.clear();
+    oversizedKeys.clear();
+    bytes = 0;
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  long getBytes() {
+    return bytes;
+  }
+
+}
@@ -0,0 +1,187 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
+import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The rows of a single-row <code>INSERT ... VALUES (...)</code> queued by the {@link BatchExecutor}, to be sent as
+ * multi-row <code>INSERT ... VALUES (...), (...)</code> statements.
+ */
+class MultiRowInsert {
+
+  private static final Pattern INSERT_VALUES = Pattern.compile("^\\s*insert\\s.*?\\bvalues\\s*(\\(.*\\))\\s*$",
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+  private final Configuration configuration;
+  private final MappedStatement mappedStatement;
+  private final String prefix;
+  private final String row;
+  private final List<BoundSql> boundSqls = new ArrayList<>();
+  private final List<Object> parameterObjects = new ArrayList<>();
+
+  private MultiRowInsert(MappedStatement mappedStatement, String prefix, String row) {
+    this.configuration = mappedStatement.getConfiguration();
+    this.mappedStatement = mappedStatement;
+    this.prefix = prefix;
+    this.row = row;
+  }
+
+  /**
+   * Returns an empty multi-row insert for the statement, or null if it cannot be rewritten: it is not a prepared
+   * insert of exactly one row of values, or its generated keys are not read through the JDBC driver.
+   */
+  static MultiRowInsert of(MappedStatement ms, String sql) {
+    if (ms.getSqlCommandType() != SqlCommandType.INSERT || ms.getStatementType() != StatementType.PREPARED) {
+      return null;
+    }
+    Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+    if (!Jdbc3KeyGenerator.class.equals(keyGeneratorType) && !NoKeyGenerator.class.equals(keyGeneratorType)) {
+      return null;
+    }
+    Matcher matcher = INSERT_VALUES.matcher(sql);
+    if (!matcher.matches() || !isSingleRow(matcher.group(1))) {
+      return null;
+    }
+    return new MultiRowInsert(ms, sql.substring(0, matcher.start(1)), matcher.group(1));
+  }
+
+  /**
+   * Checks that the parentheses opened by the first character are only closed by the last one, e.g. that this is not
+   * <code>(...), (...)</code> or <code>(...) ON DUPLICATE KEY UPDATE c = VALUES(c)</code>.
+   */
+  private static boolean isSingleRow(String values) {
+    int depth = 0;
+    boolean quoted = false;
+    for (int i = 0; i < values.length(); i++) {
+      char c = values.charAt(i);
+      if (c == '\'') {
+        quoted = !quoted;
+      } else if (!quoted && c == '(') {
+        depth++;
+      } else if (!quoted && c == ')' && --depth == 0 && i < values.length() - 1) {
+        return false;
+      }
+    }
+    return depth == 0 && !quoted;
+  }
+
+  void addRow(BoundSql boundSql, Object parameterObject) {
+    boundSqls.add(boundSql);
+    parameterObjects.add(parameterObject);
+  }
+
+  MappedStatement getMappedStatement() {
+    return mappedStatement;
+  }
+
+  int size() {
+    return boundSqls.size();
+  }
+
+  int getParameterCount() {
+    return boundSqls.isEmpty() ? 0 : boundSqls.get(0).getParameterMappings().size();
+  }
+
+  /**
+   * Returns the statement inserting the rows from <code>fromRow</code> (inclusive) to <code>toRow</code> (exclusive).
+   */
+  BoundSql getBoundSql(int fromRow, int toRow) {
+    StringBuilder sql = new StringBuilder(prefix.length() + (row.length() + 2) * (toRow - fromRow));
+    sql.append(prefix);
+    List<ParameterMapping> parameterMappings = new ArrayList<>();
+    for (int i = fromRow; i < toRow; i++) {
+      if (i > fromRow) {
+        sql.append(", ");
+      }
+      sql.append(row);
+      parameterMappings.addAll(boundSqls.get(i).getParameterMappings());
+    }
+    return new BoundSql(configuration, sql.toString(), parameterMappings, parameterObjects.get(fromRow));
+  }
+
+  /**
+   * Sets the parameters of the rows with one parameter handler per row, as if each row were a statement of its own,
+   * so that custom language drivers and parameter handler plugins apply to every row.
+   */
+  void setParameters(PreparedStatement ps, int fromRow, int toRow) throws SQLException {
+    int offset = 0;
+    for (int i = fromRow; i < toRow; i++) {
+      BoundSql boundSql = boundSqls.get(i);
+      ParameterHandler parameterHandler = configuration.newParameterHandler(mappedStatement, parameterObjects.get(i), boundSql);
+      parameterHandler.setParameters(offset == 0 ? ps : OffsetParameterStatement.newInstance(ps, offset));
+      offset += boundSql.getParameterMappings().size();
+    }
+  }
+
+  /**
+   * PreparedStatement proxy shifting the parameter indexes by the parameters of the previous rows.
+   */
+  private static final class OffsetParameterStatement implements InvocationHandler {
+
+    private final PreparedStatement statement;
+    private final int offset;
+
+    private OffsetParameterStatement(PreparedStatement statement, int offset) {
+      this.statement = statement;
+      this.offset = offset;
+    }
+
+    static PreparedStatement newInstance(PreparedStatement statement, int offset) {
+      InvocationHandler handler = new OffsetParameterStatement(statement, offset);
+      ClassLoader cl = PreparedStatement.class.getClassLoader();
+      return (PreparedStatement) Proxy.newProxyInstance(cl, new Class[] { PreparedStatement.class }, handler);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+      try {
+        if (Object.class.equals(method.getDeclaringClass())) {
+          return method.invoke(this, params);
+        }
+        // the setters of PreparedStatement itself all take the parameter index first
+        if (PreparedStatement.class.equals(method.getDeclaringClass()) && method.getName().startsWith("set")
+            && params != null && params[0] instanceof Integer) {
+          params[0] = (Integer) params[0] + offset;
+        }
+        return method.invoke(statement, params);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,154 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rough estimates of the memory held by parameter values and result objects.
+ * <p>
+ * Results are measured by reading the fields of a few sample objects, never their getters, so that lazy loading
+ * proxies are not triggered. Collections are measured on a sample of their elements and extrapolated.
+ */
+final class SizeEstimator {
+
+  static final long ROW_OVERHEAD = 64;
+  static final long VALUE_OVERHEAD = 16;
+  static final long REFERENCE_SIZE = 8;
+
+  private static final int SAMPLE_SIZE = 8;
+  private static final int MAX_DEPTH = 3;
+  private static final Field[] NO_FIELDS = new Field[0];
+  private static final Map<Class<?>, Field[]> fieldsCache = new ConcurrentHashMap<>();
+
+  private SizeEstimator() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Estimates the size of a simple value, as bound to a statement.
+   */
+  static long sizeOf(Object value) {
+    if (value == null) {
+      return REFERENCE_SIZE;
+    } else if (value instanceof CharSequence) {
+      return VALUE_OVERHEAD + 2L * ((CharSequence) value).length();
+    } else if (value instanceof byte[]) {
+      return VALUE_OVERHEAD + ((byte[]) value).length;
+    } else if (value instanceof char[]) {
+      return VALUE_OVERHEAD + 2L * ((char[]) value).length;
+    }
+    return VALUE_OVERHEAD;
+  }
+
+  /**
+   * Estimates the size of a list of result objects, including the objects they reference.
+   */
+  static long sizeOfResults(List<?> results) {
+    return VALUE_OVERHEAD + sizeOfElements(results, results.size(), MAX_DEPTH);
+  }
+
+  private static long sizeOfObject(Object value, int depth) {
+    if (value == null) {
+      return REFERENCE_SIZE;
+    }
+    Class<?> type = value.getClass();
+    if (value instanceof CharSequence || value instanceof byte[] || value instanceof char[]) {
+      return REFERENCE_SIZE + sizeOf(value);
+    } else if (depth == 0) {
+      return REFERENCE_SIZE + VALUE_OVERHEAD;
+    } else if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      return REFERENCE_SIZE + VALUE_OVERHEAD + sizeOfElements(collection, collection.size(), depth - 1);
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      return REFERENCE_SIZE + VALUE_OVERHEAD + sizeOfElements(map.keySet(), map.size(), depth - 1)
+          + sizeOfElements(map.values(), map.size(), depth - 1);
+    } else if (type.isArray()) {
+      int length = Array.getLength(value);
+      if (type.getComponentType().isPrimitive()) {
+        return REFERENCE_SIZE + VALUE_OVERHEAD + REFERENCE_SIZE * length;
+      }
+      List<Object> sample = new ArrayList<>();
+      for (int i = 0; i < length && sample.size() < SAMPLE_SIZE; i++) {
+        sample.add(Array.get(value, i));
+      }
+      return REFERENCE_SIZE + VALUE_OVERHEAD + sizeOfElements(sample, length, depth - 1);
+    } else if (type.getName().startsWith("java.")) {
+      return REFERENCE_SIZE + VALUE_OVERHEAD;
+    }
+    long size = REFERENCE_SIZE + VALUE_OVERHEAD;
+    for (Field field : fieldsOf(type)) {
+      try {
+        size += field.getType().isPrimitive() ? REFERENCE_SIZE : sizeOfObject(field.get(value), depth - 1);
+      } catch (IllegalAccessException e) {
+        size += REFERENCE_SIZE;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Measures a sample of the elements and extrapolates to all of them.
+   */
+  private static long sizeOfElements(Iterable<?> elements, int count, int depth) {
+    if (count == 0) {
+      return 0;
+    }
+    long sampleSize = 0;
+    int sampled = 0;
+    Iterator<?> iterator = elements.iterator();
+    // spread the sample over the elements, as the first rows are not always representative
+    int step = Math.max(1, count / SAMPLE_SIZE);
+    for (int i = 0; iterator.hasNext() && sampled < SAMPLE_SIZE; i++) {
+      Object element = iterator.next();
+      if (i % step == 0) {
+        sampleSize += sizeOfObject(element, depth);
+        sampled++;
+      }
+    }
+    return sampled == 0 ? 0 : sampleSize * count / sampled;
+  }
+
+  private static Field[] fieldsOf(Class<?> type) {
+    return fieldsCache.computeIfAbsent(type, clazz -> {
+      List<Field> fields = new ArrayList<>();
+      for (Class<?> current = clazz; current != null && current != Object.class; current = current.getSuperclass()) {
+        for (Field field : current.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          try {
+            field.setAccessible(true);
+            fields.add(field);
+          } catch (RuntimeException e) {
+            // not accessible, ignored
+          }
+        }
+      }
+      return fields.isEmpty() ? NO_FIELDS : fields.toArray(NO_FIELDS);
+    });
+  }
+
+}
@@ -0,0 +1,242 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.loader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ResultExtractor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.defaults.DefaultSqlSession.StrictMap;
+
+/**
+ * Loads the nested select of a result mapping with a {@code batchKey} for many parent rows at once.
+ * <p>
+ * The keys of the parent rows are collected while their results are handled. The first value asked for runs the
+ * nested select for every key collected so far, at most {@link Configuration#getNestedQueryBatchSize()} keys at a
+ * time, passing the keys as a list (named {@code list} and {@code collection}, as for
+ * {@link org.apache.ibatis.session.SqlSession#selectList(String, Object)}). The rows returned are then handed to the
+ * parent rows by the values of their batch key properties.
+ *
+ * @since 3.5.4
+ */
+public class BatchResultLoader {
+
+  private final Configuration configuration;
+  private final Executor executor;
+  private final MappedStatement mappedStatement;
+  private final Class<?> targetType;
+  private final List<String> keyParameters = new ArrayList<>();
+  private final String[] keyProperties;
+  private final ResultExtractor resultExtractor;
+  private final long creatorThreadId;
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Map<Object, Object> pendingParameters = new LinkedHashMap<>();
+  private final Map<Object, List<Object>> loadedRows = new HashMap<>();
+
+  public BatchResultLoader(Configuration configuration, Executor executor, MappedStatement mappedStatement,
+      ResultMapping resultMapping) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.mappedStatement = mappedStatement;
+    this.targetType = resultMapping.getJavaType();
+    for (ResultMapping composite : resultMapping.getComposites()) {
+      keyParameters.add(composite.getProperty());
+    }
+    this.keyProperties = resultMapping.getBatchKeyProperties();
+    this.resultExtractor = new ResultExtractor(configuration, configuration.getObjectFactory());
+    this.creatorThreadId = Thread.currentThread().getId();
+  }
+
+  /**
+   * Adds the key of a parent row to the next batch.
+   *
+   * @param parameterObject the parameter the nested select would receive for the parent row alone
+   */
+  public void addKey(Object parameterObject) {
+    Object key = parameterKey(parameterObject);
+    lock.lock();
+    try {
+      if (!loadedRows.containsKey(key)) {
+        pendingParameters.putIfAbsent(key, parameterObject);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the value of a parent row, running the nested select for all the pending keys if it is not loaded yet.
+   *
+   * @param parameterObject the parameter the nested select would receive for the parent row alone
+   * @return the value, built as the nested select would have built it for the parent row alone
+   * @throws SQLException if the nested select fails
+   */
+  public Object loadResult(Object parameterObject) throws SQLException {
+    Object key = parameterKey(parameterObject);
+    List<Object> rows;
+    // held while the nested select runs, so that the other lazy loaders wait for its rows
+    lock.lock();
+    try {
+      if (!loadedRows.containsKey(key)) {
+        pendingParameters.putIfAbsent(key, parameterObject);
+        loadPendingKeys();
+      }
+      rows = new ArrayList<>(loadedRows.get(key));
+    } finally {
+      lock.unlock();
+    }
+    return resultExtractor.extractObjectFromList(rows, targetType);
+  }
+
+  /**
+   * Returns a loader of the value of a parent row, for lazy loading. The first one to load runs the nested select for
+   * all the keys pending at that time.
+   *
+   * @param parameterObject the parameter the nested select would receive for the parent row alone
+   * @return the loader
+   */
+  public ResultLoader newResultLoader(Object parameterObject) {
+    addKey(parameterObject);
+    return new KeyResultLoader(this, parameterObject);
+  }
+
+  private void loadPendingKeys() throws SQLException {
+    int batchSize = configuration.getNestedQueryBatchSize() > 0 ? configuration.getNestedQueryBatchSize() : Integer.MAX_VALUE;
+    List<Object> keys = new ArrayList<>(pendingParameters.keySet());
+    for (int from = 0; from < keys.size(); from += batchSize) {
+      List<Object> batchKeys = keys.subList(from, Math.min(keys.size(), from + batchSize));
+      Map<Object, List<Object>> batchRows = new HashMap<>();
+      List<Object> batchParameters = new ArrayList<>();
+      for (Object key : batchKeys) {
+        batchRows.put(key, new ArrayList<>());
+        batchParameters.add(pendingParameters.get(key));
+      }
+      for (Object row : selectList(wrapList(batchParameters))) {
+        List<Object> rows = row == null ? null : batchRows.get(rowKey(row));
+        if (rows != null) {
+          rows.add(row);
+        }
+      }
+      loadedRows.putAll(batchRows);
+      pendingParameters.keySet().removeAll(batchKeys);
+    }
+  }
+
+  private List<Object> selectList(Object parameterObject) throws SQLException {
+    Executor localExecutor = executor;
+    if (Thread.currentThread().getId() != this.creatorThreadId || localExecutor.isClosed()) {
+      localExecutor = ResultLoader.newExecutor(configuration);
+    }
+    try {
+      return localExecutor.query(mappedStatement, parameterObject, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+    } finally {
+      if (localExecutor != executor) {
+        localExecutor.close(false);
+      }
+    }
+  }
+
+  private Object parameterKey(Object parameterObject) {
+    if (keyParameters.isEmpty()) {
+      return normalize(parameterObject);
+    }
+    MetaObject metaObject = configuration.newMetaObject(parameterObject);
+    Object[] values = new Object[keyParameters.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = normalize(metaObject.getValue(keyParameters.get(i)));
+    }
+    return Arrays.asList(values);
+  }
+
+  private Object rowKey(Object row) {
+    MetaObject metaObject = configuration.newMetaObject(row);
+    if (keyParameters.isEmpty()) {
+      return normalize(metaObject.getValue(keyProperties[0]));
+    }
+    Object[] values = new Object[keyProperties.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = normalize(metaObject.getValue(keyProperties[i]));
+    }
+    return Arrays.asList(values);
+  }
+
+  /**
+   * The key read from a parent row and the property of a nested row may be integers of different types.
+   */
+  private static Object normalize(Object value) {
+    if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+      return ((Number) value).longValue();
+    } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+      return ((BigInteger) value).longValue();
+    } else if (value instanceof BigDecimal) {
+      try {
+        return ((BigDecimal) value).longValueExact();
+      } catch (ArithmeticException e) {
+        return ((BigDecimal) value).stripTrailingZeros();
+      }
+    }
+    return value;
+  }
+
+  static Object wrapList(List<Object> parameters) {
+    StrictMap<Object> map = new StrictMap<>();
+    map.put("collection", parameters);
+    map.put("list", parameters);
+    return map;
+  }
+
+  /**
+   * The loader of one parent row. Its parameter object is the key of the row alone, so that a deserialized lazy
+   * property can still be loaded by the nested select.
+   */
+  private static final class KeyResultLoader extends ResultLoader {
+
+    private final BatchResultLoader batchResultLoader;
+    private final Object keyParameterObject;
+
+    KeyResultLoader(BatchResultLoader batchResultLoader, Object keyParameterObject) {
+      super(batchResultLoader.configuration, batchResultLoader.executor, batchResultLoader.mappedStatement,
+          wrapList(new ArrayList<>(Collections.singletonList(keyParameterObject))), batchResultLoader.targetType, null,
+          null);
+      this.batchResultLoader = batchResultLoader;
+      this.keyParameterObject = keyParameterObject;
+    }
+
+    @Override
+    public Object loadResult() throws SQLException {
+      resultObject = batchResultLoader.loadResult(keyParameterObject);
+      return resultObject;
+    }
+
+  }
+
+}
@@ -0,0 +1,389 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * The rows of a result set stored column by column. Numeric columns are stored in primitive arrays, character columns
+ * are dictionary-encoded, and other columns hold the objects returned by {@link ResultSet#getObject(int)}. SQL NULL
+ * values are recorded in a bitmap per column.
+ *
+ * @since 3.5.4
+ */
+public class ColumnBatch {
+
+  private final List<String> columnNames;
+  private final List<Column> columns;
+  private final int rowCount;
+
+  ColumnBatch(List<String> columnNames, List<Column> columns, int rowCount) {
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.columns = Collections.unmodifiableList(columns);
+    this.rowCount = rowCount;
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.size();
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  /**
+   * @param index the 0-based index of the column
+   * @return the column
+   */
+  public Column getColumn(int index) {
+    return columns.get(index);
+  }
+
+  /**
+   * @param name the name of the column, ignoring case
+   * @return the first column with the name, or {@code null} if there is none
+   */
+  public Column getColumn(String name) {
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).equalsIgnoreCase(name)) {
+        return columns.get(i);
+      }
+    }
+    return null;
+  }
+
+  static Column newColumn(String name, JdbcType jdbcType) {
+    if (jdbcType == null) {
+      return new ObjectColumn(name);
+    }
+    switch (jdbcType) {
+      case BIGINT:
+        return new LongColumn(name);
+      case INTEGER:
+      case SMALLINT:
+      case TINYINT:
+        return new IntColumn(name);
+      case DOUBLE:
+      case FLOAT:
+      case REAL:
+        return new DoubleColumn(name);
+      case CHAR:
+      case VARCHAR:
+      case LONGVARCHAR:
+      case NCHAR:
+      case NVARCHAR:
+      case LONGNVARCHAR:
+        return new StringColumn(name);
+      default:
+        return new ObjectColumn(name);
+    }
+  }
+
+  /**
+   * A column of a batch. The values of the rows are read with the getters of the subclasses, or as objects with
+   * {@link #getObject(int)}.
+   */
+  public abstract static class Column {
+
+    private final String name;
+    protected final BitSet nulls = new BitSet();
+    protected int size;
+
+    Column(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public boolean isNull(int row) {
+      return nulls.get(row);
+    }
+
+    /**
+     * @return the rows whose value is SQL NULL
+     */
+    public BitSet getNulls() {
+      return (BitSet) nulls.clone();
+    }
+
+    /**
+     * @param row the 0-based index of the row
+     * @return the value of the row, boxed, or {@code null}
+     */
+    public abstract Object getObject(int row);
+
+    abstract void read(ResultSet rs, int columnIndex) throws SQLException;
+
+    abstract void trim();
+
+    protected int newCapacity(int length) {
+      return length == 0 ? 16 : length + (length >> 1);
+    }
+
+  }
+
+  public static final class LongColumn extends Column {
+
+    private long[] values = new long[0];
+
+    LongColumn(String name) {
+      super(name);
+    }
+
+    public long getLong(int row) {
+      return values[row];
+    }
+
+    /**
+     * @return the values, with zero for SQL NULL
+     */
+    public long[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex) throws SQLException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, newCapacity(values.length));
+      }
+      values[size] = rs.getLong(columnIndex);
+      if (rs.wasNull()) {
+        nulls.set(size);
+      }
+      size++;
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+  }
+
+  public static final class IntColumn extends Column {
+
+    private int[] values = new int[0];
+
+    IntColumn(String name) {
+      super(name);
+    }
+
+    public int getInt(int row) {
+      return values[row];
+    }
+
+    /**
+     * @return the values, with zero for SQL NULL
+     */
+    public int[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex) throws SQLException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, newCapacity(values.length));
+      }
+      values[size] = rs.getInt(columnIndex);
+      if (rs.wasNull()) {
+        nulls.set(size);
+      }
+      size++;
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+  }
+
+  public static final class DoubleColumn extends Column {
+
+    private double[] values = new double[0];
+
+    DoubleColumn(String name) {
+      super(name);
+    }
+
+    public double getDouble(int row) {
+      return values[row];
+    }
+
+    /**
+     * @return the values, with zero for SQL NULL
+     */
+    public double[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex) throws SQLException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, newCapacity(values.length));
+      }
+      values[size] = rs.getDouble(columnIndex);
+      if (rs.wasNull()) {
+        nulls.set(size);
+      }
+      size++;
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+  }
+
+  /**
+   * A dictionary-encoded column of strings: each row holds the code of its value in the dictionary, or -1 for SQL
+   * NULL.
+   */
+  public static final class StringColumn extends Column {
+
+    private int[] codes = new int[0];
+    private List<String> dictionary = new ArrayList<>();
+    private Map<String, Integer> dictionaryCodes = new HashMap<>();
+
+    StringColumn(String name) {
+      super(name);
+    }
+
+    public String getString(int row) {
+      final int code = codes[row];
+      return code < 0 ? null : dictionary.get(code);
+    }
+
+    public int[] getCodes() {
+      return codes;
+    }
+
+    public List<String> getDictionary() {
+      return dictionary;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return getString(row);
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex) throws SQLException {
+      if (size == codes.length) {
+        codes = Arrays.copyOf(codes, newCapacity(codes.length));
+      }
+      final String value = rs.getString(columnIndex);
+      if (value == null) {
+        nulls.set(size);
+        codes[size] = -1;
+      } else {
+        Integer code = dictionaryCodes.get(value);
+        if (code == null) {
+          code = dictionary.size();
+          dictionary.add(value);
+          dictionaryCodes.put(value, code);
+        }
+        codes[size] = code;
+      }
+      size++;
+    }
+
+    @Override
+    void trim() {
+      codes = Arrays.copyOf(codes, size);
+      dictionary = Collections.unmodifiableList(dictionary);
+      dictionaryCodes = null;
+    }
+
+  }
+
+  public static final class ObjectColumn extends Column {
+
+    private Object[] values = new Object[0];
+
+    ObjectColumn(String name) {
+      super(name);
+    }
+
+    public Object[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getObject(int row) {
+      return values[row];
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex) throws SQLException {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, newCapacity(values.length));
+      }
+      final Object value = rs.getObject(columnIndex);
+      if (value == null) {
+        nulls.set(size);
+      }
+      values[size++] = value;
+    }
+
+    @Override
+    void trim() {
+      values = Arrays.copyOf(values, size);
+    }
+
+  }
+
+}
@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Stores the rows of the result sets of a statement column by column in {@link ColumnBatch}es. The columns are taken
+ * as the result set returns them: result maps and type handlers are not applied.
+ * <p>
+ * Without a batch size, each result set becomes one batch, available from {@link #getColumnBatches()} once the
+ * statement has run. With a batch size, a batch is handed to the consumer every time it is full and at the end of each
+ * result set, so that only one batch is kept in memory.
+ *
+ * @since 3.5.4
+ */
+public class ColumnBatchResultHandler implements ResultHandler<Object> {
+
+  private final int batchSize;
+  private final Consumer<ColumnBatch> consumer;
+  private final List<ColumnBatch> columnBatches = new ArrayList<>();
+  private List<String> columnNames;
+  private List<JdbcType> jdbcTypes;
+  private List<ColumnBatch.Column> columns;
+  private int rowCount;
+  private boolean flushed;
+
+  public ColumnBatchResultHandler() {
+    this(0, null);
+  }
+
+  /**
+   * @param batchSize the number of rows of a batch, or zero or less for one batch per result set
+   * @param consumer the consumer of the batches, or {@code null} to keep them in {@link #getColumnBatches()}
+   */
+  public ColumnBatchResultHandler(int batchSize, Consumer<ColumnBatch> consumer) {
+    this.batchSize = batchSize;
+    this.consumer = consumer;
+  }
+
+  /**
+   * Starts a new result set.
+   *
+   * @param columnNames the names of the columns
+   * @param jdbcTypes the JDBC types of the columns
+   */
+  public void startResultSet(List<String> columnNames, List<JdbcType> jdbcTypes) {
+    this.columnNames = columnNames;
+    this.jdbcTypes = jdbcTypes;
+    this.flushed = false;
+    newColumns();
+  }
+
+  /**
+   * Reads the columns of the current row.
+   *
+   * @param rs the result set, positioned on the row
+   * @throws SQLException if a value cannot be read
+   */
+  public void handleRow(ResultSet rs) throws SQLException {
+    for (int i = 0; i < columns.size(); i++) {
+      columns.get(i).read(rs, i + 1);
+    }
+    rowCount++;
+    if (batchSize > 0 && rowCount >= batchSize) {
+      flush();
+      newColumns();
+    }
+  }
+
+  /**
+   * Ends the current result set, handing out the rows read since the last batch. A result set without rows is handed
+   * out as an empty batch.
+   */
+  public void endResultSet() {
+    if (rowCount > 0 || !flushed) {
+      flush();
+    }
+    columns = null;
+  }
+
+  @Override
+  public void handleResult(ResultContext<?> context) {
+    throw new ExecutorException("A ColumnBatchResultHandler reads the result set itself and cannot handle mapped objects. "
+        + "The result set handler does not support columnar results.");
+  }
+
+  /**
+   * @return the batches read so far, when there is no consumer
+   */
+  public List<ColumnBatch> getColumnBatches() {
+    return columnBatches;
+  }
+
+  private void newColumns() {
+    columns = new ArrayList<>(columnNames.size());
+    for (int i = 0; i < columnNames.size(); i++) {
+      columns.add(ColumnBatch.newColumn(columnNames.get(i), jdbcTypes.get(i)));
+    }
+    rowCount = 0;
+  }
+
+  private void flush() {
+    for (ColumnBatch.Column column : columns) {
+      column.trim();
+    }
+    final ColumnBatch batch = new ColumnBatch(new ArrayList<>(columnNames), columns, rowCount);
+    if (consumer == null) {
+      columnBatches.add(batch);
+    } else {
+      consumer.accept(batch);
+    }
+    flushed = true;
+  }
+
+}
@@ -0,0 +1,54 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Collects a single numeric column into a {@code long[]}.
+ *
+ * @since 3.5.4
+ */
+public class LongArrayResultHandler extends PrimitiveArrayResultHandler {
+
+  private long[] values = new long[0];
+
+  @Override
+  public void handleColumn(ResultSet rs, int columnIndex) throws SQLException {
+    final long value = rs.getLong(columnIndex);
+    checkNotNull(rs, columnIndex);
+    add(value);
+  }
+
+  @Override
+  protected void add(Number value) {
+    add(value.longValue());
+  }
+
+  private void add(long value) {
+    if (size == values.length) {
+      values = Arrays.copyOf(values, newCapacity(values.length));
+    }
+    values[size++] = value;
+  }
+
+  public long[] toArray() {
+    return Arrays.copyOf(values, size);
+  }
+
+}
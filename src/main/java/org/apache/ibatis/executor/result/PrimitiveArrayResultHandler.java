@@ -0,0 +1,72 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+/**
+ * Collects a single numeric column into a growable primitive array. When the rows are simple values of a built-in type
+ * handler, the result set handler calls {@link #handleColumn(ResultSet, int)} for each row so that the value is read
+ * with the primitive getter of the result set, without the type handler and without boxing. Otherwise the mapped objects are passed to
+ * {@link #handleResult(ResultContext)} and must be numbers. SQL NULL values cannot be stored and are rejected.
+ *
+ * @since 3.5.4
+ */
+public abstract class PrimitiveArrayResultHandler implements ResultHandler<Object> {
+
+  protected int size;
+
+  /**
+   * Reads the value of a column of the current row.
+   *
+   * @param rs the result set, positioned on the row
+   * @param columnIndex the index of the column
+   * @throws SQLException if the value cannot be read
+   */
+  public abstract void handleColumn(ResultSet rs, int columnIndex) throws SQLException;
+
+  protected abstract void add(Number value);
+
+  @Override
+  public void handleResult(ResultContext<?> context) {
+    final Object value = context.getResultObject();
+    if (!(value instanceof Number)) {
+      throw new ResultMapException("Cannot store " + (value == null ? "a null value" : "a value of " + value.getClass())
+          + " in a primitive array, row " + context.getResultCount() + ".");
+    }
+    add((Number) value);
+  }
+
+  protected void checkNotNull(ResultSet rs, int columnIndex) throws SQLException {
+    if (rs.wasNull()) {
+      throw new ResultMapException("Cannot store a null value in a primitive array, column " + columnIndex
+          + " of row " + (size + 1) + ".");
+    }
+  }
+
+  protected int newCapacity(int length) {
+    return length == 0 ? 16 : length + (length >> 1);
+  }
+
+  public int size() {
+    return size;
+  }
+
+}
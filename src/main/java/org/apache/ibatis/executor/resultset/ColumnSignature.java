@@ -0,0 +1,82 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * The columns of a result set and what the result set handler resolves from them: type handlers, mapped and unmapped
+ * columns of result maps, column indexes, automatic mappings and compiled row mappers. The signatures are kept by the
+ * statement, so the result sets it returns with the same columns share them and each is resolved only once.
+ *
+ * @since 3.5.4
+ */
+public final class ColumnSignature {
+
+  final boolean mapUnderscoreToCamelCase;
+  final List<String> columnNames;
+  final List<String> classNames;
+  final List<JdbcType> jdbcTypes;
+  final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new ConcurrentHashMap<>();
+  final Map<String, List<String>> mappedColumnNamesMap = new ConcurrentHashMap<>();
+  final Map<String, List<String>> unMappedColumnNamesMap = new ConcurrentHashMap<>();
+  final Map<String, Integer> columnIndexMap = new ConcurrentHashMap<>();
+  final Map<String, List<DefaultResultSetHandler.UnMappedColumnAutoMapping>> autoMappingsMap = new ConcurrentHashMap<>();
+  final Map<String, CompiledRowMapper> compiledRowMappers = new ConcurrentHashMap<>();
+
+  ColumnSignature(boolean mapUnderscoreToCamelCase, List<String> columnNames, List<String> classNames,
+      List<JdbcType> jdbcTypes) {
+    this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+    this.columnNames = Collections.unmodifiableList(columnNames);
+    this.classNames = Collections.unmodifiableList(classNames);
+    this.jdbcTypes = Collections.unmodifiableList(jdbcTypes);
+  }
+
+  // automatic mappings depend on mapUnderscoreToCamelCase, it is compared in case it changes at runtime
+  boolean matches(boolean mapUnderscoreToCamelCase, List<String> columnNames, List<String> classNames,
+      List<JdbcType> jdbcTypes) {
+    return this.mapUnderscoreToCamelCase == mapUnderscoreToCamelCase && this.columnNames.equals(columnNames)
+        && this.classNames.equals(classNames) && this.jdbcTypes.equals(jdbcTypes);
+  }
+
+  public List<String> getColumnNames() {
+    return columnNames;
+  }
+
+  public List<String> getClassNames() {
+    return classNames;
+  }
+
+  public List<JdbcType> getJdbcTypes() {
+    return jdbcTypes;
+  }
+
+  /**
+   * @param resultMapId the id of a result map
+   * @return the row mapper compiled for the result map and these columns, or {@code null} if there is none
+   */
+  public CompiledRowMapper getCompiledRowMapper(String resultMapId) {
+    final CompiledRowMapper rowMapper = compiledRowMappers.get(resultMapId);
+    return rowMapper == CompiledRowMapper.UNSUPPORTED ? null : rowMapper;
+  }
+
+}
@@ -0,0 +1,73 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * The column signatures of the result sets a statement has returned. A statement usually returns one or a few shapes
+ * of columns, so the signatures are kept in a small array that is replaced on every addition: lookups never block and
+ * are compared by columns, without building a key.
+ *
+ * @since 3.5.4
+ */
+public final class ColumnSignatures {
+
+  private static final ColumnSignature[] EMPTY = new ColumnSignature[0];
+
+  private volatile ColumnSignature[] signatures = EMPTY;
+
+  ColumnSignature find(boolean mapUnderscoreToCamelCase, List<String> columnNames, List<String> classNames,
+      List<JdbcType> jdbcTypes) {
+    for (ColumnSignature signature : signatures) {
+      if (signature.matches(mapUnderscoreToCamelCase, columnNames, classNames, jdbcTypes)) {
+        return signature;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Adds a signature unless an equal one was added meanwhile, evicting the oldest ones beyond the maximum size.
+   *
+   * @return the signature to use
+   */
+  synchronized ColumnSignature add(ColumnSignature signature, int maxSize) {
+    final ColumnSignature existing = find(signature.mapUnderscoreToCamelCase, signature.columnNames,
+        signature.classNames, signature.jdbcTypes);
+    if (existing != null) {
+      return existing;
+    }
+    final ColumnSignature[] current = signatures;
+    final int kept = Math.min(current.length, maxSize - 1);
+    final ColumnSignature[] updated = Arrays.copyOfRange(current, current.length - kept, current.length + 1);
+    updated[kept] = signature;
+    signatures = updated;
+    return signature;
+  }
+
+  /**
+   * @return the signatures kept, oldest first
+   */
+  public List<ColumnSignature> getSignatures() {
+    return Collections.unmodifiableList(Arrays.asList(signatures));
+  }
+
+}
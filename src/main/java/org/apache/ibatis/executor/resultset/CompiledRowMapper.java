@@ -0,0 +1,203 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyNamer;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Maps the rows of a result set with a given column shape to a flat bean. The columns and setters are resolved
+ * once: each row is mapped by reading the columns by index and calling the setters directly, without a
+ * {@link org.apache.ibatis.reflection.MetaObject}. Public setters are called through method handles, other
+ * properties through the invokers of the {@link Reflector}.
+ * <p>
+ * Instances are built by {@link DefaultResultSetHandler} for the result maps it supports and cached in the
+ * {@link ColumnSignature} of the result set.
+ *
+ * @since 3.5.4
+ */
+public final class CompiledRowMapper {
+
+  /**
+   * Marks a result map and column shape that the interpreter has to map.
+   */
+  static final CompiledRowMapper UNSUPPORTED = new CompiledRowMapper(null, null, new ColumnSetter[0], false);
+
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final ObjectFactory objectFactory;
+  private final Class<?> type;
+  private final ColumnSetter[] setters;
+  private final boolean returnInstanceForEmptyRow;
+
+  private CompiledRowMapper(ObjectFactory objectFactory, Class<?> type, ColumnSetter[] setters, boolean returnInstanceForEmptyRow) {
+    this.objectFactory = objectFactory;
+    this.type = type;
+    this.setters = setters;
+    this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+  }
+
+  Object map(ResultSet rs) throws SQLException {
+    Object rowValue = objectFactory.create(type);
+    boolean foundValues = false;
+    for (ColumnSetter setter : setters) {
+      foundValues = setter.apply(rs, rowValue) || foundValues;
+    }
+    return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+  }
+
+  static class Builder {
+
+    private final Configuration configuration;
+    private final Class<?> type;
+    private final Reflector reflector;
+    private final List<ColumnSetter> setters = new ArrayList<>();
+
+    Builder(Configuration configuration, Class<?> type) {
+      this.configuration = configuration;
+      this.type = type;
+      this.reflector = configuration.getReflectorFactory().findForClass(type);
+    }
+
+    /**
+     * Adds a column read by the given type handler and set to a property.
+     *
+     * @return false if the property cannot be set directly
+     */
+    boolean column(int columnIndex, String property, TypeHandler<?> typeHandler) {
+      if (columnIndex < 1 || property.indexOf('.') >= 0 || property.indexOf('[') >= 0 || !reflector.hasSetter(property)) {
+        return false;
+      }
+      Class<?> setterType = reflector.getSetterType(property);
+      boolean setNulls = configuration.isCallSettersOnNulls() && !setterType.isPrimitive();
+      MethodHandle handle = findSetter(property, setterType);
+      if (handle != null) {
+        setters.add(new MethodHandleSetter(columnIndex, property, typeHandler, setNulls, handle));
+      } else {
+        setters.add(new InvokerSetter(columnIndex, property, typeHandler, setNulls, reflector.getSetInvoker(property)));
+      }
+      return true;
+    }
+
+    private MethodHandle findSetter(String property, Class<?> setterType) {
+      for (Method method : type.getMethods()) {
+        if (method.getParameterCount() == 1 && PropertyNamer.isSetter(method.getName())
+            && method.getParameterTypes()[0].equals(setterType)
+            && property.equals(PropertyNamer.methodToProperty(method.getName()))) {
+          try {
+            return MethodHandles.publicLookup().unreflect(method).asType(SETTER_TYPE);
+          } catch (IllegalAccessException e) {
+            // the class is not public, use the invoker
+            return null;
+          }
+        }
+      }
+      return null;
+    }
+
+    CompiledRowMapper build() {
+      return new CompiledRowMapper(configuration.getObjectFactory(), type, setters.toArray(new ColumnSetter[0]),
+          configuration.isReturnInstanceForEmptyRow());
+    }
+
+  }
+
+  private abstract static class ColumnSetter {
+
+    private final int columnIndex;
+    protected final String property;
+    private final TypeHandler<?> typeHandler;
+    private final boolean setNulls;
+
+    ColumnSetter(int columnIndex, String property, TypeHandler<?> typeHandler, boolean setNulls) {
+      this.columnIndex = columnIndex;
+      this.property = property;
+      this.typeHandler = typeHandler;
+      this.setNulls = setNulls;
+    }
+
+    boolean apply(ResultSet rs, Object rowValue) throws SQLException {
+      Object value = typeHandler.getResult(rs, columnIndex);
+      if (value != null || setNulls) {
+        // gcode issue #377, call setter on nulls (value is not 'found')
+        try {
+          set(rowValue, value);
+        } catch (Throwable t) {
+          throw new ReflectionException("Could not set property '" + property + "' of '" + rowValue.getClass()
+              + "' with value '" + value + "' Cause: " + t.toString(), t);
+        }
+      }
+      return value != null;
+    }
+
+    abstract void set(Object rowValue, Object value) throws Throwable;
+
+  }
+
+  private static class MethodHandleSetter extends ColumnSetter {
+
+    private final MethodHandle handle;
+
+    MethodHandleSetter(int columnIndex, String property, TypeHandler<?> typeHandler, boolean setNulls, MethodHandle handle) {
+      super(columnIndex, property, typeHandler, setNulls);
+      this.handle = handle;
+    }
+
+    @Override
+    @UsesJava7 // invokeExact is signature polymorphic, the handle is adapted to (Object, Object)void
+    void set(Object rowValue, Object value) throws Throwable {
+      handle.invokeExact(rowValue, value);
+    }
+
+  }
+
+  private static class InvokerSetter extends ColumnSetter {
+
+    private final Invoker invoker;
+
+    InvokerSetter(int columnIndex, String property, TypeHandler<?> typeHandler, boolean setNulls, Invoker invoker) {
+      super(columnIndex, property, typeHandler, setNulls);
+      this.invoker = invoker;
+    }
+
+    @Override
+    void set(Object rowValue, Object value) throws Throwable {
+      try {
+        invoker.invoke(rowValue, new Object[] { value });
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+  }
+
+}
@@ -21,8 +21,10 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -33,14 +35,18 @@ import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.loader.BatchResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnBatchResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
+import org.apache.ibatis.executor.result.PrimitiveArrayResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.Discriminator;
@@ -53,14 +59,19 @@ import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.DoubleTypeHandler;
+import org.apache.ibatis.type.IntegerTypeHandler;
 import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.LongTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
+import org.apache.ibatis.type.UnknownTypeHandler;
 
 /**
  * @author Clinton Begin
@@ -71,6 +82,8 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  private static final Set<Class<?>> PRIMITIVE_TYPE_HANDLERS = new HashSet<>(
+      Arrays.asList(LongTypeHandler.class, IntegerTypeHandler.class, DoubleTypeHandler.class));
 
   private final Executor executor;
   private final Configuration configuration;
@@ -92,8 +105,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
-  // Cached Automappings
-  private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
+  // batched nested queries
+  private final Map<ResultMapping, BatchResultLoader> batchResultLoaders = new IdentityHashMap<>();
+  private final List<PendingBatchValue> pendingBatchValues = new ArrayList<>();
+  private boolean deferBatchValues;
+  // cursors require ordered rows, nested results are always streamed one parent at a time
+  private boolean cursorResults;
+
+  // compiled row mappers of the current result set
+  private final Map<ResultMap, CompiledRowMapper> compiledRowMappers = new IdentityHashMap<>();
+  private ResultSetWrapper compiledRowMappersResultSet;
 
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   private boolean useConstructorMappings;
@@ -103,7 +124,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
-  private static class UnMappedColumnAutoMapping {
+  private static class PendingBatchValue {
+    public MetaObject metaObject;
+    public String property;
+    public BatchResultLoader batchResultLoader;
+    public Object parameterObject;
+  }
+
+  static class UnMappedColumnAutoMapping {
     private final String column;
     private final String property;
     private final TypeHandler<?> typeHandler;
@@ -160,7 +188,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     try {
       final String resultMapId = parameterMapping.getResultMapId();
       final ResultMap resultMap = configuration.getResultMap(resultMapId);
-      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration, mappedStatement);
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -182,6 +210,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
 
     final List<Object> multipleResults = new ArrayList<>();
+    // batched values can wait for the last row unless the rows are handed to a result handler as they come
+    deferBatchValues = resultHandler == null;
 
     int resultSetCount = 0;
     ResultSetWrapper rsw = getFirstResultSet(stmt);
@@ -212,6 +242,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
 
+    loadPendingBatchValues();
     return collapseSingleResultList(multipleResults);
   }
 
@@ -230,7 +261,14 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
 
     ResultMap resultMap = resultMaps.get(0);
-    return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    cursorResults = true;
+    Cursor<E> cursor = new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    int prefetchDepth = configuration.getCursorPrefetchDepth();
+    if (prefetchDepth > 0 && !resultMap.hasNestedQueries()) {
+      // nested selects would use the executor of the session from the prefetching thread
+      return new PrefetchingCursor<>(cursor, prefetchDepth);
+    }
+    return cursor;
   }
 
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
@@ -247,7 +285,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+    return rs != null ? new ResultSetWrapper(rs, configuration, mappedStatement) : null;
   }
 
   private ResultSetWrapper getNextResultSet(Statement stmt) {
@@ -260,7 +298,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           if (rs == null) {
             return getNextResultSet(stmt);
           } else {
-            return new ResultSetWrapper(rs, configuration);
+            return new ResultSetWrapper(rs, configuration, mappedStatement);
           }
         }
       }
@@ -300,6 +338,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           DefaultResultHandler defaultResultHandler = new DefaultResultHandler(objectFactory);
           handleRowValues(rsw, resultMap, defaultResultHandler, rowBounds, null);
           multipleResults.add(defaultResultHandler.getResultList());
+        } else if (resultHandler instanceof ColumnBatchResultHandler) {
+          handleColumnBatchRowValues(rsw, (ColumnBatchResultHandler) resultHandler, rowBounds);
+        } else if (resultHandler instanceof PrimitiveArrayResultHandler && isPrimitiveResultMap(rsw, resultMap)) {
+          handlePrimitiveRowValues(rsw, resultMap, (PrimitiveArrayResultHandler) resultHandler, rowBounds);
         } else {
           handleRowValues(rsw, resultMap, resultHandler, rowBounds, null);
         }
@@ -315,6 +357,68 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return multipleResults.size() == 1 ? (List<Object>) multipleResults.get(0) : multipleResults;
   }
 
+  //
+  // HANDLE ROWS FOR PRIMITIVE ARRAYS
+  //
+
+  private boolean isPrimitiveResultMap(ResultSetWrapper rsw, ResultMap resultMap) {
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null
+        || !hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      return false;
+    }
+    final String columnName;
+    if (!resultMap.getResultMappings().isEmpty()) {
+      final ResultMapping mapping = resultMap.getResultMappings().get(0);
+      final TypeHandler<?> mappingTypeHandler = mapping.getTypeHandler();
+      if (mapping.getColumn() == null || mappingTypeHandler != null && !(mappingTypeHandler instanceof UnknownTypeHandler)
+          && !PRIMITIVE_TYPE_HANDLERS.contains(mappingTypeHandler.getClass())) {
+        return false;
+      }
+      columnName = mapping.getColumn();
+    } else {
+      columnName = rsw.getColumnNames().get(0);
+    }
+    // the values are read without the type handler, which is only right for the built-in ones
+    final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultMap.getType(), columnName);
+    return typeHandler != null && PRIMITIVE_TYPE_HANDLERS.contains(typeHandler.getClass());
+  }
+
+  private void handlePrimitiveRowValues(ResultSetWrapper rsw, ResultMap resultMap, PrimitiveArrayResultHandler resultHandler, RowBounds rowBounds)
+      throws SQLException {
+    final ResultSet resultSet = rsw.getResultSet();
+    int columnIndex = 1;
+    if (!resultMap.getResultMappings().isEmpty()) {
+      // the first mapped column, like createPrimitiveResultObject
+      final String column = resultMap.getResultMappings().get(0).getColumn();
+      columnIndex = rsw.getColumnIndex(column);
+      if (columnIndex < 0) {
+        columnIndex = resultSet.findColumn(column);
+      }
+    }
+    skipRows(resultSet, rowBounds);
+    int resultCount = 0;
+    while (resultCount < rowBounds.getLimit() && !resultSet.isClosed() && resultSet.next()) {
+      resultHandler.handleColumn(resultSet, columnIndex);
+      resultCount++;
+    }
+  }
+
+  //
+  // HANDLE ROWS FOR COLUMN BATCHES
+  //
+
+  private void handleColumnBatchRowValues(ResultSetWrapper rsw, ColumnBatchResultHandler resultHandler, RowBounds rowBounds) throws SQLException {
+    final ResultSet resultSet = rsw.getResultSet();
+    resultHandler.startResultSet(rsw.getColumnNames(), rsw.getJdbcTypes());
+    skipRows(resultSet, rowBounds);
+    int resultCount = 0;
+    while (resultCount < rowBounds.getLimit() && !resultSet.isClosed() && resultSet.next()) {
+      resultHandler.handleRow(resultSet);
+      resultCount++;
+    }
+    resultHandler.endResultSet();
+  }
+
   //
   // HANDLE ROWS FOR SIMPLE RESULTMAP
   //
@@ -351,7 +455,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     skipRows(resultSet, rowBounds);
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      Object rowValue = getRowValue(rsw, discriminatedResultMap, null);
+      CompiledRowMapper rowMapper = configuration.isCompiledRowMappingEnabled() ? getCompiledRowMapper(rsw, discriminatedResultMap) : null;
+      Object rowValue = rowMapper != null ? rowMapper.map(resultSet) : getRowValue(rsw, discriminatedResultMap, null);
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
     }
   }
@@ -420,6 +525,63 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  //
+  // COMPILED ROW MAPPERS
+  //
+
+  private CompiledRowMapper getCompiledRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (compiledRowMappersResultSet != rsw) {
+      compiledRowMappers.clear();
+      compiledRowMappersResultSet = rsw;
+    }
+    CompiledRowMapper rowMapper = compiledRowMappers.get(resultMap);
+    if (rowMapper == null) {
+      rowMapper = rsw.getSignature().compiledRowMappers.get(resultMap.getId());
+      if (rowMapper == null) {
+        rowMapper = compileRowMapper(rsw, resultMap);
+        rsw.getSignature().compiledRowMappers.put(resultMap.getId(), rowMapper);
+      }
+      compiledRowMappers.put(resultMap, rowMapper);
+    }
+    return rowMapper == CompiledRowMapper.UNSUPPORTED ? null : rowMapper;
+  }
+
+  private CompiledRowMapper compileRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || !resultMap.getConstructorResultMappings().isEmpty()
+        || !configuration.isUseColumnLabel() || resultType.isInterface() || hasTypeHandlerForResultObject(rsw, resultType)
+        || !MetaClass.forClass(resultType, reflectorFactory).hasDefaultConstructor()) {
+      return CompiledRowMapper.UNSUPPORTED;
+    }
+    final MetaObject metaObject = configuration.newMetaObject(objectFactory.create(resultType));
+    if (!(metaObject.getObjectWrapper() instanceof BeanWrapper)) {
+      // maps, collections and custom wrappers
+      return CompiledRowMapper.UNSUPPORTED;
+    }
+    final CompiledRowMapper.Builder builder = new CompiledRowMapper.Builder(configuration, resultType);
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, null)) {
+        if (!builder.column(rsw.getColumnIndex(mapping.column), mapping.property, mapping.typeHandler)) {
+          return CompiledRowMapper.UNSUPPORTED;
+        }
+      }
+    }
+    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, null);
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.isCompositeResult() || propertyMapping.getResultSet() != null) {
+        return CompiledRowMapper.UNSUPPORTED;
+      }
+      final String column = propertyMapping.getColumn();
+      if (propertyMapping.getProperty() == null || column == null || !mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
+        continue;
+      }
+      if (!builder.column(rsw.getColumnIndex(column), propertyMapping.getProperty(), propertyMapping.getTypeHandler())) {
+        return CompiledRowMapper.UNSUPPORTED;
+      }
+    }
+    return builder.build();
+  }
+
   //
   // PROPERTY MAPPINGS
   //
@@ -438,7 +600,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       if (propertyMapping.isCompositeResult()
           || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw, metaObject, propertyMapping, lazyLoader, columnPrefix);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -459,8 +621,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
+  private Object getPropertyMappingValue(ResultSetWrapper rsw, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
+    final ResultSet rs = rsw.getResultSet();
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -469,13 +632,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      return typeHandler.getResult(rs, column);
+      return getColumnValue(rsw, typeHandler, column);
     }
   }
 
+  private Object getColumnValue(ResultSetWrapper rsw, TypeHandler<?> typeHandler, String column) throws SQLException {
+    final int columnIndex = rsw.getColumnIndex(column);
+    if (columnIndex > 0) {
+      return typeHandler.getResult(rsw.getResultSet(), columnIndex);
+    }
+    return typeHandler.getResult(rsw.getResultSet(), column);
+  }
+
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
-    final String mapKey = resultMap.getId() + ":" + columnPrefix;
-    List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
+    List<UnMappedColumnAutoMapping> autoMapping = rsw.getAutoMappings(resultMap, columnPrefix);
     if (autoMapping == null) {
       autoMapping = new ArrayList<>();
       final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
@@ -508,7 +678,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
         }
       }
-      autoMappingsCache.put(mapKey, autoMapping);
+      rsw.putAutoMappings(resultMap, columnPrefix, autoMapping);
     }
     return autoMapping;
   }
@@ -518,7 +688,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = getColumnValue(rsw, mapping.typeHandler, mapping.column);
         if (value != null) {
           foundValues = true;
         }
@@ -635,7 +805,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           value = getRowValue(rsw, resultMap, getColumnPrefix(columnPrefix, constructorMapping));
         } else {
           final TypeHandler<?> typeHandler = constructorMapping.getTypeHandler();
-          value = typeHandler.getResult(rsw.getResultSet(), prependPrefix(column, columnPrefix));
+          value = getColumnValue(rsw, typeHandler, prependPrefix(column, columnPrefix));
         }
       } catch (ResultMapException | SQLException e) {
         throw new ExecutorException("Could not process result for mapping: " + constructorMapping, e);
@@ -668,7 +838,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       Class<?> parameterType = constructor.getParameterTypes()[i];
       String columnName = rsw.getColumnNames().get(i);
       TypeHandler<?> typeHandler = rsw.getTypeHandler(parameterType, columnName);
-      Object value = typeHandler.getResult(rsw.getResultSet(), columnName);
+      Object value = getColumnValue(rsw, typeHandler, columnName);
       constructorArgTypes.add(parameterType);
       constructorArgs.add(value);
       foundValues = value != null || foundValues;
@@ -713,7 +883,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       columnName = rsw.getColumnNames().get(0);
     }
     final TypeHandler<?> typeHandler = rsw.getTypeHandler(resultType, columnName);
-    return typeHandler.getResult(rsw.getResultSet(), columnName);
+    return getColumnValue(rsw, typeHandler, columnName);
   }
 
   //
@@ -721,6 +891,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private Object getNestedQueryConstructorValue(ResultSet rs, ResultMapping constructorMapping, String columnPrefix) throws SQLException {
+    if (constructorMapping.getBatchKey() != null) {
+      // a constructor argument is needed right away
+      final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, constructorMapping, null, columnPrefix);
+      return nestedQueryParameterObject == null ? null : getBatchResultLoader(constructorMapping).loadResult(nestedQueryParameterObject);
+    }
     final String nestedQueryId = constructorMapping.getNestedQueryId();
     final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
     final Class<?> nestedQueryParameterType = nestedQuery.getParameterMap().getType();
@@ -738,6 +913,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private Object getNestedQueryMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
+    if (propertyMapping.getBatchKey() != null) {
+      return getBatchedNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
+    }
     final String nestedQueryId = propertyMapping.getNestedQueryId();
     final String property = propertyMapping.getProperty();
     final MappedStatement nestedQuery = configuration.getMappedStatement(nestedQueryId);
@@ -764,6 +942,48 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return value;
   }
 
+  private Object getBatchedNestedQueryMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping,
+      ResultLoaderMap lazyLoader, String columnPrefix) throws SQLException {
+    // the nested query receives a list of keys, not the key of this row alone
+    final Object nestedQueryParameterObject = prepareParameterForNestedQuery(rs, propertyMapping, null, columnPrefix);
+    if (nestedQueryParameterObject == null) {
+      return null;
+    }
+    final BatchResultLoader batchResultLoader = getBatchResultLoader(propertyMapping);
+    if (propertyMapping.isLazy()) {
+      lazyLoader.addLoader(propertyMapping.getProperty(), metaResultObject, batchResultLoader.newResultLoader(nestedQueryParameterObject));
+      return DEFERRED;
+    } else if (deferBatchValues) {
+      batchResultLoader.addKey(nestedQueryParameterObject);
+      PendingBatchValue pendingBatchValue = new PendingBatchValue();
+      pendingBatchValue.metaObject = metaResultObject;
+      pendingBatchValue.property = propertyMapping.getProperty();
+      pendingBatchValue.batchResultLoader = batchResultLoader;
+      pendingBatchValue.parameterObject = nestedQueryParameterObject;
+      pendingBatchValues.add(pendingBatchValue);
+      return DEFERRED;
+    } else {
+      return batchResultLoader.loadResult(nestedQueryParameterObject);
+    }
+  }
+
+  private BatchResultLoader getBatchResultLoader(ResultMapping resultMapping) {
+    return batchResultLoaders.computeIfAbsent(resultMapping, mapping -> new BatchResultLoader(configuration, executor,
+        configuration.getMappedStatement(mapping.getNestedQueryId()), mapping));
+  }
+
+  private void loadPendingBatchValues() throws SQLException {
+    // the first value loads the keys of all the rows
+    for (PendingBatchValue pendingBatchValue : pendingBatchValues) {
+      Object value = pendingBatchValue.batchResultLoader.loadResult(pendingBatchValue.parameterObject);
+      if (value != null || (configuration.isCallSettersOnNulls()
+          && !pendingBatchValue.metaObject.getSetterType(pendingBatchValue.property).isPrimitive())) {
+        pendingBatchValue.metaObject.setValue(pendingBatchValue.property, value);
+      }
+    }
+    pendingBatchValues.clear();
+  }
+
   private Object prepareParameterForNestedQuery(ResultSet rs, ResultMapping resultMapping, Class<?> parameterType, String columnPrefix) throws SQLException {
     if (resultMapping.isCompositeResult()) {
       return prepareCompositeKeyParameter(rs, resultMapping, parameterType, columnPrefix);
@@ -860,7 +1080,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
       Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
-      if (mappedStatement.isResultOrdered()) {
+      if (isResultOrdered()) {
         if (partialObject == null && rowValue != null) {
           nestedResultObjects.clear();
           storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
@@ -873,7 +1093,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+    if (rowValue != null && isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
+      // the last parent is complete, nothing refers to its graph any more
+      nestedResultObjects.clear();
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
       previousRowValue = null;
     } else if (rowValue != null) {
@@ -881,6 +1103,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  private boolean isResultOrdered() {
+    return cursorResults || mappedStatement.isResultOrdered();
+  }
+
   //
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
@@ -979,7 +1205,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (notNullColumns != null && !notNullColumns.isEmpty()) {
       ResultSet rs = rsw.getResultSet();
       for (String column : notNullColumns) {
-        rs.getObject(prependPrefix(column, columnPrefix));
+        final String prefixedColumn = prependPrefix(column, columnPrefix);
+        final int columnIndex = rsw.getColumnIndex(prefixedColumn);
+        if (columnIndex > 0) {
+          rs.getObject(columnIndex);
+        } else {
+          rs.getObject(prefixedColumn);
+        }
         if (!rs.wasNull()) {
           return true;
         }
@@ -1059,7 +1291,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
+          final Object value = getColumnValue(rsw, th, column);
           if (value != null || configuration.isReturnInstanceForEmptyRow()) {
             cacheKey.update(column);
             cacheKey.update(value);
@@ -1083,7 +1315,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
+        String value = getStringValue(rsw, column);
         if (value != null) {
           cacheKey.update(column);
           cacheKey.update(value);
@@ -1095,7 +1327,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
+      final String value = getStringValue(rsw, columnName);
       if (value != null) {
         cacheKey.update(columnName);
         cacheKey.update(value);
@@ -1103,6 +1335,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  private String getStringValue(ResultSetWrapper rsw, String column) throws SQLException {
+    final int columnIndex = rsw.getColumnIndex(column);
+    return columnIndex > 0 ? rsw.getResultSet().getString(columnIndex) : rsw.getResultSet().getString(column);
+  }
+
   private void linkObjects(MetaObject metaObject, ResultMapping resultMapping, Object rowValue) {
     final Object collectionProperty = instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject);
     if (collectionProperty != null) {
@@ -20,13 +20,14 @@ import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
@@ -42,17 +43,34 @@ public class ResultSetWrapper {
 
   private final ResultSet resultSet;
   private final TypeHandlerRegistry typeHandlerRegistry;
-  private final List<String> columnNames = new ArrayList<>();
-  private final List<String> classNames = new ArrayList<>();
-  private final List<JdbcType> jdbcTypes = new ArrayList<>();
-  private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private final ColumnSignature signature;
+  private final List<String> columnNames;
+  private final List<String> classNames;
+  private final List<JdbcType> jdbcTypes;
+  private final boolean useColumnLabel;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
+    this(rs, configuration, null);
+  }
+
+  /**
+   * Wraps a result set returned by a statement. The signature of its columns is looked up in the statement, so that
+   * what was resolved for earlier result sets of the statement with the same columns is reused.
+   *
+   * @param rs the result set
+   * @param configuration the configuration
+   * @param mappedStatement the statement, or {@code null} to resolve everything for this result set only
+   * @throws SQLException if the metadata of the result set cannot be read
+   * @since 3.5.4
+   */
+  public ResultSetWrapper(ResultSet rs, Configuration configuration, MappedStatement mappedStatement) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+    this.useColumnLabel = configuration.isUseColumnLabel();
     this.resultSet = rs;
+    final List<String> columnNames = new ArrayList<>();
+    final List<String> classNames = new ArrayList<>();
+    final List<JdbcType> jdbcTypes = new ArrayList<>();
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
@@ -60,6 +78,25 @@ public class ResultSetWrapper {
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
     }
+    this.signature = getSignature(configuration, mappedStatement, columnNames, classNames, jdbcTypes);
+    this.columnNames = signature.columnNames;
+    this.classNames = signature.classNames;
+    this.jdbcTypes = signature.jdbcTypes;
+  }
+
+  private static ColumnSignature getSignature(Configuration configuration, MappedStatement mappedStatement,
+      List<String> columnNames, List<String> classNames, List<JdbcType> jdbcTypes) {
+    final boolean mapUnderscoreToCamelCase = configuration.isMapUnderscoreToCamelCase();
+    if (mappedStatement == null || configuration.getColumnSignatureCacheSize() <= 0) {
+      return new ColumnSignature(mapUnderscoreToCamelCase, columnNames, classNames, jdbcTypes);
+    }
+    final ColumnSignatures signatures = mappedStatement.getColumnSignatures();
+    final ColumnSignature signature = signatures.find(mapUnderscoreToCamelCase, columnNames, classNames, jdbcTypes);
+    if (signature != null) {
+      return signature;
+    }
+    return signatures.add(new ColumnSignature(mapUnderscoreToCamelCase, columnNames, classNames, jdbcTypes),
+        configuration.getColumnSignatureCacheSize());
   }
 
   public ResultSet getResultSet() {
@@ -71,7 +108,7 @@ public class ResultSetWrapper {
   }
 
   public List<String> getClassNames() {
-    return Collections.unmodifiableList(classNames);
+    return classNames;
   }
 
   public List<JdbcType> getJdbcTypes() {
@@ -87,6 +124,34 @@ public class ResultSetWrapper {
     return null;
   }
 
+  /**
+   * Gets the 1-based index of a column, resolved once per result set.
+   * Like {@link ResultSet#findColumn(String)}, the first column whose label matches ignoring case wins.
+   * Returns -1 if there is no such column or if the column names are not labels ({@code useColumnLabel=false}),
+   * in which case the value has to be read by name.
+   *
+   * @param columnName the column label
+   * @return the column index, or -1
+   * @since 3.5.4
+   */
+  public int getColumnIndex(String columnName) {
+    if (!useColumnLabel || columnName == null) {
+      return -1;
+    }
+    Integer index = signature.columnIndexMap.get(columnName);
+    if (index == null) {
+      index = -1;
+      for (int i = 0; i < columnNames.size(); i++) {
+        if (columnNames.get(i).equalsIgnoreCase(columnName)) {
+          index = i + 1;
+          break;
+        }
+      }
+      signature.columnIndexMap.put(columnName, index);
+    }
+    return index;
+  }
+
   /**
    * Gets the type handler to use when reading the result set.
    * Tries to get from the TypeHandlerRegistry by searching for the property type.
@@ -97,38 +162,40 @@ public class ResultSetWrapper {
    * @return
    */
   public TypeHandler<?> getTypeHandler(Class<?> propertyType, String columnName) {
-    TypeHandler<?> handler = null;
-    Map<Class<?>, TypeHandler<?>> columnHandlers = typeHandlerMap.get(columnName);
-    if (columnHandlers == null) {
-      columnHandlers = new HashMap<>();
-      typeHandlerMap.put(columnName, columnHandlers);
-    } else {
-      handler = columnHandlers.get(propertyType);
+    if (columnName == null) {
+      return resolveTypeHandler(propertyType, null);
     }
+    final Map<Class<?>, TypeHandler<?>> columnHandlers = signature.typeHandlerMap.computeIfAbsent(columnName, k -> new ConcurrentHashMap<>());
+    TypeHandler<?> handler = columnHandlers.get(propertyType);
     if (handler == null) {
-      JdbcType jdbcType = getJdbcType(columnName);
-      handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
-      // Replicate logic of UnknownTypeHandler#resolveTypeHandler
-      // See issue #59 comment 10
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        final int index = columnNames.indexOf(columnName);
-        final Class<?> javaType = resolveClass(classNames.get(index));
-        if (javaType != null && jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
-        } else if (javaType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(javaType);
-        } else if (jdbcType != null) {
-          handler = typeHandlerRegistry.getTypeHandler(jdbcType);
-        }
-      }
-      if (handler == null || handler instanceof UnknownTypeHandler) {
-        handler = new ObjectTypeHandler();
-      }
+      handler = resolveTypeHandler(propertyType, columnName);
       columnHandlers.put(propertyType, handler);
     }
     return handler;
   }
 
+  private TypeHandler<?> resolveTypeHandler(Class<?> propertyType, String columnName) {
+    JdbcType jdbcType = getJdbcType(columnName);
+    TypeHandler<?> handler = typeHandlerRegistry.getTypeHandler(propertyType, jdbcType);
+    // Replicate logic of UnknownTypeHandler#resolveTypeHandler
+    // See issue #59 comment 10
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      final int index = columnNames.indexOf(columnName);
+      final Class<?> javaType = resolveClass(classNames.get(index));
+      if (javaType != null && jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType, jdbcType);
+      } else if (javaType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(javaType);
+      } else if (jdbcType != null) {
+        handler = typeHandlerRegistry.getTypeHandler(jdbcType);
+      }
+    }
+    if (handler == null || handler instanceof UnknownTypeHandler) {
+      handler = new ObjectTypeHandler();
+    }
+    return handler;
+  }
+
   private Class<?> resolveClass(String className) {
     try {
       // #699 className could be null
@@ -154,28 +221,44 @@ public class ResultSetWrapper {
         unmappedColumnNames.add(columnName);
       }
     }
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    signature.mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(mappedColumnNames));
+    signature.unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(unmappedColumnNames));
   }
 
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    List<String> mappedColumnNames = signature.mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     if (mappedColumnNames == null) {
       loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+      mappedColumnNames = signature.mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     }
     return mappedColumnNames;
   }
 
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+    List<String> unMappedColumnNames = signature.unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     if (unMappedColumnNames == null) {
       loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
+      unMappedColumnNames = signature.unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
     }
     return unMappedColumnNames;
   }
 
+  List<DefaultResultSetHandler.UnMappedColumnAutoMapping> getAutoMappings(ResultMap resultMap, String columnPrefix) {
+    return signature.autoMappingsMap.get(getMapKey(resultMap, columnPrefix));
+  }
+
+  void putAutoMappings(ResultMap resultMap, String columnPrefix, List<DefaultResultSetHandler.UnMappedColumnAutoMapping> autoMappings) {
+    signature.autoMappingsMap.put(getMapKey(resultMap, columnPrefix), Collections.unmodifiableList(autoMappings));
+  }
+
+  /**
+   * @return the signature of the columns of this result set
+   * @since 3.5.4
+   */
+  public ColumnSignature getSignature() {
+    return signature;
+  }
+
   private String getMapKey(ResultMap resultMap, String columnPrefix) {
     return resultMap.getId() + ":" + columnPrefix;
   }
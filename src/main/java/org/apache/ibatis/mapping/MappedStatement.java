@@ -20,9 +20,11 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
+import org.apache.ibatis.executor.resultset.ColumnSignatures;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
@@ -56,6 +58,8 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private volatile CacheKeyPrefix cacheKeyPrefix;
+  private final ColumnSignatures columnSignatures = new ColumnSignatures();
 
   MappedStatement() {
     // constructor disabled
@@ -314,6 +318,35 @@ public final class MappedStatement {
     return boundSql;
   }
 
+  /**
+   * Returns a cache key holding the id of this statement and the given SQL, to be used as the prefix of the keys
+   * created for it. The key is built once for the first SQL seen; statements whose SQL varies get a new key for
+   * any other SQL.
+   *
+   * @param sql
+   *          the SQL of the statement
+   * @return a key that must not be updated
+   * @since 3.5.4
+   */
+  public CacheKey getCacheKeyPrefix(String sql) {
+    CacheKeyPrefix prefix = cacheKeyPrefix;
+    if (prefix == null) {
+      prefix = new CacheKeyPrefix(id, sql);
+      cacheKeyPrefix = prefix;
+    } else if (!prefix.sql.equals(sql)) {
+      return CacheKeyPrefix.newKey(id, sql);
+    }
+    return prefix.key;
+  }
+
+  /**
+   * @return the column signatures of the result sets returned by this statement
+   * @since 3.5.4
+   */
+  public ColumnSignatures getColumnSignatures() {
+    return columnSignatures;
+  }
+
   private static String[] delimitedStringToArray(String in) {
     if (in == null || in.trim().length() == 0) {
       return null;
@@ -322,4 +355,23 @@ public final class MappedStatement {
     }
   }
 
+  private static final class CacheKeyPrefix {
+
+    private final String sql;
+    private final CacheKey key;
+
+    CacheKeyPrefix(String id, String sql) {
+      this.sql = sql;
+      this.key = newKey(id, sql);
+    }
+
+    static CacheKey newKey(String id, String sql) {
+      CacheKey key = new CacheKey();
+      key.update(id);
+      key.update(sql);
+      return key;
+    }
+
+  }
+
 }
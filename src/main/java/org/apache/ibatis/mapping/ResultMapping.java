@@ -45,6 +45,7 @@ public class ResultMapping {
   private String resultSet;
   private String foreignColumn;
   private boolean lazy;
+  private String batchKey;
 
   ResultMapping() {
   }
@@ -132,6 +133,14 @@ public class ResultMapping {
       return this;
     }
 
+    /**
+     * @since 3.5.4
+     */
+    public Builder batchKey(String batchKey) {
+      resultMapping.batchKey = batchKey;
+      return this;
+    }
+
     public ResultMapping build() {
       // lock down collections
       resultMapping.flags = Collections.unmodifiableList(resultMapping.flags);
@@ -167,6 +176,15 @@ public class ResultMapping {
           throw new IllegalStateException("There should be the same number of columns and foreignColumns in property " + resultMapping.property);
         }
       }
+      if (resultMapping.batchKey != null) {
+        if (resultMapping.nestedQueryId == null) {
+          throw new IllegalStateException("A batchKey requires a nested select in property " + resultMapping.property);
+        }
+        int numColumns = resultMapping.composites.isEmpty() ? 1 : resultMapping.composites.size();
+        if (numColumns != resultMapping.getBatchKeyProperties().length) {
+          throw new IllegalStateException("There should be the same number of columns and batchKey properties in property " + resultMapping.property);
+        }
+      }
     }
 
     private void resolveTypeHandler() {
@@ -251,6 +269,24 @@ public class ResultMapping {
     this.lazy = lazy;
   }
 
+  /**
+   * Returns the properties of the rows of the nested select that hold the key of their parent row. When set, the nested
+   * select receives the keys of many parent rows at once, as a list.
+   *
+   * @return the comma separated properties, or {@code null} if the nested select is run for each parent row
+   * @since 3.5.4
+   */
+  public String getBatchKey() {
+    return batchKey;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public String[] getBatchKeyProperties() {
+    return batchKey == null ? new String[0] : batchKey.trim().split("\\s*,\\s*");
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) {
@@ -294,6 +330,7 @@ public class ResultMapping {
     sb.append(", resultSet='").append(resultSet).append('\'');
     sb.append(", foreignColumn='").append(foreignColumn).append('\'');
     sb.append(", lazy=").append(lazy);
+    sb.append(", batchKey='").append(batchKey).append('\'');
     sb.append('}');
     return sb.toString();
   }
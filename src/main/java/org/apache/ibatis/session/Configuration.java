@@ -25,7 +25,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -41,6 +49,7 @@ import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.datasource.routing.ReadWriteRoutingDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
@@ -118,11 +127,27 @@ public class Configuration {
   protected Class<? extends Log> logImpl;
   protected Class<? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  protected int localCacheMaxEntries;
+  protected long localCacheMaxBytes;
+  protected int localCacheMaxRows;
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
   protected ResultSetType defaultResultSetType;
+  protected int batchMaxRowsPerStatement;
+  protected int batchMaxPendingRows;
+  protected long batchMaxPendingBytes;
+  protected boolean batchStatementGroupingEnabled;
+  protected int batchInsertRewriteMaxRows;
+  protected int batchInsertRewriteMaxParameters = 2000;
+  protected int asyncExecutorPoolSize = 10;
+  protected int asyncExecutorQueueSize = 1000;
+  protected int nestedQueryBatchSize = 500;
+  protected int cursorPrefetchDepth;
+  protected boolean compiledRowMappingEnabled;
+  protected int columnSignatureCacheSize = 8;
+  protected final AtomicReference<ExecutorService> asyncExecutor = new AtomicReference<>();
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
   protected AutoMappingBehavior autoMappingBehavior = AutoMappingBehavior.PARTIAL;
   protected AutoMappingUnknownColumnBehavior autoMappingUnknownColumnBehavior = AutoMappingUnknownColumnBehavior.NONE;
@@ -166,6 +191,11 @@ public class Configuration {
   protected final Collection<ResultMapResolver> incompleteResultMaps = new LinkedList<>();
   protected final Collection<MethodResolver> incompleteMethods = new LinkedList<>();
 
+  private final ReentrantLock incompleteStatementsLock = new ReentrantLock();
+  private final ReentrantLock incompleteCacheRefsLock = new ReentrantLock();
+  private final ReentrantLock incompleteResultMapsLock = new ReentrantLock();
+  private final ReentrantLock incompleteMethodsLock = new ReentrantLock();
+
   /*
    * A map holds cache-ref relationship. The key is the namespace that
    * references a cache bound to another namespace and the value is the
@@ -185,6 +215,7 @@ public class Configuration {
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("READ_WRITE", ReadWriteRoutingDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
@@ -447,6 +478,275 @@ public class Configuration {
     this.defaultResultSetType = defaultResultSetType;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public int getBatchMaxRowsPerStatement() {
+    return batchMaxRowsPerStatement;
+  }
+
+  /**
+   * Sets the number of rows added to the batch of a statement after which the {@link ExecutorType#BATCH} executor
+   * flushes the pending batches on its own.
+   *
+   * @param batchMaxRowsPerStatement the number of rows, 0 for no limit
+   * @since 3.5.4
+   */
+  public void setBatchMaxRowsPerStatement(int batchMaxRowsPerStatement) {
+    this.batchMaxRowsPerStatement = batchMaxRowsPerStatement;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getBatchMaxPendingRows() {
+    return batchMaxPendingRows;
+  }
+
+  /**
+   * Sets the number of rows pending in all the batches after which the {@link ExecutorType#BATCH} executor flushes
+   * them on its own.
+   *
+   * @param batchMaxPendingRows the number of rows, 0 for no limit
+   * @since 3.5.4
+   */
+  public void setBatchMaxPendingRows(int batchMaxPendingRows) {
+    this.batchMaxPendingRows = batchMaxPendingRows;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public long getBatchMaxPendingBytes() {
+    return batchMaxPendingBytes;
+  }
+
+  /**
+   * Sets the estimated size of the parameters pending in all the batches after which the {@link ExecutorType#BATCH}
+   * executor flushes them on its own.
+   *
+   * @param batchMaxPendingBytes the size in bytes, 0 for no limit
+   * @since 3.5.4
+   */
+  public void setBatchMaxPendingBytes(long batchMaxPendingBytes) {
+    this.batchMaxPendingBytes = batchMaxPendingBytes;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isBatchStatementGroupingEnabled() {
+    return batchStatementGroupingEnabled;
+  }
+
+  /**
+   * Sets whether the {@link ExecutorType#BATCH} executor keeps one batch per insert statement, so that interleaved
+   * inserts (e.g. a parent row then its children, again and again) are sent in a few batches rather than one per row.
+   * The batches are executed in the order their first row was added, a row is never sent before the rows of a table
+   * its table references with a foreign key, and updates or deletes are never reordered.
+   *
+   * @param batchStatementGroupingEnabled true to group the inserts
+   * @since 3.5.4
+   */
+  public void setBatchStatementGroupingEnabled(boolean batchStatementGroupingEnabled) {
+    this.batchStatementGroupingEnabled = batchStatementGroupingEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getBatchInsertRewriteMaxRows() {
+    return batchInsertRewriteMaxRows;
+  }
+
+  /**
+   * Sets the maximum number of rows of the multi-row <code>INSERT ... VALUES (...), (...)</code> statements the
+   * {@link ExecutorType#BATCH} executor sends instead of batches of single-row inserts.
+   *
+   * @param batchInsertRewriteMaxRows the number of rows, 0 or 1 to keep the single-row inserts
+   * @since 3.5.4
+   */
+  public void setBatchInsertRewriteMaxRows(int batchInsertRewriteMaxRows) {
+    this.batchInsertRewriteMaxRows = batchInsertRewriteMaxRows;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getBatchInsertRewriteMaxParameters() {
+    return batchInsertRewriteMaxParameters;
+  }
+
+  /**
+   * Sets the maximum number of parameters of a multi-row insert, which limits its number of rows below
+   * {@link #getBatchInsertRewriteMaxRows()} for wide rows. Most databases cap the parameters of a statement.
+   *
+   * @param batchInsertRewriteMaxParameters the number of parameters
+   * @since 3.5.4
+   */
+  public void setBatchInsertRewriteMaxParameters(int batchInsertRewriteMaxParameters) {
+    this.batchInsertRewriteMaxParameters = batchInsertRewriteMaxParameters;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getNestedQueryBatchSize() {
+    return nestedQueryBatchSize;
+  }
+
+  /**
+   * Sets the maximum number of keys a nested select with a {@code batchKey} receives at once. More keys are loaded
+   * with several selects. Zero or less means no limit.
+   *
+   * @param nestedQueryBatchSize the number of keys
+   * @since 3.5.4
+   */
+  public void setNestedQueryBatchSize(int nestedQueryBatchSize) {
+    this.nestedQueryBatchSize = nestedQueryBatchSize;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getCursorPrefetchDepth() {
+    return cursorPrefetchDepth;
+  }
+
+  /**
+   * Sets the number of rows a cursor reads and maps ahead of its consumer on a background thread. Zero or less reads
+   * the rows on the consuming thread. Cursors whose result map has nested selects never prefetch.
+   *
+   * @param cursorPrefetchDepth the number of rows
+   * @since 3.5.4
+   */
+  public void setCursorPrefetchDepth(int cursorPrefetchDepth) {
+    this.cursorPrefetchDepth = cursorPrefetchDepth;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public boolean isCompiledRowMappingEnabled() {
+    return compiledRowMappingEnabled;
+  }
+
+  /**
+   * Sets whether rows of flat result maps are mapped by row mappers compiled for the columns of the result set. Result
+   * maps with nested results, nested selects or constructor mappings are always mapped by the interpreter.
+   *
+   * @param compiledRowMappingEnabled whether to compile row mappers
+   * @since 3.5.4
+   */
+  public void setCompiledRowMappingEnabled(boolean compiledRowMappingEnabled) {
+    this.compiledRowMappingEnabled = compiledRowMappingEnabled;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getColumnSignatureCacheSize() {
+    return columnSignatureCacheSize;
+  }
+
+  /**
+   * Sets the number of column signatures of result sets kept by each statement. A signature holds the columns a
+   * statement returned with the type handlers and automatic mappings resolved for them, which are reused when the
+   * statement returns the same columns again. The oldest signatures are evicted first. Zero or less resolves them
+   * again for every result set.
+   *
+   * @param columnSignatureCacheSize the number of signatures
+   * @since 3.5.4
+   */
+  public void setColumnSignatureCacheSize(int columnSignatureCacheSize) {
+    this.columnSignatureCacheSize = columnSignatureCacheSize;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getAsyncExecutorPoolSize() {
+    return asyncExecutorPoolSize;
+  }
+
+  /**
+   * Sets the number of threads of the default executor running the mapper methods that return a
+   * {@link java.util.concurrent.CompletableFuture}, which is also the number of connections they may hold at once.
+   * Calls beyond it wait in a queue. It has no effect once the executor has been created or when an executor has been
+   * set.
+   *
+   * @param asyncExecutorPoolSize the number of threads
+   * @since 3.5.4
+   */
+  public void setAsyncExecutorPoolSize(int asyncExecutorPoolSize) {
+    this.asyncExecutorPoolSize = asyncExecutorPoolSize;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getAsyncExecutorQueueSize() {
+    return asyncExecutorQueueSize;
+  }
+
+  /**
+   * Sets the number of calls of mapper methods returning a {@link java.util.concurrent.CompletableFuture} that can
+   * wait for a thread of the default executor. Further calls are rejected: the mapper method throws a
+   * {@link java.util.concurrent.RejectedExecutionException} instead of queuing the call. It has no effect once the
+   * executor has been created or when an executor has been set.
+   *
+   * @param asyncExecutorQueueSize the number of waiting calls
+   * @since 3.5.4
+   */
+  public void setAsyncExecutorQueueSize(int asyncExecutorQueueSize) {
+    this.asyncExecutorQueueSize = asyncExecutorQueueSize;
+  }
+
+  /**
+   * Returns the executor running the mapper methods that return a {@link java.util.concurrent.CompletableFuture},
+   * creating a pool of {@link #getAsyncExecutorPoolSize()} daemon threads and a queue of
+   * {@link #getAsyncExecutorQueueSize()} calls on first use if none has been set.
+   *
+   * @return the executor
+   * @since 3.5.4
+   */
+  public ExecutorService getAsyncExecutor() {
+    ExecutorService executor = asyncExecutor.get();
+    if (executor == null) {
+      executor = newAsyncExecutor(asyncExecutorPoolSize, asyncExecutorQueueSize);
+      if (!asyncExecutor.compareAndSet(null, executor)) {
+        // another thread was first, this one has not started any thread yet
+        executor.shutdown();
+        executor = asyncExecutor.get();
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * Sets the executor running the mapper methods that return a {@link java.util.concurrent.CompletableFuture}. Its
+   * life cycle is left to the caller.
+   *
+   * @param asyncExecutor the executor
+   * @since 3.5.4
+   */
+  public void setAsyncExecutor(ExecutorService asyncExecutor) {
+    this.asyncExecutor.set(asyncExecutor);
+  }
+
+  private static ExecutorService newAsyncExecutor(int poolSize, int queueSize) {
+    AtomicInteger threadNumber = new AtomicInteger();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueSize), runnable -> {
+          Thread thread = new Thread(runnable, "mybatis-async-" + threadNumber.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+    // idle threads go away, so that an unused configuration does not keep any
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   public boolean isUseColumnLabel() {
     return useColumnLabel;
   }
@@ -463,6 +763,61 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * @since 3.5.4
+   */
+  public int getLocalCacheMaxEntries() {
+    return localCacheMaxEntries;
+  }
+
+  /**
+   * Sets the maximum number of results kept by the local cache of a session. The least recently used results are
+   * evicted once a query is over. Zero or less means no limit.
+   *
+   * @param localCacheMaxEntries the number of results
+   * @since 3.5.4
+   */
+  public void setLocalCacheMaxEntries(int localCacheMaxEntries) {
+    this.localCacheMaxEntries = localCacheMaxEntries;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public long getLocalCacheMaxBytes() {
+    return localCacheMaxBytes;
+  }
+
+  /**
+   * Sets the approximate memory the results kept by the local cache of a session may hold. The least recently used
+   * results are evicted once a query is over. The size of a result is estimated from a sample of its rows. Zero or
+   * less means no limit.
+   *
+   * @param localCacheMaxBytes the number of bytes
+   * @since 3.5.4
+   */
+  public void setLocalCacheMaxBytes(long localCacheMaxBytes) {
+    this.localCacheMaxBytes = localCacheMaxBytes;
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public int getLocalCacheMaxRows() {
+    return localCacheMaxRows;
+  }
+
+  /**
+   * Sets the maximum number of rows of a result kept by the local cache of a session. Larger results are dropped once
+   * the query is over. Zero or less means no limit.
+   *
+   * @param localCacheMaxRows the number of rows
+   * @since 3.5.4
+   */
+  public void setLocalCacheMaxRows(int localCacheMaxRows) {
+    this.localCacheMaxRows = localCacheMaxRows;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -717,7 +1072,12 @@ public class Configuration {
   }
 
   public void addIncompleteStatement(XMLStatementBuilder incompleteStatement) {
-    incompleteStatements.add(incompleteStatement);
+    incompleteStatementsLock.lock();
+    try {
+      incompleteStatements.add(incompleteStatement);
+    } finally {
+      incompleteStatementsLock.unlock();
+    }
   }
 
   public Collection<CacheRefResolver> getIncompleteCacheRefs() {
@@ -725,7 +1085,12 @@ public class Configuration {
   }
 
   public void addIncompleteCacheRef(CacheRefResolver incompleteCacheRef) {
-    incompleteCacheRefs.add(incompleteCacheRef);
+    incompleteCacheRefsLock.lock();
+    try {
+      incompleteCacheRefs.add(incompleteCacheRef);
+    } finally {
+      incompleteCacheRefsLock.unlock();
+    }
   }
 
   public Collection<ResultMapResolver> getIncompleteResultMaps() {
@@ -733,11 +1098,21 @@ public class Configuration {
   }
 
   public void addIncompleteResultMap(ResultMapResolver resultMapResolver) {
-    incompleteResultMaps.add(resultMapResolver);
+    incompleteResultMapsLock.lock();
+    try {
+      incompleteResultMaps.add(resultMapResolver);
+    } finally {
+      incompleteResultMapsLock.unlock();
+    }
   }
 
   public void addIncompleteMethod(MethodResolver builder) {
-    incompleteMethods.add(builder);
+    incompleteMethodsLock.lock();
+    try {
+      incompleteMethods.add(builder);
+    } finally {
+      incompleteMethodsLock.unlock();
+    }
   }
 
   public Collection<MethodResolver> getIncompleteMethods() {
@@ -804,35 +1179,25 @@ public class Configuration {
    * statement validation.
    */
   protected void buildAllStatements() {
-    parsePendingResultMaps();
-    if (!incompleteCacheRefs.isEmpty()) {
-      synchronized (incompleteCacheRefs) {
-        incompleteCacheRefs.removeIf(x -> x.resolveCacheRef() != null);
-      }
-    }
-    if (!incompleteStatements.isEmpty()) {
-      synchronized (incompleteStatements) {
-        incompleteStatements.removeIf(x -> {
-          x.parseStatementNode();
-          return true;
-        });
-      }
-    }
-    if (!incompleteMethods.isEmpty()) {
-      synchronized (incompleteMethods) {
-        incompleteMethods.removeIf(x -> {
-          x.resolve();
-          return true;
-        });
-      }
-    }
+    parsePendingResultMaps(true);
+    parsePendingCacheRefs(true);
+    parsePendingStatements(true);
+    parsePendingMethods(true);
   }
 
-  private void parsePendingResultMaps() {
+  /**
+   * Resolves the result maps that were waiting for another result map, until no more of them can be resolved.
+   *
+   * @param reportUnresolved whether to throw the {@link IncompleteElementException} of a result map that is still
+   *          unresolvable
+   * @since 3.5.4
+   */
+  public void parsePendingResultMaps(boolean reportUnresolved) {
     if (incompleteResultMaps.isEmpty()) {
       return;
     }
-    synchronized (incompleteResultMaps) {
+    incompleteResultMapsLock.lock();
+    try {
       boolean resolved;
       IncompleteElementException ex = null;
       do {
@@ -848,10 +1213,57 @@ public class Configuration {
           }
         }
       } while (resolved);
-      if (!incompleteResultMaps.isEmpty() && ex != null) {
+      if (reportUnresolved && !incompleteResultMaps.isEmpty() && ex != null) {
         // At least one result map is unresolvable.
         throw ex;
       }
+    } finally {
+      incompleteResultMapsLock.unlock();
+    }
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public void parsePendingCacheRefs(boolean reportUnresolved) {
+    parsePendingElements(incompleteCacheRefs, incompleteCacheRefsLock, CacheRefResolver::resolveCacheRef, reportUnresolved);
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public void parsePendingStatements(boolean reportUnresolved) {
+    parsePendingElements(incompleteStatements, incompleteStatementsLock, XMLStatementBuilder::parseStatementNode, reportUnresolved);
+  }
+
+  /**
+   * @since 3.5.4
+   */
+  public void parsePendingMethods(boolean reportUnresolved) {
+    parsePendingElements(incompleteMethods, incompleteMethodsLock, MethodResolver::resolve, reportUnresolved);
+  }
+
+  // a monitor would pin virtual threads while mappers are loaded from the class path
+  private <T> void parsePendingElements(Collection<T> incompleteElements, ReentrantLock lock, Consumer<T> resolver,
+      boolean reportUnresolved) {
+    if (incompleteElements.isEmpty()) {
+      return;
+    }
+    lock.lock();
+    try {
+      Iterator<T> iterator = incompleteElements.iterator();
+      while (iterator.hasNext()) {
+        try {
+          resolver.accept(iterator.next());
+          iterator.remove();
+        } catch (IncompleteElementException e) {
+          if (reportUnresolved) {
+            throw e;
+          }
+        }
+      }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -19,9 +19,15 @@ import java.io.Closeable;
 import java.sql.Connection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.result.ColumnBatch;
+import org.apache.ibatis.executor.result.ColumnBatchResultHandler;
+import org.apache.ibatis.executor.result.DoubleArrayResultHandler;
+import org.apache.ibatis.executor.result.IntArrayResultHandler;
+import org.apache.ibatis.executor.result.LongArrayResultHandler;
 
 /**
  * The primary Java interface for working with MyBatis.
@@ -76,6 +82,170 @@ public interface SqlSession extends Closeable {
    */
   <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds);
 
+  /**
+   * Retrieve the values of a numeric column from the statement key as a {@code long[]}.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Array of values
+   * @see #selectLongs(String, Object, RowBounds)
+   * @since 3.5.4
+   */
+  default long[] selectLongs(String statement) {
+    return selectLongs(statement, null);
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key and parameter as a {@code long[]}.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Array of values
+   * @see #selectLongs(String, Object, RowBounds)
+   * @since 3.5.4
+   */
+  default long[] selectLongs(String statement, Object parameter) {
+    return selectLongs(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key and parameter,
+   * within the specified row bounds, as a {@code long[]}.
+   * When the statement returns simple values, they are read with {@code ResultSet#getLong(int)}
+   * straight into the array, without type handlers or boxing. SQL NULL values are not allowed.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Array of values
+   * @since 3.5.4
+   */
+  default long[] selectLongs(String statement, Object parameter, RowBounds rowBounds) {
+    LongArrayResultHandler handler = new LongArrayResultHandler();
+    select(statement, parameter, rowBounds, handler);
+    return handler.toArray();
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key as a {@code int[]}.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Array of values
+   * @see #selectInts(String, Object, RowBounds)
+   * @since 3.5.4
+   */
+  default int[] selectInts(String statement) {
+    return selectInts(statement, null);
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key and parameter as a {@code int[]}.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Array of values
+   * @see #selectInts(String, Object, RowBounds)
+   * @since 3.5.4
+   */
+  default int[] selectInts(String statement, Object parameter) {
+    return selectInts(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key and parameter,
+   * within the specified row bounds, as a {@code int[]}.
+   * When the statement returns simple values, they are read with {@code ResultSet#getInt(int)}
+   * straight into the array, without type handlers or boxing. SQL NULL values are not allowed.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Array of values
+   * @since 3.5.4
+   */
+  default int[] selectInts(String statement, Object parameter, RowBounds rowBounds) {
+    IntArrayResultHandler handler = new IntArrayResultHandler();
+    select(statement, parameter, rowBounds, handler);
+    return handler.toArray();
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key as a {@code double[]}.
+   * @param statement Unique identifier matching the statement to use.
+   * @return Array of values
+   * @see #selectDoubles(String, Object, RowBounds)
+   * @since 3.5.4
+   */
+  default double[] selectDoubles(String statement) {
+    return selectDoubles(statement, null);
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key and parameter as a {@code double[]}.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return Array of values
+   * @see #selectDoubles(String, Object, RowBounds)
+   * @since 3.5.4
+   */
+  default double[] selectDoubles(String statement, Object parameter) {
+    return selectDoubles(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve the values of a numeric column from the statement key and parameter,
+   * within the specified row bounds, as a {@code double[]}.
+   * When the statement returns simple values, they are read with {@code ResultSet#getDouble(int)}
+   * straight into the array, without type handlers or boxing. SQL NULL values are not allowed.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return Array of values
+   * @since 3.5.4
+   */
+  default double[] selectDoubles(String statement, Object parameter, RowBounds rowBounds) {
+    DoubleArrayResultHandler handler = new DoubleArrayResultHandler();
+    select(statement, parameter, rowBounds, handler);
+    return handler.toArray();
+  }
+
+  /**
+   * Retrieve the rows of the statement key and parameter column by column.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @return The columns of the first result set
+   * @see #selectColumns(String, Object, RowBounds)
+   * @since 3.5.4
+   */
+  default ColumnBatch selectColumns(String statement, Object parameter) {
+    return selectColumns(statement, parameter, RowBounds.DEFAULT);
+  }
+
+  /**
+   * Retrieve the rows of the statement key and parameter, within the specified row bounds, column by column.
+   * Numeric columns are stored in primitive arrays, character columns are dictionary-encoded,
+   * and SQL NULL values are recorded in a bitmap per column.
+   * The columns are stored as the result set returns them, without result maps or type handlers.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param rowBounds  Bounds to limit object retrieval
+   * @return The columns of the first result set
+   * @see ColumnBatchResultHandler
+   * @since 3.5.4
+   */
+  default ColumnBatch selectColumns(String statement, Object parameter, RowBounds rowBounds) {
+    ColumnBatchResultHandler handler = new ColumnBatchResultHandler();
+    select(statement, parameter, rowBounds, handler);
+    return handler.getColumnBatches().isEmpty() ? null : handler.getColumnBatches().get(0);
+  }
+
+  /**
+   * Retrieve the rows of the statement key and parameter column by column, in batches of the given number of rows
+   * handed to the consumer as they are read, so that only one batch is kept in memory.
+   * @param statement Unique identifier matching the statement to use.
+   * @param parameter A parameter object to pass to the statement.
+   * @param batchSize The number of rows of a batch
+   * @param consumer The consumer of the batches
+   * @see ColumnBatchResultHandler
+   * @since 3.5.4
+   */
+  default void selectColumns(String statement, Object parameter, int batchSize, Consumer<ColumnBatch> consumer) {
+    select(statement, parameter, RowBounds.DEFAULT, new ColumnBatchResultHandler(batchSize, consumer));
+  }
+
   /**
    * The selectMap is a special case in that it is designed to convert a list
    * of results into a Map based on one of the properties in the resulting
@@ -33,6 +33,30 @@ public interface Transaction {
    */
   Connection getConnection() throws SQLException;
 
+  /**
+   * Retrieve the database connection for a statement. Transactions able to serve reads from another database than
+   * the writes (e.g. a read replica) override this method, the others return {@link #getConnection()}.
+   *
+   * @param readOnly whether the statement only reads data
+   * @return DataBase connection
+   * @throws SQLException
+   * @since 3.5.4
+   */
+  default Connection getConnection(boolean readOnly) throws SQLException {
+    return getConnection();
+  }
+
+  /**
+   * Whether {@link #getConnection(boolean)} may currently return another connection for reads than for writes. When
+   * it does not, callers need not work out whether a statement only reads data.
+   *
+   * @return {@code true} if reads may be routed to another connection
+   * @since 3.5.4
+   */
+  default boolean isRouting() {
+    return false;
+  }
+
   /**
    * Commit inner database connection.
    * @throws SQLException
@@ -19,12 +19,14 @@ import java.sql.Connection;
 
 import javax.sql.DataSource;
 
+import org.apache.ibatis.datasource.routing.ReadWriteRoutingDataSource;
 import org.apache.ibatis.session.TransactionIsolationLevel;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.TransactionFactory;
 
 /**
- * Creates {@link JdbcTransaction} instances.
+ * Creates {@link JdbcTransaction} instances ({@link ReadWriteRoutingTransaction} instances for a
+ * {@link ReadWriteRoutingDataSource}).
  *
  * @author Clinton Begin
  *
@@ -39,6 +41,9 @@ public class JdbcTransactionFactory implements TransactionFactory {
 
   @Override
   public Transaction newTransaction(DataSource ds, TransactionIsolationLevel level, boolean autoCommit) {
+    if (ds instanceof ReadWriteRoutingDataSource) {
+      return new ReadWriteRoutingTransaction((ReadWriteRoutingDataSource) ds, level, autoCommit);
+    }
     return new JdbcTransaction(ds, level, autoCommit);
   }
 }
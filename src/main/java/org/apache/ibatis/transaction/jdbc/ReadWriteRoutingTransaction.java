@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.transaction.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.apache.ibatis.datasource.routing.ReadWriteRoutingDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+
+/**
+ * {@link JdbcTransaction} that serves the reads of an auto-commit session from a replica of a
+ * {@link ReadWriteRoutingDataSource} until the first write. The primary connection is the transactional one: once it
+ * has been opened (for a write, or for any caller of {@link #getConnection()}) it serves all the statements until the
+ * transaction is closed, so the writes are always visible to the following reads. A session that is not in
+ * auto-commit mode reads from the primary too, so that its reads are isolated, unless the data source allows
+ * {@link ReadWriteRoutingDataSource#isReplicaReadsInTransactions() replica reads in transactions}. The replica
+ * connection is only used for reads and runs in auto-commit mode.
+ *
+ * @since 3.5.4
+ */
+public class ReadWriteRoutingTransaction extends JdbcTransaction {
+
+  private static final Log log = LogFactory.getLog(ReadWriteRoutingTransaction.class);
+
+  private final ReadWriteRoutingDataSource routingDataSource;
+  protected Connection replicaConnection;
+
+  public ReadWriteRoutingTransaction(ReadWriteRoutingDataSource ds, TransactionIsolationLevel desiredLevel, boolean desiredAutoCommit) {
+    super(ds, desiredLevel, desiredAutoCommit);
+    this.routingDataSource = ds;
+  }
+
+  @Override
+  public Connection getConnection(boolean readOnly) throws SQLException {
+    if (!readOnly || !isRouting()) {
+      return getConnection();
+    }
+    if (replicaConnection == null) {
+      if (log.isDebugEnabled()) {
+        log.debug("Opening JDBC Connection to a replica");
+      }
+      replicaConnection = routingDataSource.getReplicaConnection();
+      if (level != null) {
+        replicaConnection.setTransactionIsolation(level.getLevel());
+      }
+      if (!replicaConnection.getAutoCommit()) {
+        replicaConnection.setAutoCommit(true);
+      }
+    }
+    return replicaConnection;
+  }
+
+  @Override
+  public boolean isRouting() {
+    return connection == null && (autoCommit || routingDataSource.isReplicaReadsInTransactions());
+  }
+
+  @Override
+  public void close() throws SQLException {
+    try {
+      if (replicaConnection != null) {
+        if (log.isDebugEnabled()) {
+          log.debug("Closing JDBC Connection [" + replicaConnection + "]");
+        }
+        replicaConnection.close();
+        replicaConnection = null;
+      }
+    } finally {
+      super.close();
+    }
+  }
+
+}
@@ -88,6 +88,21 @@ class XmlConfigBuilderTest {
       assertNull(config.getDefaultStatementTimeout());
       assertNull(config.getDefaultFetchSize());
       assertNull(config.getDefaultResultSetType());
+      assertThat(config.getBatchMaxRowsPerStatement()).isEqualTo(0);
+      assertThat(config.getBatchMaxPendingRows()).isEqualTo(0);
+      assertThat(config.getBatchMaxPendingBytes()).isEqualTo(0L);
+      assertThat(config.isBatchStatementGroupingEnabled()).isFalse();
+      assertThat(config.getBatchInsertRewriteMaxRows()).isEqualTo(0);
+      assertThat(config.getBatchInsertRewriteMaxParameters()).isEqualTo(2000);
+      assertThat(config.getAsyncExecutorPoolSize()).isEqualTo(10);
+      assertThat(config.getAsyncExecutorQueueSize()).isEqualTo(1000);
+      assertThat(config.getNestedQueryBatchSize()).isEqualTo(500);
+      assertThat(config.getCursorPrefetchDepth()).isEqualTo(0);
+      assertThat(config.isCompiledRowMappingEnabled()).isFalse();
+      assertThat(config.getColumnSignatureCacheSize()).isEqualTo(8);
+      assertThat(config.getLocalCacheMaxEntries()).isEqualTo(0);
+      assertThat(config.getLocalCacheMaxBytes()).isEqualTo(0L);
+      assertThat(config.getLocalCacheMaxRows()).isEqualTo(0);
       assertThat(config.isMapUnderscoreToCamelCase()).isFalse();
       assertThat(config.isSafeRowBoundsEnabled()).isFalse();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.SESSION);
@@ -182,6 +197,21 @@ class XmlConfigBuilderTest {
       assertThat(config.getDefaultStatementTimeout()).isEqualTo(10);
       assertThat(config.getDefaultFetchSize()).isEqualTo(100);
       assertThat(config.getDefaultResultSetType()).isEqualTo(ResultSetType.SCROLL_INSENSITIVE);
+      assertThat(config.getBatchMaxRowsPerStatement()).isEqualTo(1000);
+      assertThat(config.getBatchMaxPendingRows()).isEqualTo(5000);
+      assertThat(config.getBatchMaxPendingBytes()).isEqualTo(16777216L);
+      assertThat(config.isBatchStatementGroupingEnabled()).isTrue();
+      assertThat(config.getBatchInsertRewriteMaxRows()).isEqualTo(100);
+      assertThat(config.getBatchInsertRewriteMaxParameters()).isEqualTo(1000);
+      assertThat(config.getAsyncExecutorPoolSize()).isEqualTo(4);
+      assertThat(config.getAsyncExecutorQueueSize()).isEqualTo(50);
+      assertThat(config.getNestedQueryBatchSize()).isEqualTo(100);
+      assertThat(config.getCursorPrefetchDepth()).isEqualTo(64);
+      assertThat(config.isCompiledRowMappingEnabled()).isTrue();
+      assertThat(config.getColumnSignatureCacheSize()).isEqualTo(16);
+      assertThat(config.getLocalCacheMaxEntries()).isEqualTo(1000);
+      assertThat(config.getLocalCacheMaxBytes()).isEqualTo(67108864L);
+      assertThat(config.getLocalCacheMaxRows()).isEqualTo(5000);
       assertThat(config.isMapUnderscoreToCamelCase()).isTrue();
       assertThat(config.isSafeRowBoundsEnabled()).isTrue();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.STATEMENT);
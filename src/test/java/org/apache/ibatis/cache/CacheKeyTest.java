@@ -26,6 +26,8 @@ import java.io.NotSerializableException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
 
 class CacheKeyTest {
 
@@ -87,6 +89,80 @@ class CacheKeyTest {
     assertEquals(key1, key2);
   }
 
+  @Test
+  void shouldTestCacheKeysWithPrefixEqualToFlatKeys() {
+    CacheKey prefix = new CacheKey(new Object[] { "select", 1 });
+    CacheKey key1 = new CacheKey(prefix);
+    key1.updateAll(new Object[] { "hello", null, new byte[] { 1 } });
+    CacheKey key2 = new CacheKey(new Object[] { "select", 1, "hello", null, new byte[] { 1 } });
+    assertEquals(5, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+  }
+
+  @Test
+  void shouldTestCacheKeysWithSamePrefixNotEqual() {
+    CacheKey prefix = new CacheKey(new Object[] { "select", 1 });
+    CacheKey key1 = new CacheKey(prefix);
+    key1.update("hello");
+    CacheKey key2 = new CacheKey(prefix);
+    key2.update("world");
+    assertNotEquals(key1, key2);
+    key2 = new CacheKey(new CacheKey(new Object[] { "select", 2 }));
+    key2.update("hello");
+    assertNotEquals(key1, key2);
+  }
+
+  @Test
+  void shouldNotAllowUpdatingAPrefix() throws Exception {
+    CacheKey prefix = new CacheKey(new Object[] { "select" });
+    CacheKey key = new CacheKey(prefix);
+    key.update("hello");
+    assertThrows(CacheException.class, () -> prefix.update("world"));
+    assertThrows(CacheException.class, () -> prefix.updateAll(new Object[] { "world" }));
+    assertEquals(new CacheKey(new Object[] { "select", "hello" }), key);
+    CacheKey clone = prefix.clone();
+    clone.update("world");
+    assertEquals(2, clone.getUpdateCount());
+  }
+
+  @Test
+  void shouldNotShareUpdatesWithClone() throws Exception {
+    CacheKey key1 = new CacheKey(new CacheKey(new Object[] { "select" }));
+    key1.update("hello");
+    CacheKey key2 = key1.clone();
+    assertEquals(key1, key2);
+    key2.update("world");
+    assertNotEquals(key1, key2);
+    assertEquals(2, key1.getUpdateCount());
+    assertEquals(3, key2.getUpdateCount());
+  }
+
+  @Test
+  void shouldGrowBeyondInitialCapacity() {
+    Object[] values = new Object[100];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i;
+    }
+    CacheKey key1 = new CacheKey(values);
+    CacheKey key2 = new CacheKey(values);
+    assertEquals(100, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    key2.update(null);
+    assertNotEquals(key1, key2);
+  }
+
+  @Test
+  void shouldSpreadHashCodesOfSimilarKeys() {
+    Set<Integer> lowBits = new HashSet<>();
+    for (int i = 0; i < 64; i++) {
+      lowBits.add(new CacheKey(new Object[] { "select", 0, i }).hashCode() & 0xff);
+    }
+    assertTrue(lowBits.size() > 32);
+  }
+
   @Test
   void serializationExceptionTest() {
     CacheKey cacheKey = new CacheKey();
@@ -103,6 +179,15 @@ class CacheKeyTest {
     Assertions.assertEquals(cacheKey, serialize(cacheKey));
   }
 
+  @Test
+  void serializationWithPrefixTest() throws Exception {
+    CacheKey cacheKey = new CacheKey(new CacheKey(new Object[] { "select" }));
+    cacheKey.update("serializable");
+    CacheKey deserialized = serialize(cacheKey);
+    Assertions.assertEquals(cacheKey, deserialized);
+    Assertions.assertEquals(new CacheKey(new Object[] { "select", "serializable" }), deserialized);
+  }
+
   private static <T> T serialize(T object) throws Exception {
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       new ObjectOutputStream(baos).writeObject(object);
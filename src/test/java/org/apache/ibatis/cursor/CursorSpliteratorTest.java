@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+class CursorSpliteratorTest {
+
+  @Test
+  void shouldSplitFixedSizeBatches() {
+    Spliterator<Integer> spliterator = new CursorSpliterator<>(new ListCursor(10), 4);
+    assertEquals(4, spliterator.trySplit().getExactSizeIfKnown());
+    assertEquals(4, spliterator.trySplit().getExactSizeIfKnown());
+    Spliterator<Integer> last = spliterator.trySplit();
+    assertEquals(2, last.getExactSizeIfKnown());
+    List<Integer> items = new ArrayList<>();
+    last.forEachRemaining(items::add);
+    assertEquals(8, items.get(0).intValue());
+    assertEquals(9, items.get(1).intValue());
+    assertNull(spliterator.trySplit());
+    assertFalse(spliterator.tryAdvance(items::add));
+  }
+
+  @Test
+  void shouldStreamItemsInOrder() {
+    ListCursor cursor = new ListCursor(3000);
+    try (Stream<Integer> stream = cursor.stream()) {
+      assertEquals(IntStream.range(0, 3000).boxed().collect(Collectors.toList()), stream.collect(Collectors.toList()));
+    }
+    assertTrue(cursor.closed);
+  }
+
+  @Test
+  void shouldProcessBatchesInParallelWhileReadingFromOneThreadAtATime() {
+    ListCursor cursor = new ListCursor(10000);
+    try (Stream<Integer> stream = cursor.stream(100)) {
+      List<Integer> doubled = stream.parallel().map(i -> i * 2).collect(Collectors.toList());
+      assertEquals(10000, doubled.size());
+      for (int i = 0; i < doubled.size(); i++) {
+        assertEquals(i * 2, doubled.get(i).intValue());
+      }
+    }
+    assertEquals(1, cursor.maxConcurrentReads.get());
+    assertTrue(cursor.closed);
+  }
+
+  @Test
+  void shouldRejectInvalidBatchSize() {
+    assertThrows(IllegalArgumentException.class, () -> new ListCursor(1).stream(0));
+  }
+
+  private static class ListCursor implements Cursor<Integer> {
+
+    private final List<Integer> items;
+    private final AtomicInteger concurrentReads = new AtomicInteger();
+    private final AtomicInteger maxConcurrentReads = new AtomicInteger();
+    private int index = -1;
+    private boolean closed;
+
+    ListCursor(int size) {
+      this.items = IntStream.range(0, size).boxed().collect(Collectors.toList());
+    }
+
+    @Override
+    public boolean isOpen() {
+      return !closed;
+    }
+
+    @Override
+    public boolean isConsumed() {
+      return index == items.size() - 1;
+    }
+
+    @Override
+    public int getCurrentIndex() {
+      return index;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+
+    @Override
+    public Iterator<Integer> iterator() {
+      return new Iterator<Integer>() {
+        @Override
+        public boolean hasNext() {
+          return index + 1 < items.size();
+        }
+
+        @Override
+        public Integer next() {
+          maxConcurrentReads.accumulateAndGet(concurrentReads.incrementAndGet(), Math::max);
+          try {
+            return items.get(++index);
+          } finally {
+            concurrentReads.decrementAndGet();
+          }
+        }
+      };
+    }
+  }
+
+}
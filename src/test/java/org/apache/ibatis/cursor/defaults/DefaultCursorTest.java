@@ -163,12 +163,22 @@ class DefaultCursorTest {
       return (String) rows.get(rowIndex).get(columnLabel);
     }
 
+    @Override
+    public String getString(int columnIndex) throws SQLException {
+      return getString(rsmd.getColumnLabel(columnIndex));
+    }
+
     @Override
     public int getInt(String columnLabel) throws SQLException {
       throwIfClosed();
       return (Integer) rows.get(rowIndex).get(columnLabel);
     }
 
+    @Override
+    public int getInt(int columnIndex) throws SQLException {
+      return getInt(rsmd.getColumnLabel(columnIndex));
+    }
+
     @Override
     public boolean wasNull() throws SQLException {
       throwIfClosed();
@@ -0,0 +1,84 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldBeEmptyInitially() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMean());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(99));
+  }
+
+  @Test
+  void shouldEstimatePercentilesWithin25Percent() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(500500, histogram.getMean());
+    assertEquals(1000000, histogram.getMax());
+    assertThat(histogram.getPercentile(50)).isBetween(500000L, 625000L);
+    assertThat(histogram.getPercentile(99)).isBetween(990000L, 1000000L);
+    assertEquals(1000000, histogram.getPercentile(100));
+  }
+
+  @Test
+  void shouldMapEveryValueToABucketContainingIt() {
+    List<Long> values = new ArrayList<>();
+    for (long v = 0; v < 100; v++) {
+      values.add(v);
+    }
+    for (int shift = 7; shift < 63; shift++) {
+      values.add(1L << shift);
+      values.add((1L << shift) - 1);
+      values.add((1L << shift) + (1L << (shift - 1)));
+    }
+    values.add(Long.MAX_VALUE);
+    for (long value : values) {
+      int index = LatencyHistogram.indexOf(value);
+      assertThat(LatencyHistogram.upperBoundOf(index)).isGreaterThanOrEqualTo(value);
+      if (index > 0) {
+        assertThat(LatencyHistogram.upperBoundOf(index - 1)).isLessThan(value);
+      }
+    }
+  }
+
+  @Test
+  void shouldReset() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(42);
+    histogram.record(-1);
+    assertEquals(2, histogram.getCount());
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getMax());
+    assertEquals(0, histogram.getPercentile(50));
+  }
+
+}
@@ -17,11 +17,21 @@ package org.apache.ibatis.datasource.unpooled;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.sql.Connection;
 import java.sql.Driver;
 import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
 import java.util.Enumeration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -56,6 +66,99 @@ class UnpooledDataSourceTest {
     assertEquals(before + 1, countRegisteredDrivers());
   }
 
+  @Test
+  void shouldConnectThroughTheResolvedDriverAndApplyOnlyChangedDefaults() throws Exception {
+    CountingDriver.reset();
+    UnpooledDataSource dataSource = new UnpooledDataSource(CountingDriver.class.getName(), "jdbc:counting:mem:resolveddriver", "sa", "");
+    dataSource.setAutoCommit(false);
+    dataSource.setDefaultTransactionIsolationLevel(Connection.TRANSACTION_READ_COMMITTED);
+    for (int i = 0; i < 3; i++) {
+      try (Connection connection = dataSource.getConnection()) {
+        assertFalse(connection.getAutoCommit());
+      }
+    }
+    assertEquals(3, CountingDriver.calls.get("connect").get());
+    // the defaults of the driver are read from the first connection only
+    assertEquals(1 + 3, CountingDriver.calls.get("getAutoCommit").get());
+    assertEquals(1, CountingDriver.calls.get("getTransactionIsolation").get());
+    assertEquals(3, CountingDriver.calls.get("setAutoCommit").get());
+    // READ_COMMITTED is the default of HSQLDB
+    assertNull(CountingDriver.calls.get("setTransactionIsolation"));
+  }
+
+  @Test
+  void shouldResolveDriverAgainWhenUrlChanges() throws Exception {
+    CountingDriver.reset();
+    UnpooledDataSource dataSource = new UnpooledDataSource(CountingDriver.class.getName(), "jdbc:counting:mem:resolveddriver", "sa", "");
+    dataSource.getConnection().close();
+    dataSource.setUrl("jdbc:hsqldb:mem:resolveddriver");
+    dataSource.getConnection().close();
+    assertEquals(1, CountingDriver.calls.get("connect").get());
+  }
+
+  public static class CountingDriver implements Driver {
+
+    static final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+    private final Driver delegate = new org.hsqldb.jdbc.JDBCDriver();
+
+    static void reset() {
+      calls.clear();
+    }
+
+    private static void count(String name) {
+      calls.computeIfAbsent(name, k -> new AtomicInteger()).incrementAndGet();
+    }
+
+    @Override
+    public Connection connect(String url, Properties info) throws SQLException {
+      if (!acceptsURL(url)) {
+        return null;
+      }
+      count("connect");
+      Connection connection = delegate.connect(url.replace("jdbc:counting:", "jdbc:hsqldb:"), info);
+      return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+          (proxy, method, args) -> {
+            count(method.getName());
+            try {
+              return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+              throw e.getCause();
+            }
+          });
+    }
+
+    @Override
+    public boolean acceptsURL(String url) {
+      return url.startsWith("jdbc:counting:");
+    }
+
+    @Override
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+      return new DriverPropertyInfo[0];
+    }
+
+    @Override
+    public int getMajorVersion() {
+      return 1;
+    }
+
+    @Override
+    public int getMinorVersion() {
+      return 0;
+    }
+
+    @Override
+    public boolean jdbcCompliant() {
+      return false;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+      return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    }
+  }
+
   int countRegisteredDrivers() {
     Enumeration<Driver> drivers = DriverManager.getDrivers();
     int count = 0;
@@ -0,0 +1,62 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class SizeEstimatorTest {
+
+  @Test
+  void shouldGrowWithTheNumberOfRows() {
+    long tenRows = SizeEstimator.sizeOfResults(authors(10, "bio"));
+    long thousandRows = SizeEstimator.sizeOfResults(authors(1000, "bio"));
+    assertThat(thousandRows).isBetween(tenRows * 90, tenRows * 110);
+  }
+
+  @Test
+  void shouldCountTheCharactersOfStrings() {
+    long shortBios = SizeEstimator.sizeOfResults(authors(10, "bio"));
+    long longBios = SizeEstimator.sizeOfResults(authors(10, String.join("", Collections.nCopies(1000, "bio"))));
+    assertThat(longBios - shortBios).isGreaterThanOrEqualTo(10 * 2 * 2997L);
+  }
+
+  @Test
+  void shouldMeasureListsOfSimpleValues() {
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      names.add("name");
+    }
+    assertThat(SizeEstimator.sizeOfResults(names)).isGreaterThanOrEqualTo(100 * (SizeEstimator.VALUE_OVERHEAD + 8));
+    assertThat(SizeEstimator.sizeOfResults(Collections.emptyList())).isEqualTo(SizeEstimator.VALUE_OVERHEAD);
+  }
+
+  private static List<Author> authors(int count, String bio) {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      authors.add(new Author(i, "user" + i, "password", "user@example.com", bio, Section.NEWS));
+    }
+    return authors;
+  }
+
+}
@@ -0,0 +1,120 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.junit.jupiter.api.Test;
+
+class ResultSetWrapperTest {
+
+  private final Configuration configuration = new Configuration();
+
+  @Test
+  void shouldShareSignatureOfSameStatementAndColumns() throws SQLException {
+    MappedStatement ms = mappedStatement("select");
+    ResultSetWrapper first = new ResultSetWrapper(resultSet("id", "name"), configuration, ms);
+    ResultSetWrapper second = new ResultSetWrapper(resultSet("id", "name"), configuration, ms);
+
+    assertSame(first.getSignature(), second.getSignature());
+    assertEquals(Arrays.asList("id", "name"), second.getColumnNames());
+    assertTrue(first.getTypeHandler(Integer.class, "id") instanceof IntegerTypeHandler);
+    assertSame(first.getTypeHandler(Integer.class, "id"), second.getTypeHandler(Integer.class, "id"));
+    assertEquals(2, second.getColumnIndex("NAME"));
+  }
+
+  @Test
+  void shouldNotShareSignatureOfDifferentColumnsOrStatements() throws SQLException {
+    MappedStatement ms = mappedStatement("select");
+    MappedStatement other = mappedStatement("other");
+    ResultSetWrapper rsw = new ResultSetWrapper(resultSet("id", "name"), configuration, ms);
+
+    assertNotSame(rsw.getSignature(), new ResultSetWrapper(resultSet("name", "id"), configuration, ms).getSignature());
+    assertNotSame(rsw.getSignature(), new ResultSetWrapper(resultSet("id", "name"), configuration, other).getSignature());
+    assertNotSame(rsw.getSignature(), new ResultSetWrapper(resultSet("id", "name"), configuration).getSignature());
+    assertEquals(2, ms.getColumnSignatures().getSignatures().size());
+    assertEquals(1, other.getColumnSignatures().getSignatures().size());
+  }
+
+  @Test
+  void shouldNotShareSignatureWhenMapUnderscoreToCamelCaseChanges() throws SQLException {
+    MappedStatement ms = mappedStatement("select");
+    ResultSetWrapper rsw = new ResultSetWrapper(resultSet("user_id"), configuration, ms);
+    configuration.setMapUnderscoreToCamelCase(true);
+
+    assertNotSame(rsw.getSignature(), new ResultSetWrapper(resultSet("user_id"), configuration, ms).getSignature());
+  }
+
+  @Test
+  void shouldEvictOldestSignaturesOfAStatement() throws SQLException {
+    configuration.setColumnSignatureCacheSize(2);
+    MappedStatement ms = mappedStatement("select");
+    ColumnSignature signature1 = new ResultSetWrapper(resultSet("id"), configuration, ms).getSignature();
+    ColumnSignature signature2 = new ResultSetWrapper(resultSet("name"), configuration, ms).getSignature();
+    assertSame(signature1, new ResultSetWrapper(resultSet("id"), configuration, ms).getSignature());
+
+    ColumnSignature signature3 = new ResultSetWrapper(resultSet("id", "name"), configuration, ms).getSignature();
+
+    assertEquals(Arrays.asList(signature2, signature3), ms.getColumnSignatures().getSignatures());
+    assertNotSame(signature1, new ResultSetWrapper(resultSet("id"), configuration, ms).getSignature());
+  }
+
+  @Test
+  void shouldNotCacheSignaturesWhenCacheSizeIsZero() throws SQLException {
+    configuration.setColumnSignatureCacheSize(0);
+    MappedStatement ms = mappedStatement("select");
+    ResultSetWrapper first = new ResultSetWrapper(resultSet("id"), configuration, ms);
+    ResultSetWrapper second = new ResultSetWrapper(resultSet("id"), configuration, ms);
+
+    assertNotSame(first.getSignature(), second.getSignature());
+    assertTrue(ms.getColumnSignatures().getSignatures().isEmpty());
+  }
+
+  private MappedStatement mappedStatement(String id) {
+    return new MappedStatement.Builder(configuration, id, new StaticSqlSource(configuration, "select"),
+        SqlCommandType.SELECT).build();
+  }
+
+  private ResultSet resultSet(String... columns) throws SQLException {
+    ResultSetMetaData rsmd = mock(ResultSetMetaData.class);
+    when(rsmd.getColumnCount()).thenReturn(columns.length);
+    for (int i = 0; i < columns.length; i++) {
+      when(rsmd.getColumnLabel(i + 1)).thenReturn(columns[i]);
+      when(rsmd.getColumnType(i + 1)).thenReturn(Types.INTEGER);
+      when(rsmd.getColumnClassName(i + 1)).thenReturn(Integer.class.getName());
+    }
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    return rs;
+  }
+
+}
@@ -17,17 +17,37 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.datasource.pooled.PoolMetricsListener;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.io.Resources;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -75,6 +95,710 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnectionsWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotHandOutMoreConnectionsThanAllowedWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolConcurrentBagEnabled(true);
+    ds.setPoolMaximumActiveConnections(4);
+    ds.setPoolMaximumIdleConnections(4);
+    ds.setPoolTimeToWait(100);
+    fillPool(ds, 4);
+    int threads = 32;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      AtomicInteger inUse = new AtomicInteger();
+      AtomicInteger maxInUse = new AtomicInteger();
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < 50; j++) {
+            try (Connection c = ds.getConnection()) {
+              maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+              executeHsqldbQuery(c);
+              inUse.decrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertTrue(maxInUse.get() <= 4);
+      assertEquals(threads * 50 + 4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(4, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getCreationTimeHistogram().getCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldServeManyMoreThreadsThanConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolMaximumActiveConnections(4);
+    ds.setPoolMaximumIdleConnections(4);
+    ds.setPoolTimeToWait(100);
+    fillPool(ds, 4);
+    Cache cache = new SynchronizedCache(new SoftCache(new WeakCache(new PerpetualCache("stress"))));
+    int threads = 500;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      AtomicInteger inUse = new AtomicInteger();
+      AtomicInteger maxInUse = new AtomicInteger();
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        int key = i % 10;
+        futures.add(executor.submit(() -> {
+          start.await();
+          for (int j = 0; j < 10; j++) {
+            try (Connection c = ds.getConnection()) {
+              maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+              executeHsqldbQuery(c);
+              inUse.decrementAndGet();
+            }
+            cache.putObject(key, "value" + key);
+            Object value = cache.getObject(key);
+            assertTrue(value == null || value.equals("value" + key));
+          }
+          return null;
+        }));
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(60, TimeUnit.SECONDS);
+      }
+      assertTrue(maxInUse.get() <= 4);
+      assertEquals(threads * 10 + 4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(4, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getCreationTimeHistogram().getCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertTrue(cache.getSize() <= 10);
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldClaimOverdueConnectionWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(50);
+      ds.setPoolTimeToWait(10);
+      Connection leaked = ds.getConnection();
+      Thread.sleep(100);
+      Connection c = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertThrows(SQLException.class, leaked::createStatement);
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      executeHsqldbQuery(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldInvalidateCheckedOutConnectionsOnForceCloseAllWithConcurrentBag() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolConcurrentBagEnabled(true);
+    Connection c = ds.getConnection();
+    ds.forceCloseAll();
+    assertThrows(SQLException.class, c::createStatement);
+    c.close();
+    assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    try (Connection c2 = ds.getConnection()) {
+      executeHsqldbQuery(c2);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEnableConcurrentBagThroughFactory() {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    Properties props = new Properties();
+    props.setProperty("poolConcurrentBagEnabled", "true");
+    factory.setProperties(props);
+    assertTrue(((PooledDataSource) factory.getDataSource()).isPoolConcurrentBagEnabled());
+  }
+
+  @Test
+  void shouldNotPingOnCheckoutWhenHousekeepingIsEnabled() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      ds.setPoolPingQuery("SELECT * FROM NO_SUCH_TABLE");
+      ds.setPoolHousekeepingPeriod(3600000);
+      Connection c = ds.getConnection();
+      c.close();
+      Thread.sleep(5);
+      c = ds.getConnection();
+      c.close();
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldEvictIdleConnectionsDownToMinimumIdle() throws Exception {
+    shouldEvictIdleConnectionsDownToMinimumIdle(false);
+  }
+
+  @Test
+  void shouldEvictIdleConnectionsDownToMinimumIdleWithConcurrentBag() throws Exception {
+    shouldEvictIdleConnectionsDownToMinimumIdle(true);
+  }
+
+  private void shouldEvictIdleConnectionsDownToMinimumIdle(boolean concurrentBag) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(concurrentBag);
+      ds.setPoolMaximumIdleConnections(5);
+      ds.setPoolMinimumIdleConnections(1);
+      ds.setPoolIdleTimeout(50);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(3, ds.getPoolState().getIdleConnectionCount());
+      ds.setPoolHousekeepingPeriod(20);
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 1);
+      Thread.sleep(100);
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldOpenConnectionsUpToMinimumIdle() throws Exception {
+    shouldOpenConnectionsUpToMinimumIdle(false);
+  }
+
+  @Test
+  void shouldOpenConnectionsUpToMinimumIdleWithConcurrentBag() throws Exception {
+    shouldOpenConnectionsUpToMinimumIdle(true);
+  }
+
+  private void shouldOpenConnectionsUpToMinimumIdle(boolean concurrentBag) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(concurrentBag);
+      ds.setPoolMinimumIdleConnections(3);
+      ds.setPoolHousekeepingPeriod(20);
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 3);
+      try (Connection c = ds.getConnection()) {
+        executeHsqldbQuery(c);
+      }
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+    } finally {
+      ds.setPoolHousekeepingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldDiscardIdleConnectionsFailingThePingInTheBackground() throws Exception {
+    shouldDiscardIdleConnectionsFailingThePingInTheBackground(false);
+  }
+
+  @Test
+  void shouldDiscardIdleConnectionsFailingThePingInTheBackgroundWithConcurrentBag() throws Exception {
+    shouldDiscardIdleConnectionsFailingThePingInTheBackground(true);
+  }
+
+  private void shouldDiscardIdleConnectionsFailingThePingInTheBackground(boolean concurrentBag) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(concurrentBag);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      ds.setPoolPingQuery("SELECT * FROM NO_SUCH_TABLE");
+      ds.setPoolHousekeepingPeriod(3600000);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+      ds.setPoolHousekeepingPeriod(20);
+      waitFor(() -> ds.getPoolState().getBadConnectionCount() == 1);
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertTrue(realConnection.isClosed());
+    } finally {
+      ds.setPoolHousekeepingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldRecordHistogramsAndNotifyListener() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      AtomicInteger checkouts = new AtomicInteger();
+      AtomicInteger returns = new AtomicInteger();
+      AtomicInteger creations = new AtomicInteger();
+      ds.setPoolMetricsListener(new PoolMetricsListener() {
+        @Override
+        public void connectionCheckedOut(long waitNanos) {
+          checkouts.incrementAndGet();
+        }
+
+        @Override
+        public void connectionReturned(long holdNanos) {
+          returns.incrementAndGet();
+        }
+
+        @Override
+        public void connectionCreated(long creationNanos) {
+          creations.incrementAndGet();
+        }
+      });
+      for (int i = 0; i < 3; i++) {
+        try (Connection c = ds.getConnection()) {
+          Thread.sleep(2);
+        }
+      }
+      assertEquals(3, checkouts.get());
+      assertEquals(3, returns.get());
+      assertEquals(1, creations.get());
+      assertEquals(3, ds.getPoolState().getWaitTimeHistogram().getCount());
+      assertEquals(3, ds.getPoolState().getHoldTimeHistogram().getCount());
+      assertEquals(1, ds.getPoolState().getCreationTimeHistogram().getCount());
+      assertTrue(ds.getPoolState().getHoldTimeP50Micros() >= 1000);
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldStopBackgroundTasksOnClose() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=\"close test\"");
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolJmxName("close test");
+      ds.setPoolHousekeepingPeriod(20);
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+      ds.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      assertFalse(server.isRegistered(name));
+      Thread.sleep(100);
+      // the housekeeping would have opened the idle connections again
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.close();
+    }
+  }
+
+  @Test
+  void shouldExposePoolStateThroughJmx() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName("org.apache.ibatis.datasource.pooled:type=PooledDataSource,name=\"jmx test\"");
+    try {
+      ds.setPoolConcurrentBagEnabled(true);
+      ds.setPoolJmxName("jmx test");
+      Connection c = ds.getConnection();
+      assertEquals(1, server.getAttribute(name, "ActiveConnectionCount"));
+      assertEquals(1L, server.getAttribute(name, "RequestCount"));
+      c.close();
+      assertEquals(1, server.getAttribute(name, "IdleConnectionCount"));
+      assertEquals(1L, server.getAttribute(name, "RequestCount"));
+      assertNotNull(server.getAttribute(name, "HoldTimeP99Micros"));
+      server.invoke(name, "resetHistograms", null, null);
+      assertEquals(0, ds.getPoolState().getHoldTimeHistogram().getCount());
+    } finally {
+      ds.setPoolJmxName(null);
+      ds.forceCloseAll();
+    }
+    assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  void shouldWarmUpWhenConfiguredThroughFactory() throws Exception {
+    shouldWarmUpWhenConfiguredThroughFactory(false);
+  }
+
+  @Test
+  void shouldWarmUpWhenConfiguredThroughFactoryWithConcurrentBag() throws Exception {
+    shouldWarmUpWhenConfiguredThroughFactory(true);
+  }
+
+  private void shouldWarmUpWhenConfiguredThroughFactory(boolean concurrentBag) throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    props.setProperty("poolConcurrentBagEnabled", String.valueOf(concurrentBag));
+    props.setProperty("poolMinimumIdleConnections", "4");
+    props.setProperty("poolWarmUpEnabled", "true");
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    factory.setProperties(props);
+    PooledDataSource ds = (PooledDataSource) factory.getDataSource();
+    try {
+      assertEquals(4, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getCreationTimeHistogram().getCount());
+      try (Connection c = ds.getConnection()) {
+        executeHsqldbQuery(c);
+      }
+      assertEquals(4, ds.getPoolState().getCreationTimeHistogram().getCount());
+
+      ds.forceCloseAll();
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 4);
+    } finally {
+      ds.setPoolWarmUpEnabled(false);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCollapseWarmUpsAfterRepeatedResets() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMinimumIdleConnections(2);
+      ds.setPoolWarmUpEnabled(true);
+      ds.warmUp();
+      assertEquals(2, ds.getPoolState().getCreationTimeHistogram().getCount());
+      for (int i = 0; i < 20; i++) {
+        ds.forceCloseAll();
+      }
+      waitFor(() -> ds.getPoolState().getIdleConnectionCount() == 2);
+      Thread.sleep(100);
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      // the initial warm-up, the one started by the first reset and a single one for the resets that followed
+      assertTrue(ds.getPoolState().getCreationTimeHistogram().getCount() <= 6);
+    } finally {
+      ds.setPoolWarmUpEnabled(false);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotWarmUpMoreThanMaximumActiveConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMinimumIdleConnections(4);
+      ds.warmUp();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReusePreparedStatementsAcrossCheckouts() throws Exception {
+    shouldReusePreparedStatementsAcrossCheckouts(false);
+  }
+
+  @Test
+  void shouldReusePreparedStatementsAcrossCheckoutsWithConcurrentBag() throws Exception {
+    shouldReusePreparedStatementsAcrossCheckouts(true);
+  }
+
+  private void shouldReusePreparedStatementsAcrossCheckouts(boolean concurrentBag) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(concurrentBag);
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPreparedStatementCacheSize(2);
+      for (int i = 0; i < 3; i++) {
+        try (Connection c = ds.getConnection()) {
+          executeHsqldbQuery(c);
+        }
+      }
+      assertEquals(1, ds.getPoolState().getStatementCacheMissCount());
+      assertEquals(2, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldCloseLeastRecentlyUsedStatementWhenStatementCacheIsFull() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPreparedStatementCacheSize(2);
+      try (Connection c = ds.getConnection()) {
+        PreparedStatement first = c.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+        PreparedStatement real = first.unwrap(PreparedStatement.class);
+        first.close();
+        c.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_TABLES").close();
+        c.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_COLUMNS").close();
+        assertTrue(real.isClosed());
+        c.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_COLUMNS").close();
+      }
+      assertEquals(3, ds.getPoolState().getStatementCacheMissCount());
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotShareCachedStatementsInUse() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPreparedStatementCacheSize(2);
+      String sql = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS WHERE USER_NAME = ?";
+      try (Connection c = ds.getConnection()) {
+        PreparedStatement first = c.prepareStatement(sql);
+        first.setString(1, "SA");
+        PreparedStatement second = c.prepareStatement(sql);
+        assertNotSame(first.unwrap(PreparedStatement.class), second.unwrap(PreparedStatement.class));
+        second.close();
+        first.close();
+        assertTrue(first.isClosed());
+        assertThrows(SQLException.class, first::executeQuery);
+
+        PreparedStatement third = c.prepareStatement(sql);
+        assertFalse(third.isClosed());
+        // parameters are cleared when a statement returns to the cache
+        assertThrows(SQLException.class, third::executeQuery);
+        third.setString(1, "SA");
+        try (ResultSet rs = third.executeQuery()) {
+          assertTrue(rs.next());
+          assertEquals(1, rs.getInt(1));
+        }
+        third.close();
+      }
+      assertEquals(2, ds.getPoolState().getStatementCacheMissCount());
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotLeakStateOfCachedStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolPreparedStatementCacheSize(2);
+      String sql = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+      try (Connection c = ds.getConnection()) {
+        PreparedStatement ps = c.prepareStatement(sql);
+        assertSame(c, ps.getConnection());
+        ResultSet rs = ps.executeQuery();
+        ps.close();
+        assertTrue(rs.isClosed());
+
+        ps = c.prepareStatement(sql);
+        ps.setPoolable(false);
+        ps.close();
+        // changed properties that cannot be reset close the statement
+        ps = c.prepareStatement(sql);
+        assertTrue(ps.isPoolable());
+        ps.close();
+      }
+      assertEquals(2, ds.getPoolState().getStatementCacheMissCount());
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReportLeakedConnection() throws Exception {
+    shouldReportLeakedConnection(false);
+  }
+
+  @Test
+  void shouldReportLeakedConnectionWithConcurrentBag() throws Exception {
+    shouldReportLeakedConnection(true);
+  }
+
+  private void shouldReportLeakedConnection(boolean concurrentBag) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(concurrentBag);
+      List<String> leaks = new CopyOnWriteArrayList<>();
+      List<Throwable> stackTraces = new CopyOnWriteArrayList<>();
+      ds.setPoolMetricsListener(new PoolMetricsListener() {
+        @Override
+        public void connectionLeakDetected(long heldMillis, String threadName, Throwable checkoutStackTrace) {
+          leaks.add(threadName);
+          stackTraces.add(checkoutStackTrace);
+        }
+      });
+      ds.setPoolLeakDetectionThreshold(50);
+      try (Connection c = ds.getConnection()) {
+        waitFor(() -> !leaks.isEmpty());
+        assertEquals(Thread.currentThread().getName(), leaks.get(0));
+        assertTrue(Arrays.stream(stackTraces.get(0).getStackTrace())
+            .anyMatch(e -> e.getMethodName().equals("shouldReportLeakedConnection")));
+        String[] suspects = ds.getPoolState().getLeakSuspects();
+        assertEquals(1, suspects.length);
+        assertTrue(suspects[0].contains(Thread.currentThread().getName()));
+        executeHsqldbQuery(c);
+      }
+      assertEquals(0, ds.getPoolState().getLeakSuspects().length);
+      // reported once only
+      assertEquals(1, leaks.size());
+    } finally {
+      ds.setPoolLeakDetectionThreshold(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotCaptureStackTraceOfCheckoutsNotSampled() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      List<Throwable> stackTraces = new CopyOnWriteArrayList<>();
+      ds.setPoolMetricsListener(new PoolMetricsListener() {
+        @Override
+        public void connectionLeakDetected(long heldMillis, String threadName, Throwable checkoutStackTrace) {
+          stackTraces.add(checkoutStackTrace == null ? new Throwable("not sampled") : checkoutStackTrace);
+        }
+      });
+      ds.setPoolLeakDetectionSampleRate(Integer.MAX_VALUE);
+      ds.setPoolLeakDetectionThreshold(20);
+      try (Connection c = ds.getConnection()) {
+        waitFor(() -> !stackTraces.isEmpty());
+        assertEquals("not sampled", stackTraces.get(0).getMessage());
+      }
+    } finally {
+      ds.setPoolLeakDetectionThreshold(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldNotTrackCheckoutsWhenLeakDetectionIsDisabled() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try (Connection c = ds.getConnection()) {
+      Thread.sleep(20);
+      assertEquals(0, ds.getPoolState().getLeakSuspects().length);
+      ds.setPoolLeakDetectionThreshold(10);
+      // checked out before the leak detection was enabled
+      assertEquals(0, ds.getPoolState().getLeakSuspects().length);
+    } finally {
+      ds.setPoolLeakDetectionThreshold(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldAdaptActiveConnectionLimitToBurstyLoad() throws Exception {
+    shouldAdaptActiveConnectionLimitToBurstyLoad(false);
+  }
+
+  @Test
+  void shouldAdaptActiveConnectionLimitToBurstyLoadWithConcurrentBag() throws Exception {
+    shouldAdaptActiveConnectionLimitToBurstyLoad(true);
+  }
+
+  private void shouldAdaptActiveConnectionLimitToBurstyLoad(boolean concurrentBag) throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolConcurrentBagEnabled(concurrentBag);
+      ds.setPoolMaximumActiveConnections(12);
+      ds.setPoolMaximumIdleConnections(12);
+      ds.setPoolAdaptiveMinimumActiveConnections(2);
+      ds.setPoolAdaptiveTargetWaitTime(2);
+      assertEquals(12, ds.getActiveConnectionLimit());
+      ds.setPoolAdaptiveSizingPeriod(50);
+      assertEquals(2, ds.getActiveConnectionLimit());
+
+      for (int burst = 0; burst < 2; burst++) {
+        int highestLimit = runBurst(ds, 16, 600);
+        assertTrue(highestLimit > 2, "limit did not grow: " + highestLimit);
+        assertTrue(highestLimit <= 12, "limit above maximum: " + highestLimit);
+        // quiet period: the limit goes back down and the idle connections above it are closed
+        waitFor(() -> ds.getActiveConnectionLimit() == 2 && ds.getPoolState().getIdleConnectionCount() <= 2);
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    } finally {
+      ds.setPoolAdaptiveSizingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
+  private int runBurst(PooledDataSource ds, int threads, long durationMillis) throws Exception {
+    AtomicInteger highestLimit = new AtomicInteger();
+    AtomicInteger overLimit = new AtomicInteger();
+    long end = System.currentTimeMillis() + durationMillis;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          while (System.currentTimeMillis() < end) {
+            try (Connection c = ds.getConnection()) {
+              executeHsqldbQuery(c);
+              Thread.sleep(5);
+            }
+            highestLimit.accumulateAndGet(ds.getActiveConnectionLimit(), Math::max);
+            if (ds.getPoolState().getActiveConnectionCount() > 12) {
+              overLimit.incrementAndGet();
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    assertEquals(0, overLimit.get());
+    return highestLimit.get();
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -136,6 +860,33 @@ class PooledDataSourceTest extends BaseDataTest {
     con.close();
   }
 
+  @Test
+  void shouldKeepIdleConnectionsPassingThePingInTheBackground() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingConnectionsNotUsedFor(0);
+      ds.setPoolPingQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      ds.setPoolHousekeepingPeriod(3600000);
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      ds.setPoolHousekeepingPeriod(5);
+      for (int i = 0; i < 20; i++) {
+        try (Connection connection = ds.getConnection()) {
+          assertSame(realConnection, PooledDataSource.unwrapConnection(connection));
+          executeHsqldbQuery(connection);
+        }
+        assertTrue(ds.getPoolState().getIdleConnectionCount() <= 1);
+      }
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.setPoolHousekeepingPeriod(0);
+      ds.forceCloseAll();
+    }
+  }
+
   private void exexuteQuery(Connection con) throws SQLException {
     try (PreparedStatement st = con.prepareStatement("select 1");
          ResultSet rs = st.executeQuery()) {
@@ -144,4 +895,32 @@ class PooledDataSourceTest extends BaseDataTest {
       }
     }
   }
+
+  /**
+   * Opens the given number of connections at once and returns them, so that every one of them is idle afterwards.
+   */
+  private void fillPool(PooledDataSource ds, int size) throws SQLException {
+    List<Connection> connections = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      connections.add(ds.getConnection());
+    }
+    for (Connection c : connections) {
+      c.close();
+    }
+  }
+
+  private void waitFor(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Timed out");
+      Thread.sleep(10);
+    }
+  }
+
+  private void executeHsqldbQuery(Connection con) throws SQLException {
+    try (PreparedStatement st = con.prepareStatement("SELECT COUNT(*) FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+         ResultSet rs = st.executeQuery()) {
+      assertTrue(rs.next());
+    }
+  }
 }
@@ -0,0 +1,186 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.async_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.SqlSessionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AsyncMapperTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private SqlSessionManager sqlSessionManager;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/async_mapper/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    sqlSessionManager = SqlSessionManager.newInstance(sqlSessionFactory);
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/async_mapper/CreateDB.sql");
+  }
+
+  @Test
+  void shouldRunQueriesConcurrently() {
+    QueryBarrier barrier = new QueryBarrier(2);
+    sqlSessionFactory.getConfiguration().addInterceptor(barrier);
+    Mapper mapper = sqlSessionManager.getMapper(Mapper.class);
+    CompletableFuture<User> user = mapper.getUser(1);
+    CompletableFuture<List<User>> users = mapper.getUsers();
+    assertEquals("User1", user.join().getName());
+    assertEquals(3, users.join().size());
+    assertEquals(2, barrier.getThreadNames().size());
+    for (String threadName : barrier.getThreadNames()) {
+      assertTrue(threadName.startsWith("mybatis-async-"));
+    }
+  }
+
+  @Test
+  void shouldUseTheConfiguredExecutor() {
+    ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "custom-async"));
+    try {
+      sqlSessionFactory.getConfiguration().setAsyncExecutor(executor);
+      QueryBarrier barrier = new QueryBarrier(1);
+      sqlSessionFactory.getConfiguration().addInterceptor(barrier);
+      assertEquals(Integer.valueOf(3), sqlSessionManager.getMapper(Mapper.class).countUsers().join());
+      assertEquals("custom-async", barrier.getThreadNames().get(0));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void shouldRejectCallsBeyondTheQueue() throws Exception {
+    sqlSessionFactory.getConfiguration().setAsyncExecutorQueueSize(1);
+    ThreadPoolExecutor executor = (ThreadPoolExecutor) sqlSessionFactory.getConfiguration().getAsyncExecutor();
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      // occupy the two threads of the pool
+      for (int i = 0; i < 2; i++) {
+        executor.execute(() -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+      }
+      Mapper mapper = sqlSessionManager.getMapper(Mapper.class);
+      CompletableFuture<Integer> queued = mapper.countUsers();
+      assertThrows(RejectedExecutionException.class, mapper::countUsers);
+      release.countDown();
+      assertEquals(Integer.valueOf(3), queued.get(10, TimeUnit.SECONDS));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  void shouldMapResultsLikeSynchronousMethods() {
+    Mapper mapper = sqlSessionManager.getMapper(Mapper.class);
+    assertEquals("User2", mapper.findUser(2).join().get().getName());
+    assertFalse(mapper.findUser(99).join().isPresent());
+    assertNull(mapper.getUser(99).join());
+    Map<Integer, User> userMap = mapper.getUserMap().join();
+    assertEquals(3, userMap.size());
+    assertEquals("User3", userMap.get(3).getName());
+  }
+
+  @Test
+  void shouldCommitChangesOfAsynchronousCalls() {
+    User user = new User("User4");
+    Mapper mapper = sqlSessionManager.getMapper(Mapper.class);
+    assertEquals(Integer.valueOf(1), mapper.insertUser(user).join());
+    assertNull(mapper.updateName(1, "Renamed").join());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper sessionMapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User4", sessionMapper.getUserNow(user.getId()).getName());
+      assertEquals("Renamed", sessionMapper.getUserNow(1).getName());
+    }
+  }
+
+  @Test
+  void shouldCompleteExceptionallyWhenTheStatementFails() {
+    CompletableFuture<User> user = sqlSessionManager.getMapper(Mapper.class).getUserFromMissingTable();
+    ExecutionException e = assertThrows(ExecutionException.class, user::get);
+    assertTrue(e.getCause() instanceof PersistenceException);
+  }
+
+  @Test
+  void shouldRunCallsOfASessionInSessionsOfTheirOwn() {
+    QueryBarrier barrier = new QueryBarrier(1);
+    sqlSessionFactory.getConfiguration().addInterceptor(barrier);
+    User user = new User("User4");
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals("User1", mapper.getUser(1).join().getName());
+      assertTrue(barrier.getThreadNames().get(0).startsWith("mybatis-async-"));
+      assertEquals(Integer.valueOf(1), mapper.insertUser(user).join());
+      // not in the transaction of the session
+      sqlSession.rollback(true);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("User4", sqlSession.getMapper(Mapper.class).getUserNow(user.getId()).getName());
+    }
+  }
+
+  @Test
+  void shouldRunCallsOutsideOfAManagedSession() {
+    User user = new User("User4");
+    sqlSessionManager.startManagedSession();
+    try {
+      Mapper mapper = sqlSessionManager.getMapper(Mapper.class);
+      assertEquals(Integer.valueOf(1), mapper.insertUser(user).join());
+      assertEquals("User1", mapper.getUserNow(1).getName());
+      sqlSessionManager.rollback(true);
+    } finally {
+      sqlSessionManager.close();
+    }
+    assertEquals("User4", sqlSessionManager.getMapper(Mapper.class).getUserNow(user.getId()).getName());
+  }
+
+  @Test
+  void shouldRejectAsynchronousCursors() {
+    assertThrows(BindingException.class, () -> sqlSessionManager.getMapper(Mapper.class).getUserCursor());
+  }
+
+}
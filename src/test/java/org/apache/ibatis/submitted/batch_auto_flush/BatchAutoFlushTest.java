@@ -0,0 +1,175 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_auto_flush;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.BatchExecutorException;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchAutoFlushTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_auto_flush/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_auto_flush/CreateDB.sql");
+  }
+
+  @Test
+  void shouldFlushWhenStatementReachesMaxRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Item> items = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+        Item item = new Item("item" + i);
+        items.add(item);
+        mapper.insertItem(item);
+      }
+      // the keys of the rows sent by the automatic flushes are already assigned
+      for (int i = 0; i < 20; i++) {
+        assertNotNull(items.get(i).getId());
+      }
+      for (int i = 20; i < 25; i++) {
+        assertNull(items.get(i).getId());
+      }
+
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(20, results.get(0).getUpdateCounts().length);
+      assertTrue(results.get(0).getParameterObjects().isEmpty());
+      assertEquals(5, results.get(1).getUpdateCounts().length);
+      assertEquals(items.subList(20, 25), results.get(1).getParameterObjects());
+      assertNotNull(items.get(24).getId());
+      assertEquals(25, mapper.countItems());
+      sqlSession.commit();
+    }
+  }
+
+  @Test
+  void shouldFlushWhenPendingRowsReachMax() {
+    sqlSessionFactory.getConfiguration().setBatchMaxRowsPerStatement(0);
+    sqlSessionFactory.getConfiguration().setBatchMaxPendingRows(4);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 5; i++) {
+        Item item = new Item("item" + i);
+        mapper.insertItem(item);
+        mapper.insertTag(i, "tag" + i);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      int rows = 0;
+      for (BatchResult result : results) {
+        rows += Arrays.stream(result.getUpdateCounts()).sum();
+      }
+      assertEquals(10, rows);
+      // the 8 rows flushed automatically are kept as 8 results of one row, the last 2 rows as 2 results
+      assertEquals(10, results.size());
+      assertEquals(2, results.stream().filter(r -> !r.getParameterObjects().isEmpty()).count());
+    }
+  }
+
+  @Test
+  void shouldFlushWhenPendingBytesReachMax() {
+    sqlSessionFactory.getConfiguration().setBatchMaxRowsPerStatement(0);
+    sqlSessionFactory.getConfiguration().setBatchMaxPendingBytes(1000);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Item> items = new ArrayList<>();
+      char[] name = new char[150];
+      Arrays.fill(name, 'x');
+      for (int i = 0; i < 4; i++) {
+        Item item = new Item(new String(name));
+        items.add(item);
+        mapper.insertItem(item);
+      }
+      // each row is estimated above 300 bytes, so the 3rd one triggers a flush
+      for (int i = 0; i < 3; i++) {
+        assertNotNull(items.get(i).getId());
+      }
+      assertNull(items.get(3).getId());
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals(1, results.get(1).getUpdateCounts().length);
+    }
+  }
+
+  @Test
+  void shouldReportAutomaticallyFlushedResultsWhenABatchFails() {
+    sqlSessionFactory.getConfiguration().setBatchMaxRowsPerStatement(0);
+    sqlSessionFactory.getConfiguration().setBatchMaxPendingRows(4);
+    char[] longName = new char[250];
+    Arrays.fill(longName, 'x');
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertItem(new Item("item0"));
+      mapper.insertTag(0, "tag0");
+      mapper.insertItem(new Item("item1"));
+      mapper.insertTag(1, "tag1");
+      mapper.insertItem(new Item("item2"));
+      mapper.insertTag(2, new String(longName));
+      mapper.insertItem(new Item("item3"));
+      PersistenceException e = assertThrows(PersistenceException.class, () -> mapper.insertTag(3, "tag3"));
+
+      BatchExecutorException cause = (BatchExecutorException) e.getCause();
+      List<BatchResult> successfulResults = cause.getSuccessfulBatchResults();
+      // the 4 batches flushed before and the item sent just before the failing tag
+      assertEquals(5, successfulResults.size());
+      assertEquals("insert into tag (item_id, name) values (?, ?)", successfulResults.get(3).getSql());
+      assertEquals("insert into item (name) values (?)", successfulResults.get(4).getSql());
+      assertEquals("insert into tag (item_id, name) values (?, ?)", cause.getFailingSqlStatement());
+    }
+  }
+
+  @Test
+  void shouldNotKeepAutomaticallyFlushedResultsAfterRollback() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 15; i++) {
+        mapper.insertItem(new Item("item" + i));
+      }
+      sqlSession.rollback(true);
+      assertEquals(0, mapper.countItems());
+      mapper.insertItem(new Item("item"));
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(1, results.get(0).getUpdateCounts().length);
+    }
+  }
+
+}
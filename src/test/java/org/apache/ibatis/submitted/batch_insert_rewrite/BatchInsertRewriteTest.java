@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_insert_rewrite;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.StatementRecorder;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchInsertRewriteTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private StatementRecorder recorder;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_insert_rewrite/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_insert_rewrite/CreateDB.sql");
+    recorder = new StatementRecorder();
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+  }
+
+  @Test
+  void shouldSendMultiRowInsertsAndDistributeGeneratedKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Item> items = new ArrayList<>();
+      for (int i = 0; i < 25; i++) {
+        Item item = new Item("item" + i);
+        items.add(item);
+        mapper.insertItem(item);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+
+      assertEquals(Arrays.asList(10, 10, 5), rowCounts(recorder.getStatements()));
+      assertEquals(1, results.size());
+      assertEquals(25, results.get(0).getUpdateCounts().length);
+      assertEquals(25, Arrays.stream(results.get(0).getUpdateCounts()).sum());
+      assertEquals(items, results.get(0).getParameterObjects());
+      for (Item item : items) {
+        assertEquals(mapper.selectId(item.getName()), item.getId());
+      }
+      assertEquals("item0", mapper.selectNames().get(0));
+      assertEquals("item24", mapper.selectNames().get(24));
+    }
+  }
+
+  @Test
+  void shouldLimitRowsByParameterCount() {
+    sqlSessionFactory.getConfiguration().setBatchInsertRewriteMaxParameters(5);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Item> items = new ArrayList<>();
+      for (int i = 0; i < 5; i++) {
+        Item item = new Item("item" + i);
+        items.add(item);
+        mapper.insertTaggedItem(item, "tag" + i);
+      }
+      sqlSession.flushStatements();
+
+      // 2 parameters per row: 2 rows per statement
+      assertEquals(Arrays.asList(2, 2, 1), rowCounts(recorder.getStatements()));
+      for (Item item : items) {
+        assertEquals(mapper.selectId(item.getName()), item.getId());
+      }
+    }
+  }
+
+  @Test
+  void shouldApplyParameterHandlerPluginsToEveryRow() {
+    sqlSessionFactory.getConfiguration().addInterceptor(new TagPlugin());
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 3; i++) {
+        mapper.insertTaggedItem(new Item("item" + i), "tag" + i);
+      }
+      sqlSession.flushStatements();
+
+      assertEquals(Arrays.asList(3), rowCounts(recorder.getStatements()));
+      assertEquals(Arrays.asList("plugin0", "plugin1", "plugin2"), mapper.selectTags());
+    }
+  }
+
+  @Test
+  void shouldNotRewriteInsertsOfSeveralRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertTwoItems("a", "b");
+      mapper.insertTwoItems("c", "d");
+      List<BatchResult> results = sqlSession.flushStatements();
+
+      assertEquals(Arrays.asList(2), rowCounts(recorder.getStatements()));
+      assertEquals(2, results.get(0).getUpdateCounts().length);
+      assertEquals(Arrays.asList("a", "b", "c", "d"), mapper.selectNames());
+    }
+  }
+
+  @Test
+  void shouldNotRewriteWhenDisabled() {
+    sqlSessionFactory.getConfiguration().setBatchInsertRewriteMaxRows(0);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 3; i++) {
+        mapper.insertItem(new Item("item" + i));
+      }
+      sqlSession.flushStatements();
+
+      assertEquals(Arrays.asList(1), rowCounts(recorder.getStatements()));
+    }
+  }
+
+  private static List<Integer> rowCounts(List<String> statements) {
+    List<Integer> rowCounts = new ArrayList<>();
+    for (String sql : statements) {
+      if (sql.startsWith("insert")) {
+        rowCounts.add(sql.split("\\), \\(", -1).length);
+      }
+    }
+    return rowCounts;
+  }
+
+}
@@ -0,0 +1,47 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_insert_rewrite;
+
+import java.util.List;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+public interface Mapper {
+
+  @Insert("insert into item (name) values (#{name})")
+  @Options(useGeneratedKeys = true, keyProperty = "id")
+  int insertItem(Item item);
+
+  @Insert("insert into item (name, tag) values (#{item.name}, #{tag})")
+  @Options(useGeneratedKeys = true, keyProperty = "item.id")
+  int insertTaggedItem(@Param("item") Item item, @Param("tag") String tag);
+
+  @Insert("insert into item (name) values (#{first}), (#{second})")
+  int insertTwoItems(@Param("first") String first, @Param("second") String second);
+
+  @Select("select name from item order by id")
+  List<String> selectNames();
+
+  @Select("select tag from item order by id")
+  List<String> selectTags();
+
+  @Select("select id from item where name = #{name}")
+  Integer selectId(String name);
+
+}
@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_nested_select;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+
+public interface AnnotatedMapper {
+
+  @Select("select * from blog order by id")
+  @Results({
+      @Result(property = "id", column = "id", id = true),
+      @Result(property = "title", column = "title"),
+      @Result(property = "author", column = "{authorId=author_id}", one = @One(select = "selectAuthorsByKeys", batchKey = "id"))
+  })
+  List<Blog> selectBlogs();
+
+  @Select("<script>select * from author where id in "
+      + "<foreach collection='list' item='key' open='(' separator=',' close=')'>#{key.authorId}</foreach></script>")
+  List<Author> selectAuthorsByKeys(List<Map<String, Object>> keys);
+
+}
@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_nested_select;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.StatementRecorder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchNestedSelectTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private StatementRecorder recorder;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_nested_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_nested_select/CreateDB.sql");
+    recorder = new StatementRecorder();
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+  }
+
+  @Test
+  void shouldRunEachNestedSelectOnceForAllRows() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectBlogs();
+      assertEquals(3, recorder.getStatements().size());
+      assertBlogs(blogs);
+    }
+  }
+
+  @Test
+  void shouldSplitTheKeysByBatchSize() {
+    sqlSessionFactory.getConfiguration().setNestedQueryBatchSize(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectBlogs();
+      // the blogs, 3 authors 2 by 2, 5 blogs 2 by 2
+      assertEquals(1 + 2 + 3, recorder.getStatements().size());
+      assertBlogs(blogs);
+    }
+  }
+
+  @Test
+  void shouldLoadTheLazyPropertiesOfAllRowsOnFirstAccess() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(Mapper.class).selectLazyBlogs();
+      assertEquals(1, recorder.getStatements().size());
+      assertEquals("Author1", blogs.get(2).getAuthor().getName());
+      assertEquals(2, recorder.getStatements().size());
+      assertEquals(Arrays.asList("Author1", "Author2", "Author1", "Author3", null), authorNames(blogs));
+      assertEquals(2, recorder.getStatements().size());
+      assertEquals(1, blogs.get(3).getPosts().size());
+      assertEquals(3, recorder.getStatements().size());
+      assertBlogs(blogs);
+      assertEquals(3, recorder.getStatements().size());
+    }
+  }
+
+  @Test
+  void shouldLoadForEachRowWhenRowsGoToAResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = new ArrayList<>();
+      sqlSession.select("org.apache.ibatis.submitted.batch_nested_select.Mapper.selectBlogs",
+          context -> blogs.add((Blog) context.getResultObject()));
+      assertBlogs(blogs);
+      // an author already loaded is not loaded again
+      assertEquals(1 + 3 + 5, recorder.getStatements().size());
+    }
+  }
+
+  @Test
+  void shouldBatchCompositeKeys() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Blog> blogs = sqlSession.getMapper(AnnotatedMapper.class).selectBlogs();
+      assertEquals(2, recorder.getStatements().size());
+      assertEquals(Arrays.asList("Author1", "Author2", "Author1", "Author3", null), authorNames(blogs));
+    }
+  }
+
+  @Test
+  void shouldRequireANestedSelectForABatchKey() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ResultMapping.Builder builder = new ResultMapping.Builder(configuration, "title", "title", String.class).batchKey("id");
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
+  private static void assertBlogs(List<Blog> blogs) {
+    assertEquals(5, blogs.size());
+    assertEquals(Arrays.asList("Author1", "Author2", "Author1", "Author3", null), authorNames(blogs));
+    assertEquals(Arrays.asList(1, 2, 5), postIds(blogs.get(0)));
+    assertEquals(Arrays.asList(3), postIds(blogs.get(1)));
+    assertTrue(blogs.get(2).getPosts().isEmpty());
+    assertEquals(Arrays.asList(4), postIds(blogs.get(3)));
+    assertTrue(blogs.get(4).getPosts().isEmpty());
+    assertNull(blogs.get(4).getAuthor());
+  }
+
+  private static List<String> authorNames(List<Blog> blogs) {
+    return blogs.stream().map(blog -> blog.getAuthor() == null ? null : blog.getAuthor().getName())
+        .collect(Collectors.toList());
+  }
+
+  private static List<Integer> postIds(Blog blog) {
+    return blog.getPosts().stream().map(Post::getId).collect(Collectors.toList());
+  }
+
+}
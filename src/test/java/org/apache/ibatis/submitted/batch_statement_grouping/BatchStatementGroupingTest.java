@@ -0,0 +1,121 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_statement_grouping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchStatementGroupingTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_statement_grouping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/batch_statement_grouping/CreateDB.sql");
+  }
+
+  @Test
+  void shouldGroupInterleavedInserts() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 10; i++) {
+        mapper.insertParent(i, "parent" + i);
+        mapper.insertChild(2 * i, i, "child");
+        mapper.insertChild(2 * i + 1, i, "child");
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_statement_grouping.Mapper.insertParent",
+          results.get(0).getMappedStatement().getId());
+      assertEquals(10, results.get(0).getUpdateCounts().length);
+      assertEquals(20, results.get(1).getUpdateCounts().length);
+      assertEquals(20, mapper.countChildren());
+      sqlSession.commit();
+    }
+  }
+
+  @Test
+  void shouldNotSendChildrenBeforeTheirParent() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertParent(0, "parent0");
+      sqlSession.flushStatements();
+      mapper.insertChild(0, 0, "child");
+      mapper.insertParent(1, "parent1");
+      mapper.insertChild(1, 1, "child");
+      mapper.insertChild(2, 1, "child");
+      List<BatchResult> results = sqlSession.flushStatements();
+      // [child0] [parent1] [child1, child2]
+      assertEquals(3, results.size());
+      assertEquals(1, results.get(0).getUpdateCounts().length);
+      assertEquals("org.apache.ibatis.submitted.batch_statement_grouping.Mapper.insertParent",
+          results.get(1).getMappedStatement().getId());
+      assertEquals(2, results.get(2).getUpdateCounts().length);
+      assertEquals(3, mapper.countChildren());
+    }
+  }
+
+  @Test
+  void shouldKeepOneBatchPerRowWhenGroupingIsDisabled() {
+    sqlSessionFactory.getConfiguration().setBatchStatementGroupingEnabled(false);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 0; i < 10; i++) {
+        mapper.insertParent(i, "parent" + i);
+        mapper.insertChild(i, i, "child");
+      }
+      assertEquals(20, sqlSession.flushStatements().size());
+    }
+  }
+
+  @Test
+  void shouldNotMoveInsertsAcrossDeletes() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertParent(1, "parent1");
+      mapper.insertChild(1, 1, "child");
+      mapper.deleteChildren(1);
+      mapper.insertParent(2, "parent2");
+      mapper.insertChild(2, 2, "child");
+      mapper.insertParent(3, "parent3");
+      mapper.insertChild(3, 3, "child");
+      List<BatchResult> results = sqlSession.flushStatements();
+      // [parent1] [child1] [delete] [parent2, parent3] [child2, child3]
+      assertEquals(5, results.size());
+      assertEquals(1, results.get(0).getUpdateCounts().length);
+      assertEquals(1, results.get(2).getUpdateCounts()[0]);
+      assertEquals(2, results.get(3).getUpdateCounts().length);
+      assertEquals(2, results.get(4).getUpdateCounts().length);
+      assertEquals(2, mapper.countChildren());
+    }
+  }
+
+}
@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.column_batch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.result.ColumnBatch;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ColumnBatchTest {
+
+  private static final String SELECT_SALES = "org.apache.ibatis.submitted.column_batch.Mapper.selectSales";
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/column_batch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/column_batch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldStoreRowsByColumn() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnBatch batch = sqlSession.getMapper(Mapper.class).selectSales();
+      assertEquals(5, batch.getRowCount());
+      assertEquals(Arrays.asList("ID", "QUANTITY", "PRICE", "REGION", "AMOUNT"), batch.getColumnNames());
+
+      ColumnBatch.LongColumn id = (ColumnBatch.LongColumn) batch.getColumn("id");
+      assertArrayEquals(new long[] { 1, 2, 3, 4, 5 }, id.getValues());
+
+      ColumnBatch.IntColumn quantity = (ColumnBatch.IntColumn) batch.getColumn(1);
+      assertArrayEquals(new int[] { 3, 0, 1, 7, 2 }, quantity.getValues());
+      assertTrue(quantity.isNull(1));
+      assertNull(quantity.getObject(1));
+      assertEquals(1, quantity.getNulls().cardinality());
+
+      ColumnBatch.DoubleColumn price = (ColumnBatch.DoubleColumn) batch.getColumn("PRICE");
+      assertEquals(9.5, price.getDouble(0));
+      assertTrue(price.isNull(2));
+
+      ColumnBatch.StringColumn region = (ColumnBatch.StringColumn) batch.getColumn("region");
+      assertEquals(Arrays.asList("north", "south"), region.getDictionary());
+      assertArrayEquals(new int[] { 0, 1, 0, -1, 1 }, region.getCodes());
+      assertEquals("south", region.getString(4));
+      assertNull(region.getString(3));
+
+      ColumnBatch.ObjectColumn amount = (ColumnBatch.ObjectColumn) batch.getColumn("amount");
+      assertEquals(new BigDecimal("28.50"), amount.getObject(0));
+      assertTrue(amount.isNull(2));
+      assertFalse(amount.isNull(3));
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnBatch batch = sqlSession.getMapper(Mapper.class).selectSalesPage(new RowBounds(1, 2));
+      assertArrayEquals(new long[] { 2, 3 }, ((ColumnBatch.LongColumn) batch.getColumn("id")).getValues());
+    }
+  }
+
+  @Test
+  void shouldDeliverBatchesToConsumer() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<ColumnBatch> batches = new ArrayList<>();
+      sqlSession.selectColumns(SELECT_SALES, null, 2, batches::add);
+      assertEquals(3, batches.size());
+      assertEquals(2, batches.get(0).getRowCount());
+      assertEquals(1, batches.get(2).getRowCount());
+      assertArrayEquals(new long[] { 5 }, ((ColumnBatch.LongColumn) batches.get(2).getColumn("id")).getValues());
+      // each batch has its own dictionary
+      assertEquals(Arrays.asList("south"), ((ColumnBatch.StringColumn) batches.get(2).getColumn("region")).getDictionary());
+    }
+  }
+
+  @Test
+  void shouldReturnEmptyBatchForEmptyResultSet() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnBatch batch = sqlSession.getMapper(Mapper.class).selectNothing();
+      assertEquals(0, batch.getRowCount());
+      assertEquals(1, batch.getColumnCount());
+    }
+  }
+
+  @Test
+  void shouldNotAffectRowMapping() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Object> rows = sqlSession.selectList("org.apache.ibatis.submitted.column_batch.Mapper.selectSalesRow");
+      assertEquals(5, rows.size());
+    }
+  }
+
+}
@@ -0,0 +1,31 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table sales if exists;
+
+create table sales (
+  id bigint,
+  quantity int,
+  price double,
+  region varchar(20),
+  amount decimal(10,2)
+);
+
+insert into sales values(1, 3, 9.5, 'north', 28.50);
+insert into sales values(2, null, 4.0, 'south', 8.00);
+insert into sales values(3, 1, null, 'north', null);
+insert into sales values(4, 7, 2.5, null, 17.50);
+insert into sales values(5, 2, 1.0, 'south', 2.00);
@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.column_index_mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ColumnIndexMappingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/column_index_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/column_index_mapping/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounters() {
+    CountingTypeHandler.readsByName.set(0);
+    CountingTypeHandler.readsByIndex.set(0);
+  }
+
+  @Test
+  void shouldReadPrefixedAndNestedColumnsByIndex() {
+    assertPeopleWithPets(selectPeopleWithPets());
+    // one name per person plus one name per pet
+    assertEquals(5, CountingTypeHandler.readsByIndex.get());
+    assertEquals(0, CountingTypeHandler.readsByName.get());
+  }
+
+  @Test
+  void shouldReadByNameWhenColumnLabelsAreNotUsed() {
+    sqlSessionFactory.getConfiguration().setUseColumnLabel(false);
+    try {
+      // column names, not labels, so the prefixed columns are not found
+      List<Person> people = selectPeopleWithPets();
+      assertEquals(2, people.size());
+      assertEquals(0, CountingTypeHandler.readsByIndex.get());
+      assertEquals(2, CountingTypeHandler.readsByName.get());
+    } finally {
+      sqlSessionFactory.getConfiguration().setUseColumnLabel(true);
+    }
+  }
+
+  private List<Person> selectPeopleWithPets() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return sqlSession.getMapper(Mapper.class).selectPeopleWithPets();
+    }
+  }
+
+  private void assertPeopleWithPets(List<Person> people) {
+    assertEquals(2, people.size());
+    assertEquals("John", people.get(0).getName());
+    assertEquals(2, people.get(0).getPets().size());
+    assertEquals("Rex", people.get(0).getPets().get(0).getName());
+    assertEquals("Tom", people.get(0).getPets().get(1).getName());
+    assertEquals("Jane", people.get(1).getName());
+    assertEquals(1, people.get(1).getPets().size());
+    assertEquals(12, people.get(1).getPets().get(0).getId());
+    assertEquals("Kitty", people.get(1).getPets().get(0).getName());
+  }
+
+}
@@ -0,0 +1,36 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table pets if exists;
+drop table people if exists;
+
+create table people (
+  id int,
+  name varchar(20)
+);
+
+create table pets (
+  id int,
+  name varchar(20),
+  owner_id int
+);
+
+insert into people values(1, 'John');
+insert into people values(2, 'Jane');
+
+insert into pets values(10, 'Rex', 1);
+insert into pets values(11, 'Tom', 1);
+insert into pets values(12, 'Kitty', 2);
@@ -0,0 +1,145 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.compiled_row_mapper;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CompiledRowMapperTest {
+
+  private static SqlSessionFactory compiled;
+  private static SqlSessionFactory interpreted;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    compiled = build();
+    interpreted = build();
+    interpreted.getConfiguration().setCompiledRowMappingEnabled(false);
+
+    BaseDataTest.runScript(compiled.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/compiled_row_mapper/CreateDB.sql");
+  }
+
+  private static SqlSessionFactory build() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/compiled_row_mapper/mybatis-config.xml")) {
+      return new SqlSessionFactoryBuilder().build(reader);
+    }
+  }
+
+  @BeforeEach
+  void resetCounters() {
+    UpperCaseTypeHandler.readsByName.set(0);
+    UpperCaseTypeHandler.readsByIndex.set(0);
+  }
+
+  @Test
+  void shouldMapAutomaticMappingsLikeTheInterpreter() {
+    List<Person> people = select(compiled, Mapper::selectAll);
+    assertSame(select(interpreted, Mapper::selectAll), people);
+
+    Person john = people.get(0);
+    assertEquals("John", john.getFirstName());
+    assertEquals(42, john.getAge());
+    assertEquals("1234.50", john.getSalary().toPlainString());
+    assertTrue(john.isActive());
+    assertEquals("Johnny", john.getNickname());
+    Person jane = people.get(1);
+    assertNull(jane.getSalary());
+    assertNull(jane.getBorn());
+    assertNull(jane.getNickname());
+
+    MappedStatement ms = compiled.getConfiguration().getMappedStatement(Mapper.class.getName() + ".selectAll");
+    String resultMapId = ms.getResultMaps().get(0).getId();
+    assertTrue(ms.getColumnSignatures().getSignatures().stream()
+        .anyMatch(signature -> signature.getCompiledRowMapper(resultMapId) != null));
+  }
+
+  @Test
+  void shouldReadResultMapColumnsByIndex() {
+    List<Person> people = select(compiled, Mapper::selectWithResultMap);
+    assertEquals(3, UpperCaseTypeHandler.readsByIndex.get());
+    assertEquals(0, UpperCaseTypeHandler.readsByName.get());
+
+    assertSame(select(interpreted, Mapper::selectWithResultMap), people);
+    assertEquals(6, UpperCaseTypeHandler.readsByIndex.get());
+    assertEquals(0, UpperCaseTypeHandler.readsByName.get());
+
+    assertEquals("SMITH", people.get(0).getLastName());
+    assertEquals("Johnny", people.get(0).getFirstName());
+    assertNull(people.get(1).getFirstName());
+    assertNull(people.get(2).getLastName());
+  }
+
+  @Test
+  void shouldInterpretNestedPropertyPaths() {
+    List<Person> people = select(compiled, Mapper::selectWithAddress);
+    assertEquals(3, UpperCaseTypeHandler.readsByIndex.get());
+    assertEquals(0, UpperCaseTypeHandler.readsByName.get());
+    assertEquals("Paris", people.get(0).getAddress().getCity());
+    assertEquals("SMITH", people.get(0).getLastName());
+  }
+
+  @Test
+  void shouldReturnNullForEmptyRows() {
+    List<Person> people = select(compiled, Mapper::selectNicknames);
+    assertEquals(3, people.size());
+    assertEquals("Johnny", people.get(0).getNickname());
+    assertNull(people.get(1));
+    assertSame(select(interpreted, Mapper::selectNicknames), people);
+  }
+
+  private static List<Person> select(SqlSessionFactory sqlSessionFactory, Function<Mapper, List<Person>> query) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      return query.apply(sqlSession.getMapper(Mapper.class));
+    }
+  }
+
+  private static void assertSame(List<Person> expected, List<Person> actual) {
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      Person e = expected.get(i);
+      Person a = actual.get(i);
+      if (e == null) {
+        assertNull(a);
+        continue;
+      }
+      assertEquals(e.getId(), a.getId());
+      assertEquals(e.getFirstName(), a.getFirstName());
+      assertEquals(e.getLastName(), a.getLastName());
+      assertEquals(e.getAge(), a.getAge());
+      assertEquals(e.getSalary(), a.getSalary());
+      assertEquals(e.isActive(), a.isActive());
+      assertEquals(e.getBorn(), a.getBorn());
+      assertEquals(e.getNickname(), a.getNickname());
+    }
+  }
+
+}
@@ -0,0 +1,34 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table people if exists;
+
+create table people (
+  id int,
+  first_name varchar(20),
+  last_name varchar(20),
+  age int,
+  salary decimal(10,2),
+  active boolean,
+  born date,
+  nickname varchar(20),
+  city varchar(20)
+);
+
+insert into people values(1, 'John', 'Smith', 42, 1234.50, true, '1977-05-01', 'Johnny', 'Paris');
+insert into people values(2, 'Jane', 'Doe', 37, null, false, null, null, null);
+insert into people values(3, 'Bob', null, 25, 99.99, true, '1994-12-31', 'Bobby', 'Rome');
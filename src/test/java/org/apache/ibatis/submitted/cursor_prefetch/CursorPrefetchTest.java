@@ -0,0 +1,163 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_prefetch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CursorPrefetchTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_prefetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cursor_prefetch/CreateDB.sql");
+  }
+
+  @Test
+  void shouldReturnAllRowsInOrder() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getAllUsers();
+      assertTrue(cursor instanceof PrefetchingCursor);
+      assertFalse(cursor.isOpen());
+      assertEquals(-1, cursor.getCurrentIndex());
+
+      Iterator<User> iterator = cursor.iterator();
+      assertTrue(iterator.hasNext());
+      assertTrue(cursor.isOpen());
+      assertEquals(-1, cursor.getCurrentIndex());
+
+      List<Integer> ids = new ArrayList<>();
+      while (iterator.hasNext()) {
+        User user = iterator.next();
+        assertTrue(user.getMappedBy().startsWith("mybatis-cursor-prefetch-"));
+        ids.add(user.getId());
+        assertEquals(ids.size() - 1, cursor.getCurrentIndex());
+      }
+      assertEquals(10, ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        assertEquals(i + 1, ids.get(i).intValue());
+      }
+      assertFalse(cursor.isOpen());
+      assertTrue(cursor.isConsumed());
+      assertThrows(NoSuchElementException.class, iterator::next);
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getUsers(new RowBounds(2, 3));
+      List<Integer> ids = new ArrayList<>();
+      for (User user : cursor) {
+        ids.add(user.getId());
+        assertEquals(user.getId() - 1, cursor.getCurrentIndex());
+      }
+      assertEquals(3, ids.size());
+      assertEquals(3, ids.get(0).intValue());
+      assertEquals(5, ids.get(2).intValue());
+      assertTrue(cursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldStopPrefetchingWhenClosed() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getAllUsers();
+      Iterator<User> iterator = cursor.iterator();
+      assertEquals(1, iterator.next().getId().intValue());
+
+      // the prefetching thread is waiting for room in the queue
+      cursor.close();
+      assertFalse(cursor.isOpen());
+      assertFalse(cursor.isConsumed());
+      assertFalse(iterator.hasNext());
+      assertEquals(0, cursor.getCurrentIndex());
+
+      assertEquals("User2", mapper.getUser(2).getName());
+    }
+  }
+
+  @Test
+  void shouldRethrowMappingErrors() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getUsersWithBadAge();
+      Iterator<User> iterator = cursor.iterator();
+      assertEquals(1, iterator.next().getAge().intValue());
+      assertEquals(2, iterator.next().getAge().intValue());
+      assertThrows(RuntimeException.class, iterator::hasNext);
+      assertFalse(cursor.isOpen());
+      assertFalse(iterator.hasNext());
+    }
+  }
+
+  @Test
+  void shouldNotPrefetchNestedSelects() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getUsersWithFriends();
+      assertTrue(cursor instanceof DefaultCursor);
+      Iterator<User> iterator = cursor.iterator();
+      User user = iterator.next();
+      assertEquals("User2", user.getFriend().getName());
+      assertEquals(Thread.currentThread().getName(), user.getMappedBy());
+    }
+  }
+
+  @Test
+  void shouldCloseCursorWithSession() {
+    Cursor<User> cursor;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      cursor = mapper.getAllUsers();
+      Iterator<User> iterator = cursor.iterator();
+      assertEquals(1, iterator.next().getId().intValue());
+      assertTrue(cursor.isOpen());
+    }
+    assertFalse(cursor.isOpen());
+    assertFalse(cursor.isConsumed());
+  }
+
+}
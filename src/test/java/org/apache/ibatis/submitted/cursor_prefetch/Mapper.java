@@ -0,0 +1,46 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_prefetch;
+
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Select("select id, name from users order by id")
+  Cursor<User> getAllUsers();
+
+  @Select("select id, name from users order by id")
+  Cursor<User> getUsers(RowBounds rowBounds);
+
+  @Select("select id, name, case when id = 3 then 'x' else cast(id as varchar(10)) end as age from users order by id")
+  Cursor<User> getUsersWithBadAge();
+
+  @Results({
+      @Result(property = "id", column = "id"),
+      @Result(property = "friend", column = "friend_id", one = @One(select = "getUser"))
+  })
+  @Select("select id, name, friend_id from users order by id")
+  Cursor<User> getUsersWithFriends();
+
+  @Select("select id, name from users where id = #{id}")
+  User getUser(int id);
+
+}
@@ -0,0 +1,29 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+
+drop table item if exists;
+
+create table item (
+  id int,
+  name varchar(20),
+  parent_id int
+);
+
+insert into item (id, name, parent_id) values (1, 'Item1', null);
+insert into item (id, name, parent_id) values (2, 'Item2', 1);
+insert into item (id, name, parent_id) values (3, 'Item3', 1);
+insert into item (id, name, parent_id) values (4, 'Item4', 2);
@@ -0,0 +1,115 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.local_cache_limits;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.Reader;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.StatementRecorder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LocalCacheLimitsTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+  private StatementRecorder recorder;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/local_cache_limits/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/local_cache_limits/CreateDB.sql");
+    recorder = new StatementRecorder();
+    sqlSessionFactory.getConfiguration().addInterceptor(recorder);
+  }
+
+  @Test
+  void shouldEvictTheLeastRecentlyUsedResults() {
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxEntries(2);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Item item1 = mapper.getItem(1);
+      mapper.getItem(2);
+      assertSame(item1, mapper.getItem(1));
+      mapper.getItem(3);
+      assertEquals(3, recorder.getStatements().size());
+      // item 2 was the least recently used
+      assertSame(item1, mapper.getItem(1));
+      assertEquals(3, recorder.getStatements().size());
+      mapper.getItem(2);
+      assertEquals(4, recorder.getStatements().size());
+    }
+  }
+
+  @Test
+  void shouldNotKeepResultsWithTooManyRows() {
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxRows(3);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getItems();
+      mapper.getItems();
+      mapper.getItem(1);
+      mapper.getItem(1);
+      assertEquals(3, recorder.getStatements().size());
+    }
+  }
+
+  @Test
+  void shouldEvictResultsPastTheMaximumSize() {
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxBytes(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getItem(1);
+      mapper.getItem(1);
+      assertEquals(2, recorder.getStatements().size());
+    }
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxBytes(1024 * 1024);
+    recorder.getStatements().clear();
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.getItems();
+      mapper.getItems();
+      assertEquals(1, recorder.getStatements().size());
+    }
+  }
+
+  @Test
+  void shouldKeepResultsNeededByTheRunningQuery() {
+    // nested selects of the same parent rely on the local cache until the query is over
+    sqlSessionFactory.getConfiguration().setLocalCacheMaxEntries(1);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItemsWithParents();
+      assertNull(items.get(0).getParent());
+      assertEquals("Item1", items.get(1).getParent().getName());
+      assertSame(items.get(1).getParent(), items.get(2).getParent());
+      assertEquals("Item1", items.get(3).getParent().getParent().getName());
+      // the items, then items 1 and 2 once each
+      assertEquals(3, recorder.getStatements().size());
+    }
+  }
+
+}
@@ -0,0 +1,126 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.nested_result_streaming;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class NestedResultStreamingTest {
+
+  private static final int PARENTS = 300;
+  private static final int CHILDREN = 3;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nested_result_streaming/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/nested_result_streaming/CreateDB.sql");
+
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int i = 1; i <= PARENTS; i++) {
+        mapper.insertParent(new Parent(i, "Parent" + i));
+        for (int j = 1; j <= CHILDREN; j++) {
+          int childId = i * CHILDREN + j;
+          mapper.insertChild(new Child(childId, i, "Child" + childId));
+        }
+      }
+      sqlSession.commit();
+    }
+  }
+
+  @Test
+  void shouldReleaseReturnedParentsOfCursor() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<WeakReference<Object>> returned = new ArrayList<>();
+      try (Cursor<Parent> cursor = mapper.getParents()) {
+        int count = 0;
+        for (Parent parent : cursor) {
+          count++;
+          assertEquals(count, parent.getId().intValue());
+          assertEquals(CHILDREN, parent.getChildren().size());
+          if (count <= PARENTS / 2) {
+            returned.add(new WeakReference<>(parent));
+            returned.add(new WeakReference<>(parent.getChildren().get(0)));
+          }
+        }
+        assertEquals(PARENTS, count);
+        // the cursor still holds its result set handler
+        assertTrue(allCollected(returned));
+      }
+    }
+  }
+
+  @Test
+  void shouldReleaseHandledParentsOfOrderedStatement() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<WeakReference<Object>> returned = new ArrayList<>();
+      boolean[] collected = new boolean[1];
+      mapper.getParentsOrdered(context -> {
+        Parent parent = context.getResultObject();
+        assertEquals(context.getResultCount(), parent.getId().intValue());
+        assertEquals(CHILDREN, parent.getChildren().size());
+        if (context.getResultCount() <= PARENTS / 2) {
+          returned.add(new WeakReference<>(parent));
+          returned.add(new WeakReference<>(parent.getChildren().get(0)));
+        } else if (context.getResultCount() == PARENTS - 1) {
+          // still handling rows
+          collected[0] = allCollected(returned);
+        }
+      });
+      assertTrue(collected[0]);
+    }
+  }
+
+  private static boolean allCollected(List<WeakReference<Object>> references) {
+    for (int i = 0; i < 20; i++) {
+      System.gc();
+      if (references.stream().allMatch(reference -> reference.get() == null)) {
+        return true;
+      }
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,56 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_select;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+public class CountingLongTypeHandler extends BaseTypeHandler<Long> {
+
+  static final AtomicInteger reads = new AtomicInteger();
+
+  @Override
+  public void setNonNullParameter(PreparedStatement ps, int i, Long parameter, JdbcType jdbcType) throws SQLException {
+    ps.setLong(i, parameter);
+  }
+
+  @Override
+  public Long getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    reads.incrementAndGet();
+    long result = rs.getLong(columnName);
+    return result == 0 && rs.wasNull() ? null : result;
+  }
+
+  @Override
+  public Long getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    reads.incrementAndGet();
+    long result = rs.getLong(columnIndex);
+    return result == 0 && rs.wasNull() ? null : result;
+  }
+
+  @Override
+  public Long getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+    long result = cs.getLong(columnIndex);
+    return result == 0 && cs.wasNull() ? null : result;
+  }
+
+}
@@ -0,0 +1,29 @@
+--
+--    Copyright 2009-2019 the original author or authors.
+--
+--    Licensed under the Apache License, Version 2.0 (the "License");
+--    you may not use this file except in compliance with the License.
+--    You may obtain a copy of the License at
+--
+--       http://www.apache.org/licenses/LICENSE-2.0
+--
+--    Unless required by applicable law or agreed to in writing, software
+--    distributed under the License is distributed on an "AS IS" BASIS,
+--    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+--    See the License for the specific language governing permissions and
+--    limitations under the License.
+--
+
+drop table scores if exists;
+
+create table scores (
+  id bigint,
+  points int,
+  ratio double,
+  bonus int
+);
+
+insert into scores values(1, 10, 0.5, 1);
+insert into scores values(2, 20, 1.5, null);
+insert into scores values(3, 30, 2.5, 3);
+insert into scores values(4, 40, 3.5, 4);
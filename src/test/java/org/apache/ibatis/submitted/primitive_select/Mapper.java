@@ -0,0 +1,42 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_select;
+
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.RowBounds;
+
+public interface Mapper {
+
+  @Select("select id from scores order by id")
+  long[] selectIds();
+
+  @Select("select id from scores where id > #{id} order by id")
+  long[] selectIdsAfter(long id, RowBounds rowBounds);
+
+  @Select("select points, id from scores order by id")
+  int[] selectPoints();
+
+  @Select("select ratio from scores order by id")
+  double[] selectRatios();
+
+  @Select("select bonus from scores order by id")
+  int[] selectBonuses();
+
+  @Select("select id from scores order by id")
+  Cursor<Long> selectIdCursor();
+
+}
@@ -0,0 +1,183 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.primitive_select;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.result.PrimitiveArrayResultHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.LocalCacheScope;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PrimitiveSelectTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/primitive_select/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/primitive_select/CreateDB.sql");
+  }
+
+  @BeforeEach
+  void resetCounter() {
+    CountingLongTypeHandler.reads.set(0);
+  }
+
+  @Test
+  void shouldHonourCustomTypeHandlers() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertArrayEquals(new long[] { 1, 2, 3, 4 }, sqlSession.getMapper(Mapper.class).selectIds());
+      assertEquals(4, CountingLongTypeHandler.reads.get());
+      assertArrayEquals(new long[] { 1, 2, 3, 4 },
+          sqlSession.selectLongs("org.apache.ibatis.submitted.primitive_select.Mapper.selectIds"));
+      assertEquals(8, CountingLongTypeHandler.reads.get());
+    }
+  }
+
+  @Test
+  void shouldKeepTheLocalCacheForMapperMethods() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      long[] ids = mapper.selectIds();
+      assertArrayEquals(ids, mapper.selectIds());
+      assertEquals(4, CountingLongTypeHandler.reads.get());
+    }
+  }
+
+  @Test
+  void shouldSelectPrimitivesForMapperMethodsWhenNoCacheCanServeThem() throws Exception {
+    SqlSessionFactory factory;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/primitive_select/mybatis-config.xml")) {
+      factory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    ResultHandlerRecorder recorder = new ResultHandlerRecorder();
+    factory.getConfiguration().addInterceptor(recorder);
+    try (SqlSession sqlSession = factory.openSession()) {
+      assertArrayEquals(new long[] { 1, 2, 3, 4 }, sqlSession.getMapper(Mapper.class).selectIds());
+    }
+    assertEquals(1, recorder.resultHandlers.size());
+    assertNull(recorder.resultHandlers.get(0));
+
+    factory.getConfiguration().setLocalCacheScope(LocalCacheScope.STATEMENT);
+    try (SqlSession sqlSession = factory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertArrayEquals(new long[] { 1, 2, 3, 4 }, mapper.selectIds());
+      assertArrayEquals(new int[] { 10, 20, 30, 40 }, mapper.selectPoints());
+      assertArrayEquals(new double[] { 0.5, 1.5, 2.5, 3.5 }, mapper.selectRatios(), 0.0);
+      assertArrayEquals(new long[] { 3, 4 }, mapper.selectIdsAfter(1, new RowBounds(1, 5)));
+    }
+    assertEquals(5, recorder.resultHandlers.size());
+    for (ResultHandler<?> resultHandler : recorder.resultHandlers.subList(1, 5)) {
+      assertTrue(resultHandler instanceof PrimitiveArrayResultHandler);
+    }
+  }
+
+  @Intercepts(@Signature(type = Executor.class, method = "query", args = { MappedStatement.class, Object.class,
+      RowBounds.class, ResultHandler.class }))
+  public static class ResultHandlerRecorder implements Interceptor {
+
+    private final List<ResultHandler<?>> resultHandlers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      resultHandlers.add((ResultHandler<?>) invocation.getArgs()[3]);
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertArrayEquals(new long[] { 3, 4 },
+          sqlSession.selectLongs("org.apache.ibatis.submitted.primitive_select.Mapper.selectIdsAfter", 1L, new RowBounds(1, 5)));
+      assertArrayEquals(new long[] { 2 },
+          sqlSession.selectLongs("org.apache.ibatis.submitted.primitive_select.Mapper.selectIdsAfter", 1L, new RowBounds(0, 1)));
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertArrayEquals(new long[] { 3, 4 }, sqlSession.getMapper(Mapper.class).selectIdsAfter(1, new RowBounds(1, 5)));
+    }
+  }
+
+  @Test
+  void shouldSelectIntsAndDoubles() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertArrayEquals(new int[] { 10, 20, 30, 40 },
+          sqlSession.selectInts("org.apache.ibatis.submitted.primitive_select.Mapper.selectPoints"));
+      assertArrayEquals(new double[] { 0.5, 1.5, 2.5, 3.5 },
+          sqlSession.selectDoubles("org.apache.ibatis.submitted.primitive_select.Mapper.selectRatios"), 0.0);
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertArrayEquals(new int[] { 10, 20, 30, 40 }, mapper.selectPoints());
+      assertArrayEquals(new double[] { 0.5, 1.5, 2.5, 3.5 }, mapper.selectRatios(), 0.0);
+    }
+  }
+
+  @Test
+  void shouldRejectNullValues() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertThrows(PersistenceException.class,
+          () -> sqlSession.selectInts("org.apache.ibatis.submitted.primitive_select.Mapper.selectBonuses"));
+    }
+  }
+
+  @Test
+  void shouldStreamLongsFromCursor() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals(10, sqlSession.getMapper(Mapper.class).selectIdCursor().longStream().sum());
+    }
+  }
+
+}
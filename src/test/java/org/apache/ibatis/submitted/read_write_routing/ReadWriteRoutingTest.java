@@ -0,0 +1,196 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.read_write_routing;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.routing.ReadWriteRoutingDataSource;
+import org.apache.ibatis.datasource.routing.ReadWriteRoutingDataSourceFactory;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.ReadWriteRoutingTransaction;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ReadWriteRoutingTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/read_write_routing/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    ReadWriteRoutingDataSource dataSource = (ReadWriteRoutingDataSource) sqlSessionFactory.getConfiguration()
+        .getEnvironment().getDataSource();
+    populate(dataSource.getPrimary(), "primary");
+    populate(dataSource.getReplicas().get(0), "replica1");
+    populate(dataSource.getReplicas().get(1), "replica2");
+  }
+
+  private static void populate(DataSource dataSource, String name) throws Exception {
+    BaseDataTest.runScript(dataSource, "org/apache/ibatis/submitted/read_write_routing/CreateDB.sql");
+    try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+      stmt.executeUpdate("insert into node (name) values ('" + name + "')");
+      if (!conn.getAutoCommit()) {
+        conn.commit();
+      }
+    }
+  }
+
+  @Test
+  void shouldBalanceReadsAcrossReplicas() {
+    Set<String> names = new HashSet<>();
+    for (int i = 0; i < 2; i++) {
+      try (SqlSession sqlSession = sqlSessionFactory.openSession(true)) {
+        names.add(sqlSession.getMapper(Mapper.class).getNodeName());
+      }
+    }
+    assertEquals(new HashSet<>(Arrays.asList("replica1", "replica2")), names);
+  }
+
+  @Test
+  void shouldReadFromPrimaryAfterWrite() {
+    readYourWrites(ExecutorType.SIMPLE);
+  }
+
+  @Test
+  void shouldReadFromPrimaryAfterWriteWithReuseExecutor() {
+    readYourWrites(ExecutorType.REUSE);
+  }
+
+  @Test
+  void shouldReadFromPrimaryAfterWriteWithBatchExecutor() {
+    readYourWrites(ExecutorType.BATCH);
+  }
+
+  private void readYourWrites(ExecutorType executorType) {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession(executorType, true)) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertTrue(mapper.getNodeName().startsWith("replica"));
+      mapper.renameNode("renamed");
+      sqlSession.clearCache();
+      assertEquals("renamed", mapper.getNodeName());
+      mapper.renameNode("primary");
+      sqlSession.flushStatements();
+    }
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getConnection();
+      assertEquals("primary", sqlSession.getMapper(Mapper.class).getNodeName());
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryWhenConnectionWasRequested() throws SQLException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      sqlSession.getConnection();
+      assertEquals("primary", sqlSession.getMapper(Mapper.class).getNodeName());
+    }
+  }
+
+  @Test
+  void shouldReadFromPrimaryInTransaction() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertEquals("primary", sqlSession.getMapper(Mapper.class).getNodeName());
+    }
+  }
+
+  @Test
+  void shouldKeepLockingReadsOnPrimaryWhenReplicaReadsInTransactionsAreAllowed() {
+    ReadWriteRoutingDataSource dataSource = (ReadWriteRoutingDataSource) sqlSessionFactory.getConfiguration()
+        .getEnvironment().getDataSource();
+    dataSource.setReplicaReadsInTransactions(true);
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertTrue(mapper.getNodeName().startsWith("replica"));
+      assertEquals("primary", mapper.getNodeNameForUpdate());
+    } finally {
+      dataSource.setReplicaReadsInTransactions(false);
+    }
+  }
+
+  @Test
+  void shouldStopRoutingOncePrimaryConnectionIsOpen() throws SQLException {
+    ReadWriteRoutingDataSource dataSource = (ReadWriteRoutingDataSource) sqlSessionFactory.getConfiguration()
+        .getEnvironment().getDataSource();
+    ReadWriteRoutingTransaction transaction = new ReadWriteRoutingTransaction(dataSource, null, true);
+    try {
+      assertTrue(transaction.isRouting());
+      transaction.getConnection(true);
+      assertTrue(transaction.isRouting());
+      transaction.getConnection();
+      assertFalse(transaction.isRouting());
+    } finally {
+      transaction.close();
+    }
+    transaction = new ReadWriteRoutingTransaction(dataSource, null, false);
+    try {
+      assertFalse(transaction.isRouting());
+    } finally {
+      transaction.close();
+    }
+  }
+
+  @Test
+  void shouldRejectMalformedReplicaProperty() {
+    Properties properties = new Properties();
+    properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+    properties.setProperty("url", "jdbc:hsqldb:mem:read_write_routing_primary");
+    properties.setProperty("replica.url", "jdbc:hsqldb:mem:read_write_routing_replica1");
+    ReadWriteRoutingDataSourceFactory factory = new ReadWriteRoutingDataSourceFactory();
+    assertThrows(DataSourceException.class, () -> factory.setProperties(properties));
+  }
+
+  @Test
+  void shouldInheritPrimaryPropertiesInReplicas() throws SQLException {
+    Properties properties = new Properties();
+    properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+    properties.setProperty("url", "jdbc:hsqldb:mem:read_write_routing_primary");
+    properties.setProperty("username", "sa");
+    properties.setProperty("replica.b.url", "jdbc:hsqldb:mem:read_write_routing_replica2");
+    properties.setProperty("replica.a.url", "jdbc:hsqldb:mem:read_write_routing_replica1");
+    properties.setProperty("replicaReadsInTransactions", "true");
+    ReadWriteRoutingDataSourceFactory factory = new ReadWriteRoutingDataSourceFactory();
+    factory.setProperties(properties);
+    ReadWriteRoutingDataSource dataSource = (ReadWriteRoutingDataSource) factory.getDataSource();
+    assertEquals(2, dataSource.getReplicas().size());
+    assertTrue(dataSource.isReplicaReadsInTransactions());
+    try (Connection conn = dataSource.getReplicas().get(0).getConnection()) {
+      assertEquals("jdbc:hsqldb:mem:read_write_routing_replica1", conn.getMetaData().getURL());
+      assertEquals("SA", conn.getMetaData().getUserName());
+    }
+  }
+
+}